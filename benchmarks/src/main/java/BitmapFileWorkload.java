@@ -0,0 +1,95 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import benchmarks.BitmapWorkload;
+
+/**
+ * Bitmap File Workload
+ *
+ * The bitmap operations for BitmapBenchmarks, on one bitmap file. The encoded copy is written to a temporary file that tearDown
+ * deletes, and console output of DibDump is discarded between setUp and tearDown.
+ *
+ * Methods in this class
+ * void setUp
+ * int  readArray
+ * int  writeArray
+ * int  decodeInputs
+ * void tearDown
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class BitmapFileWorkload implements BitmapWorkload
+{
+
+   private DibDump dibdumper = new DibDump();
+   private BmpDecoder decoder = new BmpDecoder();
+   private String fileName;
+   private File output;
+   private int[][] pels;
+   private double[] inputs;
+   private PrintStream console;
+
+   /**
+    * Decodes the bitmap once so that the write benchmark has pels to encode
+    *
+    * @param fileName the bitmap file read by every operation
+    */
+   public void setUp(String fileName) throws IOException
+   {
+      if (!new File(fileName).exists())
+      {
+         throw new IOException(fileName + ": not found; run the benchmarks from the project folder");
+      }
+      this.fileName = fileName;
+      output = File.createTempFile("benchmark", ".bmp");
+
+      console = System.out;
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+      pels = dibdumper.BMPtoArray(fileName);
+      inputs = decoder.decodeInputs(fileName, BmpInputMode.GRAYSCALE);
+   }
+
+   /**
+    * Decodes the bitmap into an array of pels with DibDump.BMPtoArray
+    *
+    * @return the first pel
+    */
+   public int readArray()
+   {
+      return dibdumper.BMPtoArray(fileName)[0][0];
+   }
+
+   /**
+    * Encodes the pels back into a temporary bitmap file with DibDump.arrayToBMP
+    *
+    * @return the number of rows written
+    */
+   public int writeArray()
+   {
+      dibdumper.arrayToBMP(pels, output.getPath());
+      return pels.length;
+   }
+
+   /**
+    * Decodes the bitmap into grayscale network inputs with BmpDecoder.decodeInputs
+    *
+    * @return the number of inputs
+    */
+   public int decodeInputs() throws IOException
+   {
+      return decoder.decodeInputs(fileName, BmpInputMode.GRAYSCALE, inputs);
+   }
+
+   /**
+    * Deletes the temporary bitmap and gives the console back to the benchmark
+    */
+   public void tearDown()
+   {
+      System.setOut(console);
+      output.delete();
+   }
+
+} // public class BitmapFileWorkload
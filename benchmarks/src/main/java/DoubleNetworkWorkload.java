@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+import benchmarks.NetworkWorkload;
+
+/**
+ * Double Network Workload
+ *
+ * The passes of a FirstTry network for NetworkBenchmarks, with the same random weights and inputs as NetworkBenchmark.benchmarkNetwork.
+ * Console output of the network is discarded between setUp and tearDown.
+ *
+ * Methods in this class
+ * void   setUp
+ * double propagate
+ * double propagateBatch
+ * double backpropagate
+ * double trainEpoch
+ * void   tearDown
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class DoubleNetworkWorkload implements NetworkWorkload
+{
+
+   private FirstTry network;
+   private double[][] inputs;
+   private double[][] expected;
+   private double[][] outputs;
+   private int batchSize;
+   private PrintStream console;
+
+   /**
+    * Builds the network with random weights and a batch of random inputs and expected outputs
+    *
+    * @param topology  the topology, written as inputs-hidden,hidden-outputs
+    * @param batchSize the number of cases in the batch
+    */
+   public void setUp(String topology, int batchSize)
+   {
+      this.batchSize = batchSize;
+      network = NetworkBenchmark.buildNetwork(topology);
+      Random random = new Random(42);
+      for (double[] layerWeights : network.weights)
+      {
+         for (int index = 0; index < layerWeights.length; index++)
+         {
+            layerWeights[index] = (random.nextDouble() * 2.0 - 1.0) / Math.sqrt(layerWeights.length / 10.0 + 1.0);
+         }
+      }
+
+      inputs = new double[batchSize][network.inputs];
+      expected = new double[batchSize][network.output];
+      outputs = new double[batchSize][network.output];
+      for (int sample = 0; sample < batchSize; sample++)
+      {
+         for (int node = 0; node < network.inputs; node++)
+         {
+            inputs[sample][node] = random.nextDouble();
+         }
+         for (int node = 0; node < network.output; node++)
+         {
+            expected[sample][node] = random.nextDouble();
+         }
+      }
+
+      console = System.out;
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+   } // public void setUp(String topology, int batchSize)
+
+   /**
+    * Propagates the first case of the batch
+    *
+    * @return the first output of the network
+    */
+   public double propagate()
+   {
+      network.propagate(inputs[0]);
+      return network.getOutput(0);
+   }
+
+   /**
+    * Propagates the whole batch at once
+    *
+    * @return the first output of the last case
+    */
+   public double propagateBatch()
+   {
+      network.propagateBatch(inputs, outputs);
+      return outputs[batchSize - 1][0];
+   }
+
+   /**
+    * Propagates the first case of the batch and runs calculateBackprop on it
+    *
+    * @return the first output of the network
+    */
+   public double backpropagate()
+   {
+      network.propagate(inputs[0]);
+      network.calculateBackprop(expected, 0, 0.001);
+      return network.getOutput(0);
+   }
+
+   /**
+    * Trains the network for one epoch over the batch, as one minibatch
+    *
+    * @return the first output of the network
+    */
+   public double trainEpoch() throws IOException
+   {
+      network.train(batchSize, inputs, expected, 0.001, 1, 0.0, batchSize);
+      return network.getOutput(0);
+   }
+
+   /**
+    * Gives the console back to the benchmark
+    */
+   public void tearDown()
+   {
+      System.setOut(console);
+   }
+
+} // public class DoubleNetworkWorkload
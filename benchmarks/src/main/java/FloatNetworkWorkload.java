@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+import benchmarks.NetworkWorkload;
+
+/**
+ * Float Network Workload
+ *
+ * The passes of a FirstTryFloat network for NetworkBenchmarks, with the same random weights and inputs as
+ * NetworkBenchmark.benchmarkFloatNetwork, so the two precisions can be compared line by line. Console output of the network is
+ * discarded between setUp and tearDown.
+ *
+ * Methods in this class
+ * void   setUp
+ * double propagate
+ * double propagateBatch
+ * double backpropagate
+ * double trainEpoch
+ * void   tearDown
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class FloatNetworkWorkload implements NetworkWorkload
+{
+
+   private FirstTryFloat network;
+   private float[][] inputs;
+   private float[][] expected;
+   private double[][] batchInputs;
+   private double[][] outputs;
+   private int batchSize;
+   private PrintStream console;
+
+   /**
+    * Builds the network with random weights and a batch of random inputs and expected outputs
+    *
+    * @param topology  the topology, written as inputs-hidden,hidden-outputs
+    * @param batchSize the number of cases in the batch
+    */
+   public void setUp(String topology, int batchSize)
+   {
+      this.batchSize = batchSize;
+      FirstTry shape = NetworkBenchmark.buildNetwork(topology);
+      network = new FirstTryFloat(shape.inputs, shape.hidden, shape.output);
+      Random random = new Random(42);
+      for (float[] layerWeights : network.weights)
+      {
+         for (int index = 0; index < layerWeights.length; index++)
+         {
+            layerWeights[index] = (float) ((random.nextDouble() * 2.0 - 1.0) / Math.sqrt(layerWeights.length / 10.0 + 1.0));
+         }
+      }
+
+      inputs = new float[batchSize][network.inputs];
+      expected = new float[batchSize][network.output];
+      batchInputs = new double[batchSize][network.inputs];
+      outputs = new double[batchSize][network.output];
+      for (int sample = 0; sample < batchSize; sample++)
+      {
+         for (int node = 0; node < network.inputs; node++)
+         {
+            inputs[sample][node] = (float) random.nextDouble();
+            batchInputs[sample][node] = inputs[sample][node];
+         }
+         for (int node = 0; node < network.output; node++)
+         {
+            expected[sample][node] = (float) random.nextDouble();
+         }
+      }
+
+      console = System.out;
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+   } // public void setUp(String topology, int batchSize)
+
+   /**
+    * Propagates the first case of the batch
+    *
+    * @return the first output of the network
+    */
+   public double propagate()
+   {
+      network.propagate(inputs[0]);
+      return network.getOutput(0);
+   }
+
+   /**
+    * Propagates the whole batch at once
+    *
+    * @return the first output of the last case
+    */
+   public double propagateBatch()
+   {
+      network.propagateBatch(batchInputs, outputs);
+      return outputs[batchSize - 1][0];
+   }
+
+   /**
+    * Propagates the first case of the batch, accumulates its gradients and applies them, the float counterpart of calculateBackprop
+    *
+    * @return the first output of the network
+    */
+   public double backpropagate()
+   {
+      network.propagate(inputs[0]);
+      network.clearGradients();
+      network.accumulateGradients(expected[0], 1);
+      network.applyGradients(0.001, 1);
+      return network.getOutput(0);
+   }
+
+   /**
+    * Trains the network for one epoch over the batch, as one minibatch
+    *
+    * @return the first output of the network
+    */
+   public double trainEpoch() throws IOException
+   {
+      network.train(batchSize, inputs, expected, 0.001, 1, 0.0, batchSize);
+      return network.getOutput(0);
+   }
+
+   /**
+    * Gives the console back to the benchmark
+    */
+   public void tearDown()
+   {
+      System.setOut(console);
+   }
+
+} // public class FloatNetworkWorkload
@@ -0,0 +1,41 @@
+package benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * Benchmark Main
+ *
+ * The entry point of benchmarks.jar. It runs JMH with the given command line and adds the gc profiler, so that every benchmark
+ * reports its allocation rate (gc.alloc.rate.norm, in bytes per operation) next to its time, unless the command line already names
+ * a profiler.
+ *
+ *    java -jar benchmarks/target/benchmarks.jar
+ *    java -jar benchmarks/target/benchmarks.jar NetworkBenchmarks.propagate -p network=xor -p precision=float
+ *
+ * Methods in this class
+ * void main
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class BenchmarkMain
+{
+
+   /**
+    * Runs JMH with the gc profiler added
+    *
+    * @param args the JMH command line
+    */
+   public static void main(String[] args) throws Exception
+   {
+      if (!Arrays.asList(args).contains("-prof"))
+      {
+         String[] withProfiler = Arrays.copyOf(args, args.length + 2);
+         withProfiler[args.length] = "-prof";
+         withProfiler[args.length + 1] = "gc";
+         args = withProfiler;
+      }
+      org.openjdk.jmh.Main.main(args);
+   }
+
+} // public class BenchmarkMain
@@ -0,0 +1,96 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bitmap Benchmarks
+ *
+ * JMH benchmarks for reading and writing the bitmaps FingerMain and DianeMain train on: DibDump.BMPtoArray, DibDump.arrayToBMP and
+ * BmpDecoder.decodeInputs. The bitmap is read from the working directory, so run the benchmarks from the project folder.
+ *
+ * Methods in this class
+ * void setUp
+ * void tearDown
+ * int  readArray
+ * int  writeArray
+ * int  decodeInputs
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitmapBenchmarks
+{
+
+   @Param({"One.bmp"})
+   public String fileName;
+
+   private BitmapWorkload workload;
+
+   /**
+    * Decodes the bitmap once
+    */
+   @Setup(Level.Trial)
+   public void setUp() throws IOException, ReflectiveOperationException
+   {
+      workload = (BitmapWorkload) Class.forName("BitmapFileWorkload").getDeclaredConstructor().newInstance();
+      workload.setUp(fileName);
+   }
+
+   /**
+    * Deletes the temporary bitmap
+    */
+   @TearDown(Level.Trial)
+   public void tearDown()
+   {
+      workload.tearDown();
+   }
+
+   /**
+    * @return the first pel
+    */
+   @Benchmark
+   public int readArray() throws IOException
+   {
+      return workload.readArray();
+   }
+
+   /**
+    * @return the number of rows written
+    */
+   @Benchmark
+   public int writeArray() throws IOException
+   {
+      return workload.writeArray();
+   }
+
+   /**
+    * @return the number of inputs
+    */
+   @Benchmark
+   public int decodeInputs() throws IOException
+   {
+      return workload.decodeInputs();
+   }
+
+} // public class BitmapBenchmarks
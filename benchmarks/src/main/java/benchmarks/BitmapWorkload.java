@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.io.IOException;
+
+/**
+ * Bitmap Workload
+ *
+ * The bitmap operations that BitmapBenchmarks measures, reached by name for the same reason as NetworkWorkload. Each operation
+ * returns a value taken from its result so that the JIT cannot drop it as dead code.
+ *
+ * Methods in this class
+ * void setUp
+ * int  readArray
+ * int  writeArray
+ * int  decodeInputs
+ * void tearDown
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public interface BitmapWorkload
+{
+
+   /**
+    * Decodes the bitmap once so that the write benchmark has pels to encode
+    *
+    * @param fileName the bitmap file read by every operation
+    */
+   void setUp(String fileName) throws IOException;
+
+   /**
+    * Decodes the bitmap into an array of pels with DibDump.BMPtoArray
+    *
+    * @return the first pel
+    */
+   int readArray() throws IOException;
+
+   /**
+    * Encodes the pels back into a temporary bitmap file with DibDump.arrayToBMP
+    *
+    * @return the number of rows written
+    */
+   int writeArray() throws IOException;
+
+   /**
+    * Decodes the bitmap into grayscale network inputs with BmpDecoder.decodeInputs
+    *
+    * @return the number of inputs
+    */
+   int decodeInputs() throws IOException;
+
+   /**
+    * Deletes the temporary bitmap and gives the console back to the benchmark
+    */
+   void tearDown();
+
+} // public interface BitmapWorkload
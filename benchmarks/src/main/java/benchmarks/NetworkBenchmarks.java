@@ -0,0 +1,138 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Network Benchmarks
+ *
+ * JMH benchmarks for the hot paths of FirstTry and FirstTryFloat: propagate, propagateBatch, one backpropagation step and one epoch
+ * of train. The networks are the ones the main classes actually run: xor is the 2-10,11-3 network of networkInfo.txt, autoencoder
+ * the 10201-500,50,10-10201 DianeMain network, and fingers the 2500-500,50,10-1 FingerMain network with the hidden layers of
+ * networkInfo2.txt. They are named rather than written out because JMH splits parameter values at commas. Precision selects
+ * FirstTry (double) or FirstTryFloat (float). Every benchmark reports the average time per operation in nanoseconds; the
+ * allocation rate comes from the gc profiler, which BenchmarkMain turns on.
+ *
+ * Methods in this class
+ * String topologyOf
+ * void   setUp
+ * void   tearDown
+ * double propagate
+ * double propagateBatch
+ * double backpropagate
+ * double trainEpoch
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkBenchmarks
+{
+
+   static final int BATCH_SIZE = 8;
+
+   @Param({"xor", "autoencoder", "fingers"})
+   public String network;
+
+   @Param({"double", "float"})
+   public String precision;
+
+   private NetworkWorkload workload;
+
+   /**
+    * Finds the topology of a named network
+    *
+    * @param network xor, autoencoder or fingers
+    * @return the topology, written as inputs-hidden,hidden-outputs
+    */
+   static String topologyOf(String network)
+   {
+      switch (network)
+      {
+         case "xor":
+            return "2-10,11-3";
+         case "autoencoder":
+            return "10201-500,50,10-10201";
+         case "fingers":
+            return "2500-500,50,10-1";
+         default:
+            throw new IllegalArgumentException("unknown network " + network + ", expected xor, autoencoder or fingers");
+      }
+   } // static String topologyOf(String network)
+
+   /**
+    * Builds the network of the topology and precision being measured
+    */
+   @Setup(Level.Trial)
+   public void setUp() throws IOException, ReflectiveOperationException
+   {
+      String className = precision.equals("float") ? "FloatNetworkWorkload" : "DoubleNetworkWorkload";
+      workload = (NetworkWorkload) Class.forName(className).getDeclaredConstructor().newInstance();
+      workload.setUp(topologyOf(network), BATCH_SIZE);
+   }
+
+   /**
+    * Lets the network give the console back
+    */
+   @TearDown(Level.Trial)
+   public void tearDown()
+   {
+      workload.tearDown();
+   }
+
+   /**
+    * @return the first output of the network
+    */
+   @Benchmark
+   public double propagate()
+   {
+      return workload.propagate();
+   }
+
+   /**
+    * @return the first output of the last case
+    */
+   @Benchmark
+   public double propagateBatch()
+   {
+      return workload.propagateBatch();
+   }
+
+   /**
+    * @return the first output of the network
+    */
+   @Benchmark
+   public double backpropagate()
+   {
+      return workload.backpropagate();
+   }
+
+   /**
+    * @return the first output of the network
+    */
+   @Benchmark
+   public double trainEpoch() throws IOException
+   {
+      return workload.trainEpoch();
+   }
+
+} // public class NetworkBenchmarks
@@ -0,0 +1,68 @@
+package benchmarks;
+
+import java.io.IOException;
+
+/**
+ * Network Workload
+ *
+ * The passes of one network that NetworkBenchmarks measures. JMH only accepts benchmark classes in a named package, and a named
+ * package cannot refer to the classes of the project, which are all in the default package, so the benchmarks reach the network
+ * through this interface and load the class that implements it by name, the way ComputeKernel loads VectorKernel. Each pass returns
+ * one output of the network so that the JIT cannot drop it as dead code.
+ *
+ * Methods in this class
+ * void   setUp
+ * double propagate
+ * double propagateBatch
+ * double backpropagate
+ * double trainEpoch
+ * void   tearDown
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public interface NetworkWorkload
+{
+
+   /**
+    * Builds the network with random weights and a batch of random inputs and expected outputs
+    *
+    * @param topology  the topology, written as inputs-hidden,hidden-outputs
+    * @param batchSize the number of cases in the batch
+    */
+   void setUp(String topology, int batchSize) throws IOException;
+
+   /**
+    * Propagates the first case of the batch
+    *
+    * @return the first output of the network
+    */
+   double propagate();
+
+   /**
+    * Propagates the whole batch at once
+    *
+    * @return the first output of the last case
+    */
+   double propagateBatch();
+
+   /**
+    * Propagates the first case of the batch and moves every weight by its gradient for that case
+    *
+    * @return the first output of the network
+    */
+   double backpropagate();
+
+   /**
+    * Trains the network for one epoch over the batch, as one minibatch
+    *
+    * @return the first output of the network
+    */
+   double trainEpoch() throws IOException;
+
+   /**
+    * Gives the console back to the benchmark
+    */
+   void tearDown();
+
+} // public interface NetworkWorkload
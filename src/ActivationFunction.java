@@ -0,0 +1,124 @@
+/**
+ * Activation Function
+ *
+ * The output functions a network can apply to the weighted sum (theta) of each node. Every function also supplies its derivative
+ * written in terms of its own output, so backpropagation can get the derivative from the activation already stored by the forward
+ * pass instead of evaluating the function a second time.
+ *
+ * SIGMOID       the logistic function 1 / (1 + e^-x), which is what FirstTry has always used
+ * FAST_SIGMOID  the logistic function read from a table with linear interpolation; within 3e-6 of SIGMOID everywhere
+ * TANH          the hyperbolic tangent, with outputs between -1 and 1
+ * RELU          max(0, x), which costs a single comparison
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public enum ActivationFunction
+{
+   SIGMOID
+   {
+      public double apply(double x)
+      {
+         return 1.0 / (1.0 + Math.exp(-x));
+      }
+
+      public double derivativeFromOutput(double y)
+      {
+         return y * (1.0 - y);
+      }
+   },
+
+   FAST_SIGMOID
+   {
+      public double apply(double x)
+      {
+         if (x <= -TABLE_RANGE)
+         {
+            return SIGMOID_TABLE[0];
+         }
+         if (x >= TABLE_RANGE)
+         {
+            return SIGMOID_TABLE[SIGMOID_TABLE.length - 1];
+         }
+
+         double position = (x + TABLE_RANGE) * TABLE_STEPS_PER_UNIT;
+         int index = (int) position;
+         double fraction = position - index;
+         return SIGMOID_TABLE[index] + fraction * (SIGMOID_TABLE[index + 1] - SIGMOID_TABLE[index]);
+      }
+
+      public double derivativeFromOutput(double y)
+      {
+         return y * (1.0 - y);
+      }
+   },
+
+   TANH
+   {
+      public double apply(double x)
+      {
+         return Math.tanh(x);
+      }
+
+      public double derivativeFromOutput(double y)
+      {
+         return 1.0 - y * y;
+      }
+   },
+
+   RELU
+   {
+      public double apply(double x)
+      {
+         return x > 0.0 ? x : 0.0;
+      }
+
+      public double derivativeFromOutput(double y)
+      {
+         return y > 0.0 ? 1.0 : 0.0;
+      }
+   };
+
+   /*
+    * The fast sigmoid table covers [-TABLE_RANGE, TABLE_RANGE] in steps of 1 / TABLE_STEPS_PER_UNIT. Linear interpolation between
+    * points h apart is off by at most h^2 / 8 times the largest second derivative of the sigmoid (about 0.1), which is under 3e-6
+    * for h = 1 / 64. Outside the table the sigmoid is within 2e-7 of the end values.
+    */
+   static final double TABLE_RANGE = 16.0;
+   static final int TABLE_STEPS_PER_UNIT = 64;
+   static final double[] SIGMOID_TABLE = buildSigmoidTable();
+
+   /**
+    * Applies the function to the weighted sum of a node
+    *
+    * @param x the weighted sum (theta) of the node
+    * @return the activation of the node
+    */
+   public abstract double apply(double x);
+
+   /**
+    * Finds the derivative of the function at the point that produced a given output
+    *
+    * @param y the output of the function, that is the activation of the node
+    * @return the derivative of the function at that point
+    */
+   public abstract double derivativeFromOutput(double y);
+
+   /**
+    * Fills the lookup table used by FAST_SIGMOID with exact sigmoid values
+    *
+    * @return the table
+    */
+   private static double[] buildSigmoidTable()
+   {
+      int size = (int) (2 * TABLE_RANGE * TABLE_STEPS_PER_UNIT) + 1;
+      double[] table = new double[size];
+      for (int index = 0; index < size; index++)
+      {
+         double x = -TABLE_RANGE + (double) index / TABLE_STEPS_PER_UNIT;
+         table[index] = 1.0 / (1.0 + Math.exp(-x));
+      }
+      return table;
+   }
+
+} // public enum ActivationFunction
@@ -0,0 +1,102 @@
+/**
+ * Adam Optimizer
+ *
+ * Adaptive moment estimation. Every weight keeps a running mean of its gradients, as momentum does, and a running mean of their
+ * squares, as rmsprop does,
+ *
+ *    m = beta1 * m + (1 - beta1) * g
+ *    v = beta2 * v + (1 - beta2) * g^2
+ *    w += learningRate * (m / (1 - beta1^t)) / (sqrt(v / (1 - beta2^t)) + EPSILON)
+ *
+ * where g is the average gradient of the batch and t is the number of steps taken. Dividing by 1 - beta^t corrects both means for
+ * starting at zero, so the first steps are not too small. The means are kept in buffers shaped like the weights.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class AdamOptimizer extends Optimizer
+{
+
+   static final double EPSILON = 1e-8;
+
+   double beta1;
+   double beta2;
+   double[][] mean;
+   double[][] meanSquare;
+   double beta1Power;           // beta1^t
+   double beta2Power;           // beta2^t
+
+   /**
+    * Constructs an AdamOptimizer
+    *
+    * @param beta1 the fraction of the running mean kept at every step, such as 0.9
+    * @param beta2 the fraction of the running mean square kept at every step, such as 0.999
+    */
+   public AdamOptimizer(double beta1, double beta2)
+   {
+      this.beta1 = beta1;
+      this.beta2 = beta2;
+   }
+
+   /**
+    * Allocates the running means for a network with the given weights, both zero, and starts the step count over
+    *
+    * @param weights the weights of the network, one flat array per layer
+    */
+   public void reset(double[][] weights)
+   {
+      mean = new double[weights.length][];
+      meanSquare = new double[weights.length][];
+      for (int n = 0; n < weights.length; n++)
+      {
+         mean[n] = new double[weights[n].length];
+         meanSquare[n] = new double[weights[n].length];
+      }
+      beta1Power = 1.0;
+      beta2Power = 1.0;
+   } // public void reset(double[][] weights)
+
+   /**
+    * Moves every weight by its corrected mean gradient divided by the root of its corrected mean square gradient
+    *
+    * @param weights      the weights of the network, one flat array per layer
+    * @param gradients    the summed gradients of the batch, shaped like the weights
+    * @param learningRate the learning rate for the network
+    * @param numCases     the number of training cases whose gradients were summed
+    */
+   public void update(double[][] weights, double[][] gradients, double learningRate, int numCases)
+   {
+      if (mean == null)
+      {
+         reset(weights);
+      }
+      beta1Power *= beta1;
+      beta2Power *= beta2;
+      double step = learningRate / (1.0 - beta1Power);
+      double squareCorrection = 1.0 / (1.0 - beta2Power);
+
+      for (int n = 0; n < weights.length; n++)
+      {
+         double[] layerWeights = weights[n];
+         double[] layerGradients = gradients[n];
+         double[] layerMean = mean[n];
+         double[] layerMeanSquare = meanSquare[n];
+         for (int index = 0; index < layerWeights.length; index++)
+         {
+            double gradient = layerGradients[index] / numCases;
+            layerMean[index] = beta1 * layerMean[index] + (1.0 - beta1) * gradient;
+            layerMeanSquare[index] = beta2 * layerMeanSquare[index] + (1.0 - beta2) * gradient * gradient;
+            layerWeights[index] += step * layerMean[index] / (Math.sqrt(layerMeanSquare[index] * squareCorrection) + EPSILON);
+         }
+      }
+   } // public void update(double[][] weights, double[][] gradients, double learningRate, int numCases)
+
+   /**
+    * @return adam followed by beta1 and beta2
+    */
+   public String name()
+   {
+      return "adam " + beta1 + " " + beta2;
+   }
+
+} // public class AdamOptimizer
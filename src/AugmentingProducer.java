@@ -0,0 +1,326 @@
+import java.io.IOException;
+
+/**
+ * Augmenting Producer
+ *
+ * A SampleProducer that turns a small set of decoded images into a much larger set of training cases by shifting, rotating,
+ * brightening or darkening and adding noise to them as each case is produced. The augmented images are never stored: every case is
+ * drawn straight into the input buffer it is produced into, one row at a time through a reused row of pels, so producing a case
+ * allocates nothing. Run through PrefetchingSampleSource, the augmentation happens on background threads while the network trains.
+ *
+ * There are variants cases for every image, and case index is variant index / images.length of image index % images.length.
+ * Variant 0 of every image is the image itself. The random numbers of every other variant come from a generator seeded with the
+ * seed and the case index alone, so a case is the same every time it is produced, in every epoch and on any thread, and the same
+ * seed always gives the same training set. The index is scrambled before it seeds the generator, so the random numbers of any two
+ * cases are unrelated.
+ *
+ * Each variant is moved by a random whole number of pels in x and y up to the maximum shift, rotated by a random angle up to the
+ * maximum rotation about the center of the image, and read back with the nearest pel, repeating the edge pels of the image where
+ * the transformed image has no pel. Every color is then scaled by one random factor within the brightness range and has Gaussian
+ * noise with the given standard deviation added, and is clamped to 0 through 255. These settings are given to the constructor and
+ * never change, so the copies made for the threads of prefetch always augment exactly as the producer they were copied from.
+ *
+ * The expected outputs are either given for every image or, for an autoencoder, are the inputs of the original image, so that the
+ * network learns to undo the augmentation.
+ *
+ * Methods in this class
+ * int                      size
+ * int                      getInputCount
+ * int                      getOutputCount
+ * void                     produce
+ * PrefetchingSampleSource  prefetch
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class AugmentingProducer implements SampleProducer
+{
+
+   static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+   int[][][] images;
+   double[][] expected;
+   double[][] originals;        // the inputs of every unaugmented image, the expected outputs of an autoencoder
+   BmpInputMode mode;
+   int variants;
+   long seed;
+   int width;
+   int height;
+   int inputCount;
+
+   final int maxShift;
+   final double maxRotation;    // in degrees
+   final double brightness;     // the largest fraction by which the colors are scaled up or down
+   final double noise;          // the standard deviation of the noise, in color levels from 0 to 255
+
+   int[] row;
+   long state;
+   double spareGaussian;
+   boolean hasSpareGaussian;
+
+   /**
+    * Constructs an AugmentingProducer; a setting of 0 turns its kind of augmentation off
+    *
+    * @param images      the decoded images, which must all have the same size
+    * @param expected    the expected outputs of every image, or null for an autoencoder
+    * @param mode        how the pels are turned into inputs
+    * @param variants    the number of cases made from every image, including the image itself
+    * @param seed        the seed of the random numbers
+    * @param maxShift    the largest number of pels an image is moved by in x and in y
+    * @param maxRotation the largest angle, in degrees, an image is rotated by in either direction
+    * @param brightness  the largest fraction by which the colors are scaled up or down, such as 0.2 for 80% to 120%
+    * @param noise       the standard deviation of the noise added to every color, in color levels from 0 to 255
+    */
+   public AugmentingProducer(BmpImage[] images, double[][] expected, BmpInputMode mode, int variants, long seed, int maxShift,
+                             double maxRotation, double brightness, double noise) throws IOException
+   {
+      if (images.length == 0)
+      {
+         throw new IOException("there are no images to augment");
+      }
+      if (expected != null && expected.length != images.length)
+      {
+         throw new IOException(images.length + " images were given with " + expected.length + " expected outputs");
+      }
+
+      width = images[0].getWidth();
+      height = images[0].getHeight();
+      inputCount = width * height * mode.getInputsPerPel();
+      this.images = new int[images.length][][];
+      originals = new double[images.length][inputCount];
+      for (int image = 0; image < images.length; image++)
+      {
+         if (images[image].getWidth() != width || images[image].getHeight() != height)
+         {
+            throw new IOException("image " + image + " is " + images[image].getWidth() + " x " + images[image].getHeight() +
+                    " pels, expected " + width + " x " + height);
+         }
+         this.images[image] = images[image].getPels();
+         for (int i = 0; i < height; i++)
+         {
+            BmpDecoder.convertRow(this.images[image][i], mode, width, i * width, width * height, originals[image], null);
+         }
+      } // for (int image = 0; image < images.length; image++)
+
+      this.expected = expected;
+      this.mode = mode;
+      this.variants = Math.max(variants, 1);
+      this.seed = seed;
+      this.maxShift = maxShift;
+      this.maxRotation = maxRotation;
+      this.brightness = brightness;
+      this.noise = noise;
+      row = new int[width];
+   } // public AugmentingProducer(BmpImage[] images, double[][] expected, BmpInputMode mode, int variants, long seed, ...
+
+   /**
+    * Constructs an AugmentingProducer that shares the images and settings of another one but has its own buffers, so that the two
+    * can produce cases on different threads
+    *
+    * @param other the producer to copy
+    */
+   public AugmentingProducer(AugmentingProducer other)
+   {
+      images = other.images;
+      expected = other.expected;
+      originals = other.originals;
+      mode = other.mode;
+      variants = other.variants;
+      seed = other.seed;
+      width = other.width;
+      height = other.height;
+      inputCount = other.inputCount;
+      maxShift = other.maxShift;
+      maxRotation = other.maxRotation;
+      brightness = other.brightness;
+      noise = other.noise;
+      row = new int[width];
+   } // public AugmentingProducer(AugmentingProducer other)
+
+   /**
+    * Builds a PrefetchingSampleSource that augments images on background threads, with this producer on the first thread and a
+    * copy of it on every other one
+    *
+    * @param threads  the number of augmenting threads, or 0 for one less than the number of available processors
+    * @param ringSize the number of cases that can be produced ahead of training
+    * @return the source
+    */
+   public PrefetchingSampleSource prefetch(int threads, int ringSize)
+   {
+      if (threads < 1)
+      {
+         threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+      }
+
+      SampleProducer[] producers = new SampleProducer[threads];
+      producers[0] = this;
+      for (int thread = 1; thread < threads; thread++)
+      {
+         producers[thread] = new AugmentingProducer(this);
+      }
+      return new PrefetchingSampleSource(producers, ringSize);
+   } // public PrefetchingSampleSource prefetch(int threads, int ringSize)
+
+   public int size()
+   {
+      return images.length * variants;
+   }
+
+   public int getInputCount()
+   {
+      return inputCount;
+   }
+
+   public int getOutputCount()
+   {
+      return expected == null ? inputCount : expected[0].length;
+   }
+
+   public void produce(int index, double[] inputs, double[] expected)
+   {
+      int image = index % images.length;
+      int variant = index / images.length;
+      int[][] pels = images[image];
+      int planeSize = width * height;
+
+      if (variant == 0)
+      {
+         System.arraycopy(originals[image], 0, inputs, 0, inputCount);
+      }
+      else
+      {
+         // the index is mixed before seeding, since SplitMix64 streams seeded a step apart are the same stream shifted by one draw
+         state = mix64(seed ^ mix64(index));
+         hasSpareGaussian = false;
+
+         int shiftX = maxShift > 0 ? nextInt(2 * maxShift + 1) - maxShift : 0;
+         int shiftY = maxShift > 0 ? nextInt(2 * maxShift + 1) - maxShift : 0;
+         double angle = Math.toRadians((2.0 * nextDouble() - 1.0) * maxRotation);
+         double scale = 1.0 + (2.0 * nextDouble() - 1.0) * brightness;
+         double cos = Math.cos(angle);
+         double sin = Math.sin(angle);
+         double centerX = (width - 1) / 2.0;
+         double centerY = (height - 1) / 2.0;
+
+         for (int i = 0; i < height; i++)
+         {
+            for (int j = 0; j < width; j++)
+            {
+               //the pel of the original image that lands here, found by undoing the shift and then the rotation
+               double u = j - centerX - shiftX;
+               double v = i - centerY - shiftY;
+               int sourceX = clamp((int) Math.round(cos * u + sin * v + centerX), width - 1);
+               int sourceY = clamp((int) Math.round(-sin * u + cos * v + centerY), height - 1);
+               int pel = pels[sourceY][sourceX];
+
+               int red = jitter((pel >> 16) & 0xFF, scale);
+               int green = jitter((pel >> 8) & 0xFF, scale);
+               int blue = jitter(pel & 0xFF, scale);
+               row[j] = (red << 16) | (green << 8) | blue;
+            } // for (int j = 0; j < width; j++)
+            BmpDecoder.convertRow(row, mode, width, i * width, planeSize, inputs, null);
+         } // for (int i = 0; i < height; i++)
+      } // else
+
+      if (this.expected == null)
+      {
+         System.arraycopy(originals[image], 0, expected, 0, inputCount);
+      }
+      else
+      {
+         System.arraycopy(this.expected[image], 0, expected, 0, this.expected[image].length);
+      }
+   } // public void produce(int index, double[] inputs, double[] expected)
+
+   /**
+    * Scales a color by the brightness factor and adds noise to it
+    *
+    * @param color the color, from 0 to 255
+    * @param scale the brightness factor
+    * @return the new color, from 0 to 255
+    */
+   private int jitter(int color, double scale)
+   {
+      double value = color * scale;
+      if (noise > 0.0)
+      {
+         value += noise * nextGaussian();
+      }
+      return clamp((int) Math.round(value), 255);
+   }
+
+   /**
+    * Limits a number to the range 0 to max
+    *
+    * @param value the number
+    * @param max   the largest number allowed
+    * @return the limited number
+    */
+   private static int clamp(int value, int max)
+   {
+      return value < 0 ? 0 : (value > max ? max : value);
+   }
+
+   /**
+    * Steps the random number generator, a SplitMix64 generator kept in one long so that it can be reseeded for every case
+    * without allocating
+    *
+    * @return 64 random bits
+    */
+   private long nextLong()
+   {
+      state += GOLDEN_GAMMA;
+      return mix64(state);
+   }
+
+   /**
+    * Scrambles 64 bits with the SplitMix64 finalizer, so that inputs that differ in one bit give unrelated outputs
+    *
+    * @param z the bits to scramble
+    * @return the scrambled bits
+    */
+   private static long mix64(long z)
+   {
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      return z ^ (z >>> 31);
+   }
+
+   /**
+    * @return a random double from 0 up to but not including 1
+    */
+   private double nextDouble()
+   {
+      return (nextLong() >>> 11) * 0x1.0p-53;
+   }
+
+   /**
+    * @param bound the number of possible values
+    * @return a random int from 0 up to but not including bound
+    */
+   private int nextInt(int bound)
+   {
+      return (int) (nextDouble() * bound);
+   }
+
+   /**
+    * Draws from the standard normal distribution with the Box-Muller transform, which gives two values at a time
+    *
+    * @return a random double with mean 0 and standard deviation 1
+    */
+   private double nextGaussian()
+   {
+      if (hasSpareGaussian)
+      {
+         hasSpareGaussian = false;
+         return spareGaussian;
+      }
+
+      double radius = Math.sqrt(-2.0 * Math.log(1.0 - nextDouble()));
+      double theta = 2.0 * Math.PI * nextDouble();
+      spareGaussian = radius * Math.sin(theta);
+      hasSpareGaussian = true;
+      return radius * Math.cos(theta);
+   } // private double nextGaussian()
+
+} // public class AugmentingProducer
@@ -0,0 +1,116 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Bitmap Producer
+ *
+ * A SampleProducer over a list of bitmaps. Every case is decoded straight into its inputs by BmpDecoder.decodeInputs with the
+ * producer's own decoder, so after the first few cases producing one allocates nothing but the channel that reads the file. The
+ * expected outputs are either given for every bitmap or, for an autoencoder, are the inputs themselves.
+ *
+ * Methods in this class
+ * int                      size
+ * int                      getInputCount
+ * int                      getOutputCount
+ * void                     produce
+ * PrefetchingSampleSource  prefetch
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class BitmapProducer implements SampleProducer
+{
+
+   File[] images;
+   double[][] expected;
+   BmpInputMode mode;
+   int inputCount;
+   BmpDecoder decoder;
+
+   /**
+    * Constructs a BitmapProducer
+    *
+    * @param images     the bitmaps, which must all have the same number of pels
+    * @param expected   the expected outputs of every bitmap, or null for an autoencoder
+    * @param mode       how the pels are turned into inputs
+    * @param inputCount the number of inputs of every bitmap
+    */
+   public BitmapProducer(File[] images, double[][] expected, BmpInputMode mode, int inputCount)
+   {
+      this.images = images;
+      this.expected = expected;
+      this.mode = mode;
+      this.inputCount = inputCount;
+      decoder = new BmpDecoder();
+   }
+
+   /**
+    * Builds a PrefetchingSampleSource over a list of bitmaps, with one BitmapProducer for every thread. The first bitmap is decoded
+    * once here to find the number of inputs.
+    *
+    * @param images   the bitmaps, which must all have the same number of pels
+    * @param expected the expected outputs of every bitmap, or null for an autoencoder
+    * @param mode     how the pels are turned into inputs
+    * @param threads  the number of decoding threads, or 0 for one less than the number of available processors
+    * @param ringSize the number of cases that can be decoded ahead of training
+    * @return the source
+    */
+   public static PrefetchingSampleSource prefetch(File[] images, double[][] expected, BmpInputMode mode, int threads, int ringSize)
+           throws IOException
+   {
+      if (images.length == 0)
+      {
+         throw new IOException("there are no bitmaps to read");
+      }
+      if (expected != null && expected.length != images.length)
+      {
+         throw new IOException(images.length + " bitmaps were given with " + expected.length + " expected outputs");
+      }
+      if (threads < 1)
+      {
+         threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+      }
+
+      int inputCount = new BmpDecoder().decodeInputs(images[0].getPath(), mode).length;
+      SampleProducer[] producers = new SampleProducer[threads];
+      for (int thread = 0; thread < threads; thread++)
+      {
+         producers[thread] = new BitmapProducer(images, expected, mode, inputCount);
+      }
+      return new PrefetchingSampleSource(producers, ringSize);
+   } // public static PrefetchingSampleSource prefetch(File[] images, double[][] expected, BmpInputMode mode, int threads, ...
+
+   public int size()
+   {
+      return images.length;
+   }
+
+   public int getInputCount()
+   {
+      return inputCount;
+   }
+
+   public int getOutputCount()
+   {
+      return expected == null ? inputCount : expected[0].length;
+   }
+
+   public void produce(int index, double[] inputs, double[] expected) throws IOException
+   {
+      int count = decoder.decodeInputs(images[index].getPath(), mode, inputs);
+      if (count != inputCount)
+      {
+         throw new IOException(images[index] + " has " + count + " inputs, expected " + inputCount);
+      }
+
+      if (this.expected == null)
+      {
+         System.arraycopy(inputs, 0, expected, 0, inputCount);
+      }
+      else
+      {
+         System.arraycopy(this.expected[index], 0, expected, 0, this.expected[index].length);
+      }
+   } // public void produce(int index, double[] inputs, double[] expected) throws IOException
+
+} // public class BitmapProducer
@@ -0,0 +1,439 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bmp Decoder
+ *
+ * This class decodes bitmap files into arrays of 32-bit pels in the layout DibDump.BMPtoArray has always returned, for every bit
+ * depth it supports (1, 2, 4, 8, 16, 24 and 32) and for both bottom-up and top-down images. Instead of reading the file one byte at
+ * a time through a DataInputStream and swapping every header field by hand, the whole file is read with one channel read into a
+ * little-endian ByteBuffer that the decoder keeps and reuses, the header fields are read from it directly, and every scan line is
+ * decoded in one pass over the backing array of the buffer.
+ *
+ * The color table is read from just after the info header and the pels from bfOffBits, so files with the larger V4 and V5 info
+ * headers decode correctly; the byte-at-a-time reader assumed a 40 byte info header and started those pels inside the header.
+ * Scan lines are padded to a multiple of 4 bytes at every bit depth, including 16. As in DibDump, 32-bit pels keep their
+ * fourth byte in the top 8 bits and bit field masks are not applied.
+ *
+ * Every file is read into a new BmpImage that carries its own header and pels, so images never share state. The decoder only keeps
+ * its read buffer and color table between calls, so one decoder must only be used by one thread at a time; BmpLoader gives every
+ * thread its own.
+ *
+ * decodeInputs goes straight from the bytes of a file to the normalized double or float inputs of a network in one pass, decoding
+ * each scan line into a reused row and converting it as selected by a BmpInputMode, instead of building an int[][] of pels and then
+ * masking, converting to gray and scaling it in separate passes. The inputs are the same values the separate passes give.
+ *
+ * Methods in this class
+ * int[][]  decode
+ * BmpImage read
+ * double[] decodeInputs
+ * int      decodeInputs
+ * int      rowBytes
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class BmpDecoder
+{
+
+   static final int FILE_HEADER_BYTES = 14;
+   static final double PACKED_SCALE = 1 << 24;
+   static final double CHANNEL_SCALE = 1 << 8;
+
+   int[] colorPallet = new int[256];
+   // the header and one scan line of the last file read by decodeInputs, reused so that it allocates no image
+   BmpImage header = new BmpImage();
+   int[] row = new int[0];
+   ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+   /**
+    * Reads a bitmap file and decodes its pels
+    *
+    * @param fileName the name of the bitmap file
+    * @return the pels, indexed [row][column] with row 0 at the top of the image
+    */
+   public int[][] decode(String fileName) throws IOException
+   {
+      return read(fileName).pels;
+   }
+
+   /**
+    * Reads a bitmap file into a new image that holds its own copy of the header and the decoded pels. biHeight is stored as a
+    * positive number and topDownDIB is set if it was negative in the file.
+    *
+    * @param fileName the name of the bitmap file
+    * @return the image
+    */
+   public BmpImage read(String fileName) throws IOException
+   {
+      BmpImage image = new BmpImage();
+      int rowBytes = readHeader(fileName, image);
+
+      image.pels = new int[image.biHeight][image.biWidth];
+      for (int row = 0; row < image.biHeight; row++)
+      {
+         int i = image.topDownDIB ? row : image.biHeight - 1 - row;
+         decodeRow(image.bfOffBits + row * rowBytes, image.biBitCount, image.biWidth, image.pels[i]);
+      }
+      return image;
+   } // public BmpImage read(String fileName) throws IOException
+
+   /**
+    * Reads a bitmap file into a new array of network inputs
+    *
+    * @param fileName the name of the bitmap file
+    * @param mode     how the pels are turned into inputs
+    * @return the inputs
+    */
+   public double[] decodeInputs(String fileName, BmpInputMode mode) throws IOException
+   {
+      int rowBytes = readHeader(fileName, header);
+      double[] inputs = new double[header.biWidth * header.biHeight * mode.getInputsPerPel()];
+      convertImage(fileName, rowBytes, mode, inputs, null);
+      return inputs;
+   }
+
+   /**
+    * Reads a bitmap file straight into a buffer of network inputs, one scan line at a time, without building an array of pels. Once
+    * the read buffer and the scan line buffer are large enough for the images being read, this allocates nothing but the channel
+    * used to read the file.
+    *
+    * @param fileName the name of the bitmap file
+    * @param mode     how the pels are turned into inputs
+    * @param inputs   the buffer that receives the inputs
+    * @return the number of inputs written, which is the number of pels times mode.getInputsPerPel()
+    */
+   public int decodeInputs(String fileName, BmpInputMode mode, double[] inputs) throws IOException
+   {
+      return decodeInputs(fileName, mode, inputs, null);
+   }
+
+   /**
+    * Reads a bitmap file straight into a buffer of float network inputs for FirstTryFloat, as decodeInputs does for doubles
+    *
+    * @param fileName the name of the bitmap file
+    * @param mode     how the pels are turned into inputs
+    * @param inputs   the buffer that receives the inputs
+    * @return the number of inputs written, which is the number of pels times mode.getInputsPerPel()
+    */
+   public int decodeInputs(String fileName, BmpInputMode mode, float[] inputs) throws IOException
+   {
+      return decodeInputs(fileName, mode, null, inputs);
+   }
+
+   /**
+    * Finds the length of one scan line, which is padded to a multiple of 4 bytes
+    *
+    * @param width    the width of the image in pels
+    * @param bitCount the number of bits per pel
+    * @return the number of bytes in one scan line, or 0 for an unsupported bit count
+    */
+   public static int rowBytes(int width, int bitCount)
+   {
+      switch (bitCount)
+      {
+         case 1:
+         case 2:
+         case 4:
+         case 8:
+         case 16:
+         case 24:
+         case 32:
+            return (int) (((long) width * bitCount + 31) / 32 * 4);
+         default:
+            return 0;
+      }
+   } // public static int rowBytes(int width, int bitCount)
+
+   /**
+    * Decodes the inputs of a bitmap into whichever of the two buffers is not null
+    *
+    * @param fileName the name of the bitmap file
+    * @param mode     how the pels are turned into inputs
+    * @param doubles  the buffer that receives double inputs, or null
+    * @param floats   the buffer that receives float inputs, or null
+    * @return the number of inputs written
+    */
+   private int decodeInputs(String fileName, BmpInputMode mode, double[] doubles, float[] floats) throws IOException
+   {
+      return convertImage(fileName, readHeader(fileName, header), mode, doubles, floats);
+   }
+
+   /**
+    * Converts the pels of the file in the buffer, whose header has been read into header, into whichever of the two buffers is not
+    * null
+    *
+    * @param fileName the name of the bitmap file, used in error messages
+    * @param rowBytes the number of bytes in one scan line
+    * @param mode     how the pels are turned into inputs
+    * @param doubles  the buffer that receives double inputs, or null
+    * @param floats   the buffer that receives float inputs, or null
+    * @return the number of inputs written
+    */
+   private int convertImage(String fileName, int rowBytes, BmpInputMode mode, double[] doubles, float[] floats) throws IOException
+   {
+      int width = header.biWidth;
+      int height = header.biHeight;
+      int planeSize = width * height;
+      int count = planeSize * mode.getInputsPerPel();
+      int length = doubles != null ? doubles.length : floats.length;
+      if (length < count)
+      {
+         throw new IOException(fileName + " has " + count + " inputs, more than the " + length + " the buffer holds");
+      }
+      if (row.length < width)
+      {
+         row = new int[width];
+      }
+
+      for (int line = 0; line < height; line++)
+      {
+         int i = header.topDownDIB ? line : height - 1 - line;
+         decodeRow(header.bfOffBits + line * rowBytes, header.biBitCount, width, row);
+         convertRow(row, mode, width, i * width, planeSize, doubles, floats);
+      }
+      return count;
+   } // private int convertImage(String fileName, int rowBytes, BmpInputMode mode, double[] doubles, float[] floats) ...
+
+   /**
+    * Turns a row of pels into inputs
+    *
+    * @param row       the pels
+    * @param mode      how the pels are turned into inputs
+    * @param width     the number of pels in the scan line
+    * @param start     the index of the first pel of the scan line in the image
+    * @param planeSize the number of pels in the image, which is the distance between color planes
+    * @param doubles   the buffer that receives double inputs, or null
+    * @param floats    the buffer that receives float inputs, or null
+    */
+   static void convertRow(int[] row, BmpInputMode mode, int width, int start, int planeSize, double[] doubles, float[] floats)
+   {
+      for (int j = 0; j < width; j++)
+      {
+         int pel = row[j];
+         int red = (pel >> 16) & 0xFF;
+         int green = (pel >> 8) & 0xFF;
+         int blue = pel & 0xFF;
+         int index = start + j;
+
+         switch (mode)
+         {
+            case PACKED_RGB:
+               put(index, (pel & 0x00FFFFFF) / PACKED_SCALE, doubles, floats);
+               break;
+            case GRAYSCALE: // the luminance of DibDump.colorToGrayscale in all three colors
+               int lum = (int) Math.round(0.3 * (double) red + 0.589 * (double) green + 0.11 * (double) blue) & 0xFF;
+               put(index, ((lum << 16) | (lum << 8) | lum) / PACKED_SCALE, doubles, floats);
+               break;
+            case CHANNEL_PLANES:
+               put(index, red / CHANNEL_SCALE, doubles, floats);
+               put(index + planeSize, green / CHANNEL_SCALE, doubles, floats);
+               put(index + 2 * planeSize, blue / CHANNEL_SCALE, doubles, floats);
+               break;
+            default:
+               break;
+         }
+      } // for (int j = 0; j < width; j++)
+   } // static void convertRow(int[] row, BmpInputMode mode, int width, int start, int planeSize, double[] doubles, ...
+
+   /**
+    * Stores one input in whichever of the two buffers is not null
+    *
+    * @param index   the index of the input
+    * @param value   the input
+    * @param doubles the buffer that receives double inputs, or null
+    * @param floats  the buffer that receives float inputs, or null
+    */
+   private static void put(int index, double value, double[] doubles, float[] floats)
+   {
+      if (doubles != null)
+      {
+         doubles[index] = value;
+      }
+      else
+      {
+         floats[index] = (float) value;
+      }
+   }
+
+   /**
+    * Reads a bitmap file into the buffer, fills in the header fields of an image and reads the color table. biHeight is stored as
+    * a positive number and topDownDIB is set if it was negative in the file.
+    *
+    * @param fileName the name of the bitmap file
+    * @param image    the image that receives the header fields
+    * @return the number of bytes in one scan line
+    */
+   private int readHeader(String fileName, BmpImage image) throws IOException
+   {
+      readFile(fileName);
+      ByteBuffer bytes = buffer;
+
+      //the file header; bfType is read big-endian since it holds the letters BM
+      if (bytes.limit() < FILE_HEADER_BYTES + 40)
+      {
+         throw new IOException(fileName + " is too short to be a bitmap");
+      }
+      image.bfType = ((bytes.get(0) & 0xFF) << 8) | (bytes.get(1) & 0xFF);
+      image.bfSize = bytes.getInt(2);
+      image.bfReserved1 = Short.toUnsignedInt(bytes.getShort(6));
+      image.bfReserved2 = Short.toUnsignedInt(bytes.getShort(8));
+      image.bfOffBits = bytes.getInt(10);
+
+      //the info header
+      image.biSize = bytes.getInt(14);
+      image.biWidth = bytes.getInt(18);
+      image.biHeight = bytes.getInt(22);
+      image.biPlanes = Short.toUnsignedInt(bytes.getShort(26));
+      image.biBitCount = Short.toUnsignedInt(bytes.getShort(28));
+      image.biCompression = bytes.getInt(30);
+      image.biSizeImage = bytes.getInt(34);
+      image.biXPelsPerMeter = bytes.getInt(38);
+      image.biYPelsPerMeter = bytes.getInt(42);
+      image.biClrUsed = bytes.getInt(46);
+      image.biClrImportant = bytes.getInt(50);
+
+      image.topDownDIB = image.biHeight < 0;
+      if (image.topDownDIB)
+      {
+         image.biHeight = -image.biHeight;
+      }
+      if (image.biWidth <= 0)
+      {
+         throw new IOException(fileName + " has an invalid width of " + image.biWidth);
+      }
+
+      //the color table, which only the indexed bit depths have
+      int numberOfColors = image.biBitCount <= 8 ? 1 << image.biBitCount : 0;
+      if (numberOfColors > 0 && image.biClrUsed > 0)
+      {
+         numberOfColors = Math.min(image.biClrUsed, numberOfColors);
+      }
+      int table = FILE_HEADER_BYTES + image.biSize;
+      if (table + 4L * numberOfColors > bytes.limit())
+      {
+         throw new IOException(fileName + " ends inside its color table");
+      }
+      for (int color = 0; color < numberOfColors; color++)
+      {
+         colorPallet[color] = bytes.getInt(table + 4 * color) & 0x00FFFFFF;
+      }
+
+      int rowBytes = rowBytes(image.biWidth, image.biBitCount);
+      if (rowBytes == 0)
+      {
+         throw new IOException(fileName + " has an unsupported color depth of " + image.biBitCount);
+      }
+      if ((long) image.bfOffBits + (long) rowBytes * image.biHeight > bytes.limit())
+      {
+         throw new IOException(fileName + " is " + bytes.limit() + " bytes long, too short for its " + image.biWidth + " x " +
+                 image.biHeight + " pels");
+      }
+      return rowBytes;
+   } // private int readHeader(String fileName, BmpImage image) throws IOException
+
+   /**
+    * Decodes the pels of one scan line
+    *
+    * @param start    the position of the scan line in the buffer
+    * @param bitCount the number of bits per pel
+    * @param width    the number of pels in the scan line
+    * @param pels     the row of the image that receives the pels
+    */
+   private void decodeRow(int start, int bitCount, int width, int[] pels)
+   {
+      byte[] data = buffer.array();
+
+      switch (bitCount)
+      {
+         case 1: // 8 pels per byte, the most significant bit on the left
+            for (int j = 0; j < width; j++)
+            {
+               pels[j] = colorPallet[(data[start + (j >> 3)] >> (7 - (j & 7))) & 0x01];
+            }
+            break;
+         case 2: // 4 pels per byte, the most significant half-nibble on the left
+            for (int j = 0; j < width; j++)
+            {
+               pels[j] = colorPallet[(data[start + (j >> 2)] >> ((3 - (j & 3)) * 2)) & 0x03];
+            }
+            break;
+         case 4: // 2 pels per byte, the high nibble on the left
+            for (int j = 0; j < width; j++)
+            {
+               pels[j] = colorPallet[(data[start + (j >> 1)] >> ((1 - (j & 1)) * 4)) & 0x0F];
+            }
+            break;
+         case 8:
+            for (int j = 0; j < width; j++)
+            {
+               pels[j] = colorPallet[data[start + j] & 0xFF];
+            }
+            break;
+         case 16: // 5 bits each of red, green and blue, each kept in its own byte of the pel
+            for (int j = 0; j < width; j++)
+            {
+               int word = (data[start + 2 * j] & 0xFF) | ((data[start + 2 * j + 1] & 0xFF) << 8);
+               pels[j] = (((word >> 10) & 0x1F) << 16) | (((word >> 5) & 0x1F) << 8) | (word & 0x1F);
+            }
+            break;
+         case 24:
+            for (int j = 0, index = start; j < width; j++, index += 3)
+            {
+               pels[j] = ((data[index + 2] & 0xFF) << 16) | ((data[index + 1] & 0xFF) << 8) | (data[index] & 0xFF);
+            }
+            break;
+         case 32: // blue, green, red and reserved, which is kept in the top byte
+            for (int j = 0, index = start; j < width; j++, index += 4)
+            {
+               pels[j] = ((data[index + 3] & 0xFF) << 24) | ((data[index + 2] & 0xFF) << 16) | ((data[index + 1] & 0xFF) << 8) |
+                       (data[index] & 0xFF);
+            }
+            break;
+         default:
+            break;
+      } // switch (bitCount)
+   } // private void decodeRow(int start, int bitCount, int width, int[] pels)
+
+   /**
+    * Reads a whole file into the buffer, growing the buffer if the file is larger than any read before
+    *
+    * @param fileName the name of the file
+    */
+   private void readFile(String fileName) throws IOException
+   {
+      FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+      try
+      {
+         long size = channel.size();
+         if (size > Integer.MAX_VALUE - 8)
+         {
+            throw new IOException(fileName + " is too large to be a bitmap");
+         }
+         if (buffer.capacity() < size)
+         {
+            buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+         }
+
+         buffer.clear();
+         buffer.limit((int) size);
+         while (buffer.hasRemaining())
+         {
+            if (channel.read(buffer) < 0)
+            {
+               throw new IOException(fileName + " ended unexpectedly at byte " + buffer.position());
+            }
+         }
+         buffer.flip();
+      } // try
+      finally
+      {
+         channel.close();
+      }
+   } // private void readFile(String fileName) throws IOException
+
+} // public class BmpDecoder
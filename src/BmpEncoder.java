@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bmp Encoder
+ *
+ * This class writes arrays of 32-bit pels, in the layout BmpDecoder and DibDump.BMPtoArray return, as uncompressed 24-bit or 32-bit
+ * bitmaps. Instead of writing every byte through a DataOutputStream on an unbuffered FileOutputStream, the header and the padded
+ * scan lines are built in a little-endian ByteBuffer that the encoder keeps and reuses, and the buffer is written through a
+ * FileChannel whenever the next scan line does not fit, so a small image takes a single write and a large one a few.
+ *
+ * The width and height are always given by the caller, and every header field is written from them, so the output never depends on
+ * the header of an earlier decode. The info header is always the 40 byte BITMAPINFOHEADER and the image is stored bottom-up.
+ *
+ * One encoder must only be used by one thread at a time.
+ *
+ * Methods in this class
+ * void write
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class BmpEncoder
+{
+
+   static final int FILE_HEADER_BYTES = 14;
+   static final int INFO_HEADER_BYTES = 40;
+   static final int BF_TYPE = 0x4D42;       // the letters BM, read little-endian
+
+   ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+   /**
+    * Writes an image as a 24-bit bitmap
+    *
+    * @param pels     the pels, indexed [row][column] with row 0 at the top of the image
+    * @param width    the number of columns to write
+    * @param height   the number of rows to write
+    * @param fileName the name of the bitmap file
+    */
+   public void write(int[][] pels, int width, int height, String fileName) throws IOException
+   {
+      write(pels, width, height, 24, fileName);
+   }
+
+   /**
+    * Writes a decoded image back out with its own dimensions, as a 32-bit bitmap if it was read from one and as a 24-bit bitmap
+    * otherwise
+    *
+    * @param image    the image
+    * @param fileName the name of the bitmap file
+    */
+   public void write(BmpImage image, String fileName) throws IOException
+   {
+      write(image.pels, image.biWidth, image.biHeight, image.biBitCount == 32 ? 32 : 24, fileName);
+   }
+
+   /**
+    * Writes an image as a 24-bit or 32-bit bitmap. A 32-bit bitmap keeps the top byte of every pel in its fourth byte, as
+    * BmpDecoder reads it.
+    *
+    * @param pels     the pels, indexed [row][column] with row 0 at the top of the image
+    * @param width    the number of columns to write
+    * @param height   the number of rows to write
+    * @param bitCount 24 or 32
+    * @param fileName the name of the bitmap file
+    */
+   public void write(int[][] pels, int width, int height, int bitCount, String fileName) throws IOException
+   {
+      if (bitCount != 24 && bitCount != 32)
+      {
+         throw new IOException(fileName + ": cannot write a color depth of " + bitCount);
+      }
+      if (width <= 0 || height <= 0 || pels.length < height)
+      {
+         throw new IOException(fileName + ": cannot write " + width + " x " + height + " pels from an array of " + pels.length + " rows");
+      }
+
+      int rowBytes = BmpDecoder.rowBytes(width, bitCount);
+      int offBits = FILE_HEADER_BYTES + INFO_HEADER_BYTES;
+      long sizeImage = (long) rowBytes * height;
+      if (sizeImage + offBits > Integer.MAX_VALUE)
+      {
+         throw new IOException(fileName + ": " + width + " x " + height + " pels are too many for one bitmap");
+      }
+      if (buffer.capacity() < Math.max(rowBytes, offBits))
+      {
+         buffer = ByteBuffer.allocate(Math.max(rowBytes, offBits)).order(ByteOrder.LITTLE_ENDIAN);
+      }
+
+      FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING);
+      try
+      {
+         buffer.clear();
+
+         //BITMAPFILEHEADER
+         buffer.putShort((short) BF_TYPE);
+         buffer.putInt((int) sizeImage + offBits);   // bfSize
+         buffer.putShort((short) 0);                 // bfReserved1
+         buffer.putShort((short) 0);                 // bfReserved2
+         buffer.putInt(offBits);
+
+         //BITMAPINFOHEADER
+         buffer.putInt(INFO_HEADER_BYTES);           // biSize
+         buffer.putInt(width);
+         buffer.putInt(height);                      // positive, so the rows are stored bottom-up
+         buffer.putShort((short) 1);                 // biPlanes
+         buffer.putShort((short) bitCount);
+         buffer.putInt(0);                           // biCompression, BI_RGB
+         buffer.putInt((int) sizeImage);
+         buffer.putInt(0);                           // biXPelsPerMeter
+         buffer.putInt(0);                           // biYPelsPerMeter
+         buffer.putInt(0);                           // biClrUsed, zero for true color
+         buffer.putInt(0);                           // biClrImportant
+
+         for (int i = height - 1; i >= 0; i--)
+         {
+            if (buffer.remaining() < rowBytes)
+            {
+               flush(channel);
+            }
+            encodeRow(pels[i], width, bitCount, buffer.position());
+            buffer.position(buffer.position() + rowBytes);
+         }
+         flush(channel);
+      } // try
+      finally
+      {
+         channel.close();
+      }
+   } // public void write(int[][] pels, int width, int height, int bitCount, String fileName) throws IOException
+
+   /**
+    * Encodes the pels of one scan line into the buffer, followed by the zero bytes that pad it to a multiple of 4 bytes
+    *
+    * @param pels     the row of the image
+    * @param width    the number of pels to encode
+    * @param bitCount 24 or 32
+    * @param start    the position of the scan line in the buffer
+    */
+   private void encodeRow(int[] pels, int width, int bitCount, int start)
+   {
+      byte[] data = buffer.array();
+      int index = start;
+
+      if (bitCount == 32)
+      {
+         for (int j = 0; j < width; j++, index += 4)
+         {
+            int pel = pels[j];
+            data[index] = (byte) pel;                 // blue
+            data[index + 1] = (byte) (pel >> 8);      // green
+            data[index + 2] = (byte) (pel >> 16);     // red
+            data[index + 3] = (byte) (pel >>> 24);    // reserved
+         }
+      }
+      else
+      {
+         for (int j = 0; j < width; j++, index += 3)
+         {
+            int pel = pels[j];
+            data[index] = (byte) pel;
+            data[index + 1] = (byte) (pel >> 8);
+            data[index + 2] = (byte) (pel >> 16);
+         }
+         for (int end = start + BmpDecoder.rowBytes(width, bitCount); index < end; index++)
+         {
+            data[index] = 0;                          // the "dead bytes" that pad the scan line
+         }
+      }
+   } // private void encodeRow(int[] pels, int width, int bitCount, int start)
+
+   /**
+    * Writes everything in the buffer to the file and empties the buffer
+    *
+    * @param channel the file
+    */
+   private void flush(FileChannel channel) throws IOException
+   {
+      buffer.flip();
+      while (buffer.hasRemaining())
+      {
+         channel.write(buffer);
+      }
+      buffer.clear();
+   }
+
+} // public class BmpEncoder
@@ -0,0 +1,130 @@
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Bmp Image
+ *
+ * One decoded bitmap: the fields of its BITMAPFILEHEADER and BITMAPINFOHEADER, named as in DibDump, and its pels. Unlike the static
+ * fields of DibDump, every image carries its own header, so any number of images can be decoded, held and written at once from any
+ * number of threads. biHeight is always positive; topDownDIB records whether the file stored its rows top to bottom.
+ *
+ * The console dumps DibDump prints while decoding are available through printHeader and printPels, and are only printed when asked.
+ *
+ * Methods in this class
+ * BmpImage read
+ * int      getWidth
+ * int      getHeight
+ * int[][]  getPels
+ * void     printHeader
+ * void     printPels
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class BmpImage
+{
+
+   // BITMAPFILEHEADER
+   int bfType;          // WORD
+   int bfSize;          // DWORD
+   int bfReserved1;     // WORD
+   int bfReserved2;     // WORD
+   int bfOffBits;       // DWORD
+   // BITMAPINFOHEADER
+   int biSize;          // DWORD
+   int biWidth;         // LONG
+   int biHeight;        // LONG
+   int biPlanes;        // WORD
+   int biBitCount;      // WORD
+   int biCompression;   // DWORD
+   int biSizeImage;     // DWORD
+   int biXPelsPerMeter; // LONG
+   int biYPelsPerMeter; // LONG
+   int biClrUsed;       // DWORD
+   int biClrImportant;  // DWORD
+   boolean topDownDIB;
+   // The true color pels, indexed [row][column] with row 0 at the top of the image
+   int[][] pels;
+
+   /**
+    * Reads and decodes one bitmap file with a decoder of its own
+    *
+    * @param fileName the name of the bitmap file
+    * @return the image
+    */
+   public static BmpImage read(String fileName) throws IOException
+   {
+      return new BmpDecoder().read(fileName);
+   }
+
+   /**
+    * @return the width of the image in pels
+    */
+   public int getWidth()
+   {
+      return biWidth;
+   }
+
+   /**
+    * @return the height of the image in pels
+    */
+   public int getHeight()
+   {
+      return biHeight;
+   }
+
+   /**
+    * @return the pels, indexed [row][column] with row 0 at the top of the image
+    */
+   public int[][] getPels()
+   {
+      return pels;
+   }
+
+   /**
+    * Prints the header fields in the format DibDump.BMPtoArray uses, including its warning for files that do not start with BM
+    *
+    * @param out the stream to print to
+    */
+   public void printHeader(PrintStream out)
+   {
+      out.printf("\nbfType=%4X bfSize=%d bfReserved1=%h bfReserved2=%h bfOffBits=%d\n\n", bfType, bfSize, bfReserved1, bfReserved2,
+              bfOffBits);
+
+      // the WORD value of 0x424D is reversed from the expected 0x4D42 (BM) because it is read big-endian
+      if (bfType != 0x424D)
+      {
+         out.printf("WARNING! This image is NOT a BMP file! Processing anyway... Who am I to argue.\n\n");
+      }
+
+      out.printf("biSize=%d\nbiWidth=%d\nbiHeight=%d\nbiPlanes=%d\nbiBitCount=%d\nbiCompression=%d\nbiSizeImage=%d\n" +
+              "biXPelsPerMeter=%d\nbiYPelsPerMeter=%d\nbiClrUsed=%d\nbiClrImportant=%d\n", biSize, biWidth,
+              topDownDIB ? -biHeight : biHeight, biPlanes, biBitCount, biCompression, biSizeImage, biXPelsPerMeter, biYPelsPerMeter,
+              biClrUsed, biClrImportant);
+      out.printf("\n");
+
+      int numberOfColors = biBitCount <= 8 ? 1 << biBitCount : 0;
+      out.printf("Color Depth = %d, %d\n", biBitCount, numberOfColors);
+   } // public void printHeader(PrintStream out)
+
+   /**
+    * Prints the pels in hex if the image is smaller than 33 x 33, as DibDump.BMPtoArray does
+    *
+    * @param out the stream to print to
+    */
+   public void printPels(PrintStream out)
+   {
+      if ((biWidth < 33) && (biHeight < 33))
+      {
+         for (int i = 0; i < biHeight; ++i)
+         {
+            for (int j = 0; j < biWidth; ++j)
+            {
+               out.printf("%08X ", pels[i][j]);
+            }
+            out.printf("\n");
+         }
+      }
+   } // public void printPels(PrintStream out)
+
+} // public class BmpImage
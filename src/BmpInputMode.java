@@ -0,0 +1,36 @@
+/**
+ * Bmp Input Mode
+ *
+ * The ways BmpDecoder.decodeInputs can turn the pels of a bitmap into network inputs. Every mode gives values from 0 up to but not
+ * including 1, with the pels taken row by row from the top of the image.
+ *
+ * PACKED_RGB      one input per pel, the 24 color bits of the pel divided by 2^24, as FingerMain and PackedDataset have always done
+ * GRAYSCALE       one input per pel, the luminance of DibDump.colorToGrayscale packed into all three colors and divided by 2^24, as
+ *                 DianeMain has always done
+ * CHANNEL_PLANES  three inputs per pel, a plane of all the red values followed by a plane of green and a plane of blue, each color
+ *                 divided by 2^8
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public enum BmpInputMode
+{
+   PACKED_RGB(1),
+   GRAYSCALE(1),
+   CHANNEL_PLANES(3);
+
+   private final int inputsPerPel;
+
+   BmpInputMode(int inputsPerPel)
+   {
+      this.inputsPerPel = inputsPerPel;
+   }
+
+   /**
+    * @return the number of inputs every pel is turned into
+    */
+   public int getInputsPerPel()
+   {
+      return inputsPerPel;
+   }
+}
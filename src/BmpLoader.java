@@ -0,0 +1,194 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bmp Loader
+ *
+ * This class decodes a folder of bitmaps across a pool of worker threads. The files are split into one contiguous slice per
+ * worker, and every worker decodes its slice with its own BmpDecoder into new BmpImage objects, so the workers share nothing but
+ * the array of results. The images are returned in the sorted order of their file names no matter which worker finished first.
+ *
+ * Nothing is printed while the workers run. If a dump stream is set, the header and small-image dumps that DibDump prints are
+ * printed for every image after all of them have been decoded, in file order.
+ *
+ * Methods in this class
+ * BmpImage[] load
+ * BmpImage[] loadDirectory
+ * File[]     listBitmaps
+ * void       setDumps
+ * void       shutdown
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class BmpLoader
+{
+
+   int workers;
+   ForkJoinPool pool;
+   BmpDecoder[] decoders;
+   PrintStream dumps;
+
+   /**
+    * Constructs a BmpLoader with a given number of workers, each of which gets its own BmpDecoder
+    *
+    * @param workers the number of worker threads, or 0 to use one per available processor
+    */
+   public BmpLoader(int workers)
+   {
+      if (workers < 1)
+      {
+         workers = Runtime.getRuntime().availableProcessors();
+      }
+
+      this.workers = workers;
+      pool = new ForkJoinPool(workers);
+
+      decoders = new BmpDecoder[workers];
+      for (int worker = 0; worker < workers; worker++)
+      {
+         decoders[worker] = new BmpDecoder();
+      }
+   } // public BmpLoader(int workers)
+
+   /**
+    * Sets the stream that receives the console dumps of the loaded images
+    *
+    * @param dumps the stream, or null to print nothing
+    */
+   public void setDumps(PrintStream dumps)
+   {
+      this.dumps = dumps;
+   }
+
+   /**
+    * Decodes every bitmap directly in a folder
+    *
+    * @param directory the folder
+    * @return the images, in the sorted order of their file names
+    */
+   public BmpImage[] loadDirectory(String directory) throws IOException
+   {
+      return load(listBitmaps(directory));
+   }
+
+   /**
+    * Decodes a list of bitmaps
+    *
+    * @param files the bitmaps
+    * @return the images, in the order of the files
+    */
+   public BmpImage[] load(File[] files) throws IOException
+   {
+      BmpImage[] images = new BmpImage[files.length];
+      try
+      {
+         pool.invoke(new LoadTask(files, images, 0, workers));
+      }
+      catch (UncheckedIOException e)
+      {
+         throw e.getCause();
+      }
+
+      if (dumps != null)
+      {
+         for (int image = 0; image < images.length; image++)
+         {
+            dumps.println(files[image].getPath());
+            images[image].printHeader(dumps);
+            images[image].printPels(dumps);
+         }
+      }
+      return images;
+   } // public BmpImage[] load(File[] files) throws IOException
+
+   /**
+    * Lists the bitmaps directly in a folder
+    *
+    * @param directory the folder
+    * @return the files whose names end in .bmp, sorted by name
+    */
+   public static File[] listBitmaps(String directory) throws IOException
+   {
+      File[] bitmaps = new File(directory).listFiles((file) -> file.isFile() && file.getName().toLowerCase().endsWith(".bmp"));
+      if (bitmaps == null)
+      {
+         throw new IOException(directory + " is not a folder");
+      }
+      Arrays.sort(bitmaps);
+      return bitmaps;
+   }
+
+   /**
+    * Stops the worker threads of this loader
+    */
+   public void shutdown()
+   {
+      pool.shutdown();
+   }
+
+   /**
+    * Decodes the slices of a range of workers. A range of one worker decodes that worker's slice of the files with the worker's
+    * decoder; a larger range is split in half and both halves run in parallel.
+    */
+   private class LoadTask extends RecursiveAction
+   {
+      private static final long serialVersionUID = 1L;
+
+      File[] files;
+      BmpImage[] images;
+      int firstWorker;
+      int lastWorker;
+
+      /**
+       * Constructs a LoadTask over a range of workers
+       *
+       * @param files       the bitmaps
+       * @param images      the array that receives the images
+       * @param firstWorker the first worker of the range
+       * @param lastWorker  one past the last worker of the range
+       */
+      LoadTask(File[] files, BmpImage[] images, int firstWorker, int lastWorker)
+      {
+         this.files = files;
+         this.images = images;
+         this.firstWorker = firstWorker;
+         this.lastWorker = lastWorker;
+      }
+
+      /**
+       * Runs or splits the range of workers
+       */
+      @Override
+      protected void compute()
+      {
+         if (lastWorker - firstWorker > 1)
+         {
+            int middle = (firstWorker + lastWorker) / 2;
+            invokeAll(new LoadTask(files, images, firstWorker, middle), new LoadTask(files, images, middle, lastWorker));
+            return;
+         }
+
+         int start = (int) ((long) files.length * firstWorker / workers);
+         int end = (int) ((long) files.length * lastWorker / workers);
+         try
+         {
+            for (int image = start; image < end; image++)
+            {
+               images[image] = decoders[firstWorker].read(files[image].getPath());
+            }
+         }
+         catch (IOException e)
+         {
+            throw new UncheckedIOException(e);
+         }
+      } // protected void compute()
+
+   } // private class LoadTask extends RecursiveAction
+
+} // public class BmpLoader
@@ -0,0 +1,364 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Checkpoint
+ *
+ * This class reads and writes the weights of a network in a versioned binary file. Every value is little-endian:
+ *
+ *    int      MAGIC, the bytes "NNCK"
+ *    int      VERSION
+ *    int      the number of layers
+ *    int[]    layerInfo, the number of nodes in every layer
+ *    (zero padding up to a multiple of 8 bytes)
+ *    double[] the flat weights of layer 0, then layer 1, and so on, in the destination-ordered layout of FirstTry
+ *    long     the CRC32 of every byte before it
+ *
+ * Because the header is padded to 8 bytes, every weight block starts on an 8 byte boundary and can be viewed in place once the file
+ * is mapped into memory.
+ *
+ * writeAtomically never leaves a partly written file under the checkpoint's name: it writes and syncs a temporary file next to it
+ * and then renames that over the old checkpoint, so a crash leaves either the old checkpoint or the new one.
+ *
+ * Methods in this class
+ * void   write
+ * void   writeAtomically
+ * void   read
+ * int[]  readTopology
+ * int    headerSize
+ * long   layerOffset
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class Checkpoint
+{
+
+   static final int MAGIC = 0x4B434E4E;
+   static final int VERSION = 1;
+   static final int CHUNK_BYTES = 1 << 16;
+
+   /**
+    * Writes the topology and weights of a network to a checkpoint file, replacing any file with the same name
+    *
+    * @param fileName  the name of the checkpoint file
+    * @param layerInfo the number of nodes in every layer
+    * @param weights   the flat weights of every layer
+    */
+   public static void write(String fileName, int[] layerInfo, double[][] weights) throws IOException
+   {
+      FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING);
+      try
+      {
+         write(channel, layerInfo, weights);
+      }
+      finally
+      {
+         channel.close();
+      }
+   } // public static void write(String fileName, int[] layerInfo, double[][] weights) throws IOException
+
+   /**
+    * Writes a checkpoint file so that it is replaced all at once. The checkpoint is written to fileName.tmp, forced to the disk, and
+    * then renamed to fileName in one atomic step. The directory is forced to the disk after the rename, so that the rename itself
+    * survives a power loss; on systems that cannot open a directory, such as Windows, the file system keeps the rename durable
+    * itself and this step is skipped.
+    *
+    * @param fileName  the name of the checkpoint file
+    * @param layerInfo the number of nodes in every layer
+    * @param weights   the flat weights of every layer
+    */
+   public static void writeAtomically(String fileName, int[] layerInfo, double[][] weights) throws IOException
+   {
+      Path target = Paths.get(fileName);
+      Path temporary = Paths.get(fileName + ".tmp");
+      FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING);
+      try
+      {
+         write(channel, layerInfo, weights);
+         channel.force(true);
+      }
+      finally
+      {
+         channel.close();
+      }
+      Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+      FileChannel directory;
+      try
+      {
+         directory = FileChannel.open(target.toAbsolutePath().getParent(), StandardOpenOption.READ);
+      }
+      catch (IOException e)
+      {
+         // the directory cannot be opened on this system
+         return;
+      }
+      try
+      {
+         directory.force(true);
+      }
+      finally
+      {
+         directory.close();
+      }
+   } // public static void writeAtomically(String fileName, int[] layerInfo, double[][] weights) throws IOException
+
+   /**
+    * Writes the topology, weights and checksum of a checkpoint to an open channel
+    *
+    * @param channel   the channel being written, positioned at the start of the file
+    * @param layerInfo the number of nodes in every layer
+    * @param weights   the flat weights of every layer
+    */
+   private static void write(FileChannel channel, int[] layerInfo, double[][] weights) throws IOException
+   {
+      ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      CRC32 crc = new CRC32();
+
+      buffer.putInt(MAGIC);
+      buffer.putInt(VERSION);
+      buffer.putInt(layerInfo.length);
+      for (int layer = 0; layer < layerInfo.length; layer++)
+      {
+         buffer.putInt(layerInfo[layer]);
+      }
+      while (buffer.position() < headerSize(layerInfo.length))
+      {
+         buffer.put((byte) 0);
+      }
+
+      for (int n = 0; n < weights.length; n++)
+      {
+         double[] layerWeights = weights[n];
+         for (int index = 0; index < layerWeights.length; index++)
+         {
+            if (buffer.remaining() < Double.BYTES)
+            {
+               flush(channel, buffer, crc);
+            }
+            buffer.putDouble(layerWeights[index]);
+         }
+      }
+      flush(channel, buffer, crc);
+
+      buffer.putLong(crc.getValue());
+      buffer.flip();
+      while (buffer.hasRemaining())
+      {
+         channel.write(buffer);
+      }
+   } // private static void write(FileChannel channel, int[] layerInfo, double[][] weights) throws IOException
+
+   /**
+    * Reads the weights stored in a checkpoint file into the given arrays. The topology in the file must match layerInfo and the
+    * checksum must match the contents, otherwise an IOException describing the problem is thrown.
+    *
+    * @param fileName  the name of the checkpoint file
+    * @param layerInfo the number of nodes in every layer of the network being loaded
+    * @param weights   the flat weights of every layer, which are overwritten
+    */
+   public static void read(String fileName, int[] layerInfo, double[][] weights) throws IOException
+   {
+      FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+      ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      CRC32 crc = new CRC32();
+
+      try
+      {
+         int[] fileLayerInfo = readTopology(channel, fileName);
+         if (!Arrays.equals(fileLayerInfo, layerInfo))
+         {
+            throw new IOException(fileName + " holds a " + Arrays.toString(fileLayerInfo) + " network, not " +
+                    Arrays.toString(layerInfo));
+         }
+
+         long weightsEnd = layerOffset(layerInfo, layerInfo.length - 1);
+         if (channel.size() != weightsEnd + Long.BYTES)
+         {
+            throw new IOException(fileName + " is " + channel.size() + " bytes long, expected " + (weightsEnd + Long.BYTES));
+         }
+
+         // the header and the weights are read in chunks that are multiples of 8 bytes, so no weight is split between chunks
+         long position = 0;
+         int n = 0;
+         int index = 0;
+         while (position < weightsEnd)
+         {
+            buffer.clear();
+            buffer.limit((int) Math.min(CHUNK_BYTES, weightsEnd - position));
+            readFully(channel, buffer, position, fileName);
+            crc.update(buffer.array(), 0, buffer.limit());
+
+            if (position == 0)
+            {
+               buffer.position(headerSize(layerInfo.length));
+            }
+            position += buffer.limit();
+
+            while (buffer.hasRemaining())
+            {
+               if (index == weights[n].length)
+               {
+                  n++;
+                  index = 0;
+               }
+               weights[n][index] = buffer.getDouble();
+               index++;
+            }
+         } // while (position < weightsEnd)
+
+         buffer.clear();
+         buffer.limit(Long.BYTES);
+         readFully(channel, buffer, weightsEnd, fileName);
+         long storedCrc = buffer.getLong();
+         if (storedCrc != crc.getValue())
+         {
+            throw new IOException(fileName + " is corrupt: checksum " + Long.toHexString(crc.getValue()) + " does not match stored " +
+                    Long.toHexString(storedCrc));
+         }
+      } // try
+      finally
+      {
+         channel.close();
+      }
+   } // public static void read(String fileName, int[] layerInfo, double[][] weights) throws IOException
+
+   /**
+    * Reads and checks the header of a checkpoint file and returns the topology it describes
+    *
+    * @param channel  an open channel on the checkpoint file
+    * @param fileName the name of the file, used in error messages
+    * @return the number of nodes in every layer
+    */
+   public static int[] readTopology(FileChannel channel, String fileName) throws IOException
+   {
+      ByteBuffer fixed = ByteBuffer.allocate(3 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      if (channel.size() < fixed.capacity())
+      {
+         throw new IOException(fileName + " is too short to be a checkpoint");
+      }
+      readFully(channel, fixed, 0, fileName);
+
+      if (fixed.getInt() != MAGIC)
+      {
+         throw new IOException(fileName + " is not a checkpoint file");
+      }
+      int version = fixed.getInt();
+      if (version != VERSION)
+      {
+         throw new IOException(fileName + " is checkpoint version " + version + ", expected " + VERSION);
+      }
+      int numLayers = fixed.getInt();
+      if (numLayers < 2 || numLayers > 1024)
+      {
+         throw new IOException(fileName + " has an invalid layer count of " + numLayers);
+      }
+
+      ByteBuffer layers = ByteBuffer.allocate(numLayers * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      readFully(channel, layers, fixed.capacity(), fileName);
+      int[] layerInfo = new int[numLayers];
+      for (int layer = 0; layer < numLayers; layer++)
+      {
+         layerInfo[layer] = layers.getInt();
+         if (layerInfo[layer] < 1)
+         {
+            throw new IOException(fileName + " has an invalid node count of " + layerInfo[layer] + " in layer " + layer);
+         }
+      }
+
+      // a corrupt header must not describe more weights than the file holds, or loading it would allocate them all first
+      long weightsLeft = (channel.size() - headerSize(numLayers) - Long.BYTES) / Double.BYTES;
+      for (int layer = 0; layer < numLayers - 1; layer++)
+      {
+         weightsLeft -= (long) layerInfo[layer] * layerInfo[layer + 1];
+         if (weightsLeft < 0)
+         {
+            throw new IOException(fileName + " is " + channel.size() + " bytes long, too short for a " + Arrays.toString(layerInfo) +
+                    " network");
+         }
+      }
+      return layerInfo;
+   } // public static int[] readTopology(FileChannel channel, String fileName) throws IOException
+
+   /**
+    * @param numLayers the number of layers in the network
+    * @return the size of the header in bytes, including the padding to a multiple of 8
+    */
+   public static int headerSize(int numLayers)
+   {
+      int size = (3 + numLayers) * Integer.BYTES;
+      return (size + 7) & ~7;
+   }
+
+   /**
+    * Finds where the weights of one layer start in a checkpoint file
+    *
+    * @param layerInfo the number of nodes in every layer
+    * @param n         the layer the weights leave from
+    * @return the byte offset of the first weight of layer n
+    */
+   public static long layerOffset(int[] layerInfo, int n)
+   {
+      long offset = headerSize(layerInfo.length);
+      for (int layer = 0; layer < n; layer++)
+      {
+         offset += (long) layerInfo[layer] * layerInfo[layer + 1] * Double.BYTES;
+      }
+      return offset;
+   }
+
+   /**
+    * Writes the filled part of the buffer to the channel, adds it to the checksum, and empties the buffer
+    *
+    * @param channel the channel being written
+    * @param buffer  the buffer holding the bytes
+    * @param crc     the running checksum
+    */
+   private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException
+   {
+      buffer.flip();
+      crc.update(buffer.array(), 0, buffer.limit());
+      while (buffer.hasRemaining())
+      {
+         channel.write(buffer);
+      }
+      buffer.clear();
+   }
+
+   /**
+    * Fills the buffer from its position to its limit with the bytes of the channel starting at a given file position, then flips
+    * the buffer so that the bytes can be read
+    *
+    * @param channel  the channel being read
+    * @param buffer   the buffer to fill
+    * @param position the position in the file of the first byte
+    * @param fileName the name of the file, used in error messages
+    */
+   private static void readFully(FileChannel channel, ByteBuffer buffer, long position, String fileName) throws IOException
+   {
+      long next = position;
+      while (buffer.hasRemaining())
+      {
+         int count = channel.read(buffer, next);
+         if (count < 0)
+         {
+            throw new IOException(fileName + " ended unexpectedly at byte " + next);
+         }
+         next += count;
+      }
+      buffer.flip();
+   }
+
+} // public class Checkpoint
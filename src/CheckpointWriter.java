@@ -0,0 +1,198 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Checkpoint Writer
+ *
+ * Saves the weights of a network to a checkpoint file while it trains, so that a crash late in a long run loses at most the last
+ * few minutes of it. Once set on a network with NeuralNetwork.setCheckpointWriter, checkTrain tells the writer about the end of every
+ * epoch, and every given number of epochs or seconds, and once more when training finishes, the writer takes a snapshot.
+ *
+ * Taking a snapshot only copies the weights into one of two buffers shaped like them, which costs the training thread about as
+ * much as reading the weights once. A background thread then writes the snapshot with Checkpoint.writeAtomically, which writes a
+ * temporary file, forces it to the disk and renames it over the checkpoint, so the file on disk is always a whole checkpoint. The
+ * training thread never waits for the disk: it copies into whichever buffer the background thread is not writing, and if the
+ * disk falls behind, a snapshot that has not been picked up yet is replaced by the newer one. The buffers hold double whatever the
+ * precision of the network, since that is what a checkpoint stores.
+ *
+ * A failed write does not stop training; the next snapshot tries again, and close only throws if the last write failed, since a
+ * later write that succeeds leaves a whole, newer checkpoint on disk.
+ *
+ * Methods in this class
+ * void   epochEnded
+ * void   snapshot
+ * void   close
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class CheckpointWriter
+{
+
+   NeuralNetwork network;
+   String fileName;
+   int everyEpochs;
+   double everySeconds;
+   double[][][] snapshots;
+   int pending = -1;            // the snapshot waiting to be written, or -1
+   int writing = -1;            // the snapshot being written, or -1
+   int epochsSinceSnapshot;
+   long lastSnapshot;
+   volatile long written;
+   volatile IOException failure;
+   boolean closed;
+   Thread thread;
+
+   /**
+    * Constructs a CheckpointWriter and starts its background thread
+    *
+    * @param network      the network whose weights are saved
+    * @param fileName     the name of the checkpoint file
+    * @param everyEpochs  the number of epochs between snapshots, or 0 to take them by time only
+    * @param everySeconds the number of seconds between snapshots, or 0 to take them by epochs only
+    */
+   public CheckpointWriter(NeuralNetwork network, String fileName, int everyEpochs, double everySeconds)
+   {
+      network.checkWritable();
+      this.network = network;
+      this.fileName = fileName;
+      this.everyEpochs = everyEpochs;
+      this.everySeconds = everySeconds;
+
+      snapshots = new double[2][network.numLayers - 1][];
+      for (int snapshot = 0; snapshot < snapshots.length; snapshot++)
+      {
+         for (int n = 0; n < network.numLayers - 1; n++)
+         {
+            snapshots[snapshot][n] = new double[network.layerInfo[n] * network.layerInfo[n + 1]];
+         }
+      }
+      lastSnapshot = System.nanoTime();
+
+      thread = new Thread(this::write, "checkpoint-" + fileName);
+      thread.setDaemon(true);
+      thread.start();
+   } // public CheckpointWriter(NeuralNetwork network, String fileName, int everyEpochs, double everySeconds)
+
+   /**
+    * Counts an epoch and takes a snapshot if one is due
+    *
+    * @param finished true if training has finished, which always takes a snapshot
+    */
+   public void epochEnded(boolean finished)
+   {
+      epochsSinceSnapshot++;
+      long now = System.nanoTime();
+      boolean epochsDue = everyEpochs > 0 && epochsSinceSnapshot >= everyEpochs;
+      boolean timeDue = everySeconds > 0.0 && now - lastSnapshot >= everySeconds * 1e9;
+
+      if (finished || epochsDue || timeDue)
+      {
+         snapshot();
+         epochsSinceSnapshot = 0;
+         lastSnapshot = now;
+      }
+   } // public void epochEnded(boolean finished)
+
+   /**
+    * Copies the weights of the network into the buffer the background thread is not writing and hands it to the thread
+    */
+   public void snapshot()
+   {
+      int target;
+      synchronized (this)
+      {
+         // a snapshot that is still waiting is replaced, so it must not be picked up while it is being copied over
+         target = writing == 0 ? 1 : 0;
+         if (pending == target)
+         {
+            pending = -1;
+         }
+      }
+
+      for (int n = 0; n < network.numLayers - 1; n++)
+      {
+         network.copyWeights(n, snapshots[target][n]);
+      }
+
+      synchronized (this)
+      {
+         pending = target;
+         notifyAll();
+      }
+   } // public void snapshot()
+
+   /**
+    * Waits for the last snapshot to be written and stops the background thread
+    */
+   public void close() throws IOException
+   {
+      synchronized (this)
+      {
+         closed = true;
+         notifyAll();
+      }
+      try
+      {
+         thread.join();
+      }
+      catch (InterruptedException e)
+      {
+         throw new InterruptedIOException("interrupted while writing the last checkpoint to " + fileName);
+      }
+
+      if (failure != null)
+      {
+         throw new IOException(fileName + " could not be checkpointed: " + failure.getMessage(), failure);
+      }
+   } // public void close() throws IOException
+
+   /**
+    * Runs the background thread, which writes every snapshot handed to it until the writer is closed and nothing is left to write
+    */
+   private void write()
+   {
+      try
+      {
+         while (true)
+         {
+            int snapshot;
+            synchronized (this)
+            {
+               while (pending == -1 && !closed)
+               {
+                  wait();
+               }
+               if (pending == -1)
+               {
+                  return;
+               }
+               snapshot = pending;
+               pending = -1;
+               writing = snapshot;
+            } // synchronized (this)
+
+            try
+            {
+               Checkpoint.writeAtomically(fileName, network.layerInfo, snapshots[snapshot]);
+               written++;
+               failure = null;
+            }
+            catch (IOException e)
+            {
+               failure = e;
+            }
+
+            synchronized (this)
+            {
+               writing = -1;
+            }
+         } // while (true)
+      } // try
+      catch (InterruptedException e)
+      {
+         // stopped
+      }
+   } // private void write()
+
+} // public class CheckpointWriter
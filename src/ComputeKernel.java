@@ -0,0 +1,101 @@
+/**
+ * Compute Kernel
+ *
+ * The inner loops of the network, written once so that they can be swapped for faster implementations. FirstTry reduces every hot
+ * loop of the forward pass, backpropagation and the weight updates to one of two operations on contiguous runs of its flat arrays:
+ *
+ *    dot   a running sum plus the dot product of two runs
+ *    axpy  one run plus a multiple of another (y += alpha * x)
+ *
+ * Both come in double for FirstTry and in float for FirstTryFloat. The float dot product multiplies and adds in double, so a long
+ * run of float values loses no more to rounding than the double dot product does; only reading the values costs half as much.
+ *
+ * ACTIVE is chosen once when the class loads. If the VectorKernel class and the jdk.incubator.vector module are both available (the
+ * JVM was started with --add-modules jdk.incubator.vector and VectorKernel, from the vector source folder, is on the class path),
+ * the SIMD kernel is used; otherwise, or if the system property nn.kernel is set to scalar, the plain ScalarKernel is used.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public abstract class ComputeKernel
+{
+
+   static final ComputeKernel ACTIVE = select();
+
+   /**
+    * Adds the dot product of two runs of values onto a running sum
+    *
+    * @param a       the first array
+    * @param aOffset the index of the first value of the run in a
+    * @param b       the second array
+    * @param bOffset the index of the first value of the run in b
+    * @param length  the number of values in each run
+    * @param sum     the running sum
+    * @return the running sum plus the dot product
+    */
+   public abstract double dot(double[] a, int aOffset, double[] b, int bOffset, int length, double sum);
+
+   /**
+    * Adds a multiple of one run of values onto another run, in place
+    *
+    * @param alpha   the multiple of x that is added
+    * @param x       the array being added
+    * @param xOffset the index of the first value of the run in x
+    * @param y       the array being changed
+    * @param yOffset the index of the first value of the run in y
+    * @param length  the number of values in each run
+    */
+   public abstract void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length);
+
+   /**
+    * Adds the dot product of two runs of float values onto a running sum, with every product and sum taken in double
+    *
+    * @param a       the first array
+    * @param aOffset the index of the first value of the run in a
+    * @param b       the second array
+    * @param bOffset the index of the first value of the run in b
+    * @param length  the number of values in each run
+    * @param sum     the running sum
+    * @return the running sum plus the dot product
+    */
+   public abstract double dot(float[] a, int aOffset, float[] b, int bOffset, int length, double sum);
+
+   /**
+    * Adds a multiple of one run of float values onto another run, in place
+    *
+    * @param alpha   the multiple of x that is added
+    * @param x       the array being added
+    * @param xOffset the index of the first value of the run in x
+    * @param y       the array being changed
+    * @param yOffset the index of the first value of the run in y
+    * @param length  the number of values in each run
+    */
+   public abstract void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length);
+
+   /**
+    * @return a short name for the kernel, such as scalar or the vector shape it uses
+    */
+   public abstract String name();
+
+   /**
+    * Picks the fastest kernel that can run in this JVM
+    *
+    * @return the kernel every network will use
+    */
+   private static ComputeKernel select()
+   {
+      if (!"scalar".equals(System.getProperty("nn.kernel")))
+      {
+         try
+         {
+            return (ComputeKernel) Class.forName("VectorKernel").getDeclaredConstructor().newInstance();
+         }
+         catch (Throwable e)
+         {
+            // the vector module or the vector kernel is missing, so fall back to the scalar loops
+         }
+      }
+      return new ScalarKernel();
+   } // private static ComputeKernel select()
+
+} // public abstract class ComputeKernel
@@ -1,12 +1,14 @@
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.Scanner;
+import javax.management.JMException;
 
 public class DianeMain
 {
 
    private static String networkInfoFileDD = "networkInfo.txt";
    private static String testCasesFileDD = "testCases.txt";
+   private static String checkpointFileDD = "dianeWeights.bin";
+   private static double checkpointSecondsDD = 300.0;
 
    /**
     * This method creates the FirstTry network, stores the weights matrix, and runs the four test cases for the neural network. It
@@ -14,7 +16,7 @@ public class DianeMain
     *
     * @param args command line arguments
     */
-   public static void main(String[] args) throws IOException
+   public static void main(String[] args) throws IOException, JMException
    {
       if (args.length == 1)
       {
@@ -25,181 +27,211 @@ public class DianeMain
          networkInfoFileDD = args[0];
          testCasesFileDD = args[1];
       }
-
-      DibDump dibdumper = new DibDump();
-      int[][] activationBMP = dibdumper.BMPtoArray("test1.bmp");
-      int length = activationBMP.length * activationBMP[0].length;
-      double[] activationInput = new double[length];
-      int count = 0;
-      for (int i = 0; i < activationBMP.length; i++)
+      else if (args.length == 3)
       {
-         for (int j = 0; j < activationBMP[i].length; j++)
-         {
-            activationBMP[i][j] = dibdumper.colorToGrayscale(activationBMP[i][j]);
-            activationBMP[i][j] &= 0x00ffffff;
-            activationInput[count] = activationBMP[i][j];
-            double scalingfactor = 1 << 24;
-            activationInput[count] /= scalingfactor;
-            count++;
-         }
+         networkInfoFileDD = args[0];
+         testCasesFileDD = args[1];
+         checkpointFileDD = args[2];
       }
 
+      DibDump dibdumper = new DibDump();
+
+      // decodes the image straight into grayscale inputs scaled by 2^24
+      BmpDecoder decoder = new BmpDecoder();
+      double[] activationInput = decoder.decodeInputs("test1.bmp", BmpInputMode.GRAYSCALE);
+      int length = activationInput.length;
+
       System.out.println("Do you want to train the network [y/n]");
       Scanner readTrain = new Scanner(System.in);
       String trainOrNo = readTrain.nextLine();
 
       // read basic neural network values: number of input nodes, hidden layer array, and number of output nodes
       String fileName = networkInfoFileDD;
-      Scanner sc = new Scanner(new FileReader(fileName));
-      int inputNodes = sc.nextInt();
-      int hiddenLayerLength = sc.nextInt();
-      sc.nextLine();
-      String[] hiddenLayerArray = sc.nextLine().split(",");
-      int[] hiddenLayerInformation = new int[hiddenLayerLength];
-      for (int i = 0; i < hiddenLayerLength; i++)
-      {
-         hiddenLayerInformation[i] = Integer.parseInt(hiddenLayerArray[i]);
-      }
-      int outputNodes = sc.nextInt();
-
-      FirstTry network = new FirstTry(length, hiddenLayerInformation, length);
-
-      // read basic values necessary for training
-      double minRandom = sc.nextDouble();
-      double maxRandom = sc.nextDouble();
-      double learningRate = sc.nextDouble();
-      int epochs = sc.nextInt();
-      double errorThreshold = sc.nextDouble();
-      int pixels = sc.nextInt();
-      sc.nextLine();
-
-      // prints out basic information relevant to testing and training
-      System.out.println();
-      System.out.println("Basic Information");
-      System.out.println("Number of layers: " + network.numLayers);
-      System.out.println("Number of activations for each layer:");
-      for (int activation = 0; activation < network.numLayers; activation++)
+      NumberParser sc = new NumberParser(fileName);
+      try
       {
-         System.out.println("Layer " + (activation + 1) + ": " + network.layerInfo[activation] + " activations");
-      }
+         int inputNodes = sc.nextInt();
+         int hiddenLayerLength = sc.nextInt();
+         sc.skipLine();
+         int[] hiddenLayerInformation = new int[hiddenLayerLength];
+         for (int i = 0; i < hiddenLayerLength; i++)
+         {
+            hiddenLayerInformation[i] = sc.nextInt();
+         }
+         sc.skipLine();
+         int outputNodes = sc.nextInt();
+
+         // read basic values necessary for training
+         double minRandom = sc.nextDouble();
+         double maxRandom = sc.nextDouble();
+         double learningRate = sc.nextDouble();
+         int epochs = sc.nextInt();
+         double errorThreshold = sc.nextDouble();
+         int pixels = sc.nextInt();
+         // the word float may follow the last training value on its line for a single precision network, and an optimizer may follow
+         // that, such as "50 float" or "50 adam"; a double precision network with plain gradient descent is used without them
+         NeuralNetwork network = NeuralNetwork.read(sc, length, hiddenLayerInformation, length);
+         sc.skipLine();
+
+         // prints out basic information relevant to testing and training
+         System.out.println();
+         System.out.println("Basic Information");
+         System.out.println("Number of layers: " + network.numLayers);
+         System.out.println("Number of activations for each layer:");
+         for (int activation = 0; activation < network.numLayers; activation++)
+         {
+            System.out.println("Layer " + (activation + 1) + ": " + network.layerInfo[activation] + " activations");
+         }
 
-      if (trainOrNo.equals("y"))
-      {
-         // prints out basic information
-         System.out.println("Error threshold: " + errorThreshold);
-         System.out.println("Max iterations allowed: " + epochs + " iterations");
-         System.out.println("Learning factor: " + learningRate);
-         System.out.println("Minimum weight: " + minRandom);
-         System.out.println("Maximum weight: " + maxRandom);
-
-         // Randomizing weights
-         for (int n = 0; n < network.numLayers - 1; n++)
+         if (trainOrNo.equals("y"))
          {
-            for (int j = 0; j < network.layerInfo[n]; j++)
+            // prints out basic information
+            System.out.println("Error threshold: " + errorThreshold);
+            System.out.println("Max iterations allowed: " + epochs + " iterations");
+            System.out.println("Learning factor: " + learningRate);
+            System.out.println("Optimizer: " + network.optimizer.name());
+            System.out.println("Minimum weight: " + minRandom);
+            System.out.println("Maximum weight: " + maxRandom);
+
+            // Randomizing weights
+            for (int n = 0; n < network.numLayers - 1; n++)
             {
-               for (int i = 0; i < network.layerInfo[n + 1]; i++)
+               for (int j = 0; j < network.layerInfo[n]; j++)
                {
-                  network.weights[n][j][i] = network.randomize(minRandom, maxRandom);
+                  for (int i = 0; i < network.layerInfo[n + 1]; i++)
+                  {
+                     network.setWeight(n, j, i, network.randomize(minRandom, maxRandom));
+                  }
                }
             }
-         }
-
 
-         double[][] testCasesDouble = new double[1][length];
-         testCasesDouble[0] = activationInput;
-         network.train(1, testCasesDouble, testCasesDouble,learningRate, epochs, errorThreshold);
 
-         for (int propagateCase = 0; propagateCase < 1; propagateCase++)
-         {
-            network.propagate(testCasesDouble[propagateCase]);
-
-            for (int node = 0; node < outputNodes; node++)
+            double[][] testCasesDouble = new double[1][length];
+            testCasesDouble[0] = activationInput;
+            // shows the progress of the run through JMX, such as in JConsole, while it trains
+            TrainingMonitor monitor = new TrainingMonitor();
+            monitor.register("DianeMain");
+            network.setMonitor(monitor);
+            // saves the weights every few minutes on a background thread, so a crash does not lose the whole run
+            CheckpointWriter checkpoints = new CheckpointWriter(network, checkpointFileDD, 0, checkpointSecondsDD);
+            network.setCheckpointWriter(checkpoints);
+            try
             {
-               System.out.print("Original: " + network.activations[network.numLayers - 1][node]);
-               System.out.print("  |  Expected: " + testCasesDouble[propagateCase][node]);
-               System.out.println();
+               network.train(1, testCasesDouble, testCasesDouble,learningRate, epochs, errorThreshold);
             }
-         } // for (int propogateCase = 0; propogateCase < numTestCases; propogateCase++)
+            finally
+            {
+               // writes or reports the last snapshot and removes the MBean even when training fails
+               try
+               {
+                  checkpoints.close();
+               }
+               finally
+               {
+                  monitor.unregister();
+               }
+            } // finally
 
-         double[] oneDimArray = network.activations[3];
-         int[][] finalArray = new int[pixels][pixels];
-         int counter = 0;
-         for (int i = 0; i < pixels; i++)
-         {
-            for (int j = 0; j < pixels; j++)
+            for (int propagateCase = 0; propagateCase < 1; propagateCase++)
             {
-               oneDimArray[counter] = oneDimArray[counter] * (1 << 24);
-               finalArray[i][j] = (int) oneDimArray[counter];
-               counter++;
+               network.propagate(testCasesDouble[propagateCase]);
+
+               for (int node = 0; node < outputNodes; node++)
+               {
+                  System.out.print("Original: " + network.getOutput(node));
+                  System.out.print("  |  Expected: " + testCasesDouble[propagateCase][node]);
+                  System.out.println();
+               }
+            } // for (int propogateCase = 0; propogateCase < numTestCases; propogateCase++)
+
+            int[][] finalArray = new int[pixels][pixels];
+            int counter = 0;
+            for (int i = 0; i < pixels; i++)
+            {
+               for (int j = 0; j < pixels; j++)
+               {
+                  finalArray[i][j] = (int) (network.getOutput(counter) * (1 << 24));
+                  counter++;
+               }
             }
-         }
 
-         dibdumper.arrayToBMP(finalArray, "whatever.bmp");
+            dibdumper.arrayToBMP(finalArray, pixels, pixels, "whatever.bmp");
 
-         // prints out end weights
-         network.printWeights();
+            // prints out end weights; the checkpoint writer has already saved them when training finished
+            network.printWeights();
 
-         // prints learning rate
-         System.out.println("Final learning rate: " + learningRate);
+            // prints learning rate
+            System.out.println("Final learning rate: " + learningRate);
 
-      } // if(trainOrNo.equals("y"))
+         } // if(trainOrNo.equals("y"))
 
-      if (trainOrNo.equals("n"))
-      {
-         for (int i = 0; i < network.numLayers - 1; i++)
+         if (trainOrNo.equals("n"))
          {
-            for (int j = 0; j < network.layerInfo[i]; j++)
+            // loads the binary checkpoint saved by a training run, or falls back to the weights listed in the network file when there
+            // is none or it was saved from a network of another shape
+            if (!network.loadCheckpointIfPresent(checkpointFileDD))
             {
-               String[] temp = sc.nextLine().split(",");
-               double[] tempWeights = new double[network.layerInfo[i + 1]];
-               for (int numberOfWeights = 0; numberOfWeights < network.layerInfo[i + 1]; numberOfWeights++)
+               double[] temp = new double[network.layerInfo[1]];
+               for (int i = 0; i < network.numLayers - 1; i++)
                {
-                  tempWeights[numberOfWeights] = Double.parseDouble(temp[numberOfWeights]);
-               }
-               network.weights[i][j] = tempWeights;
+                  if (temp.length < network.layerInfo[i + 1])
+                  {
+                     temp = new double[network.layerInfo[i + 1]];
+                  }
+                  for (int j = 0; j < network.layerInfo[i]; j++)
+                  {
+                     sc.readDoubles(temp, network.layerInfo[i + 1]);
+                     for (int numberOfWeights = 0; numberOfWeights < network.layerInfo[i + 1]; numberOfWeights++)
+                     {
+                        network.setWeight(i, j, numberOfWeights, temp[numberOfWeights]);
+                     }
+                  }
+               } // for (int i = 0; i < network.numLayers - 1; i++)
             }
-         } // for (int i = 0; i < network.numLayers - 1; i++)
-
-         // propagates the network
-         System.out.println();
-         System.out.println("Original test cases outputs: ");
 
-         double[][] testCasesDouble = new double[1][length];
-         testCasesDouble[0] = activationInput;
+            // propagates the network
+            System.out.println();
+            System.out.println("Original test cases outputs: ");
 
-         for (int propagateCase = 0; propagateCase < 1; propagateCase++)
-         {
-            network.propagate(testCasesDouble[propagateCase]);
+            double[][] testCasesDouble = new double[1][length];
+            testCasesDouble[0] = activationInput;
 
-            //prints the output of the test cases
-            for (int node = 0; node < outputNodes; node++)
+            for (int propagateCase = 0; propagateCase < 1; propagateCase++)
             {
-               System.out.print("Original: " + network.activations[network.numLayers - 1][node]);
-               System.out.print("  |  Expected: " + testCasesDouble[propagateCase][node]);
-               System.out.println();
-            }
-         } // for (int propogateCase = 0; propogateCase < numTestCases; propogateCase++)
+               network.propagate(testCasesDouble[propagateCase]);
 
-         double[] oneDimArray = network.activations[3];
-         int[][] finalArray = new int[101][101];
-         int counter = 0;
-         for (int i = 0; i < 101; i++)
-         {
-            for (int j = 0; j < 101; j++)
+               //prints the output of the test cases
+               for (int node = 0; node < outputNodes; node++)
+               {
+                  System.out.print("Original: " + network.getOutput(node));
+                  System.out.print("  |  Expected: " + testCasesDouble[propagateCase][node]);
+                  System.out.println();
+               }
+            } // for (int propogateCase = 0; propogateCase < numTestCases; propogateCase++)
+
+            int[][] finalArray = new int[101][101];
+            int counter = 0;
+            for (int i = 0; i < 101; i++)
             {
-               oneDimArray[counter] = oneDimArray[counter] * (1 << 24);
-               finalArray[i][j] = (int) oneDimArray[counter];
-               finalArray[i][j] = dibdumper.colorToGrayscale(finalArray[i][j]);
-               counter++;
+               for (int j = 0; j < 101; j++)
+               {
+                  finalArray[i][j] = (int) (network.getOutput(counter) * (1 << 24));
+                  finalArray[i][j] = dibdumper.colorToGrayscale(finalArray[i][j]);
+                  counter++;
+               }
             }
-         }
 
-         dibdumper.arrayToBMP(finalArray, "whatever.bmp");
+            dibdumper.arrayToBMP(finalArray, 101, 101, "whatever.bmp");
 
-         // prints out weights
-         System.out.println();
-         System.out.println("Weights:");
-         network.printWeights();
+            // prints out weights
+            System.out.println();
+            System.out.println("Weights:");
+            network.printWeights();
+         }
+      }
+      finally
+      {
+         sc.close();
       }
    }
 }
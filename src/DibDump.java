@@ -144,6 +144,13 @@ public class DibDump
 // identify it as such. Note that when the image is saved, it will be written out in the usual
 // inverted format with a positive bmpInfoHeader_biHeight value.
    static boolean topDownDIB = false;
+
+   // decodes the files read by BMPtoArray, keeping its read buffer from one call to the next
+   BmpDecoder decoder = new BmpDecoder();
+   // writes the files of arrayToBMP, keeping its write buffer from one call to the next
+   BmpEncoder encoder = new BmpEncoder();
+   // whether BMPtoArray prints the header and small images to the console; BmpImage.printHeader and printPels print them on demand
+   boolean printDumps = true;
    /*
     * Methods to go between little and big endian integer formats.
     */
@@ -227,27 +234,12 @@ public class DibDump
     */
    public int[][] BMPtoArray(String inFileName)
    {
-      int i, j, k;
-      int numberOfColors;
-      int pel;
-      int iByteVal, iColumn, iBytesPerRow, iPelsPerRow, iTrailingBits, iDeadBytes;
-// RBGQUAD
-      int rgbQuad_rgbBlue;
-      int rgbQuad_rgbGreen;
-      int rgbQuad_rgbRed;
-      int rgbQuad_rgbReserved;           // not used in this method
-// The color table
-      int[] colorPallet = new int[256];  // reserve space for the largest possible color table
-
-      DibDump dibdumper = new DibDump(); // needed to get to the byte swapping methods
-
       try // lots of things can go wrong when doing file i/o
       {
-         // Open the file that is the first command line parameter
-         FileInputStream fstream = new FileInputStream(inFileName);
-
-         // Convert our input stream to a DataInputStream
-         DataInputStream in = new DataInputStream(fstream);
+         // Read and decode the whole file at once. The decoder reads the file into a little endian buffer with one bulk read and
+         // decodes every scan line in one pass, so nothing below has to be read a byte at a time or swapped.
+         // The image carries its own copy of the header; it is copied into the static fields below.
+         BmpImage image = decoder.read(inFileName);
 
 /*
  *  Read in BITMAPFILEHEADER
@@ -271,26 +263,17 @@ bfReserved2
 bfOffBits
     Specifies the offset, in bytes, from the BITMAPFILEHEADER structure to the bitmap bits
 */
-
-// Read and Convert to big endian
-         bmpFileHeader_bfType      = in.readUnsignedShort();                         // WORD - un-swapped since it should be the letters BM
-         bmpFileHeader_bfSize      = dibdumper.swapInt(in.readInt());                // DWORD
-         bmpFileHeader_bfReserved1 = dibdumper.swapShort(in.readUnsignedShort());    // WORD
-         bmpFileHeader_bfReserved2 = dibdumper.swapShort(in.readUnsignedShort());    // WORD
-         bmpFileHeader_bfOffBits   = dibdumper.swapInt(in.readInt());                // DWORD
-
-         System.out.printf("\nbfType=%4X bfSize=%d bfReserved1=%h bfReserved2=%h bfOffBits=%d\n\n",
-                 bmpFileHeader_bfType,
-                 bmpFileHeader_bfSize,
-                 bmpFileHeader_bfReserved1,
-                 bmpFileHeader_bfReserved2,
-                 bmpFileHeader_bfOffBits);
-
+// Copy the file header out of the image
+         bmpFileHeader_bfType      = image.bfType;           // WORD - un-swapped since it should be the letters BM
+         bmpFileHeader_bfSize      = image.bfSize;           // DWORD
+         bmpFileHeader_bfReserved1 = image.bfReserved1;      // WORD
+         bmpFileHeader_bfReserved2 = image.bfReserved2;      // WORD
+         bmpFileHeader_bfOffBits   = image.bfOffBits;        // DWORD
 
          /*
-          ** The WORD value of 0x424D is reversed from the expected 0x4D42 (BM) because Java is big-endian and BMPs are defined as little-endian
+          ** The WORD value of 0x424D is reversed from the expected 0x4D42 (BM) because Java is big-endian and BMPs are defined as little-endian.
+          ** BmpImage.printHeader prints the warning for it along with the rest of the header.
           */
-         if (bmpFileHeader_bfType != 0x424D) System.out.printf("WARNING! This image is NOT a BMP file! Processing anyway... Who am I to argue.\n\n");
 
 /*
  Read in BITMAPINFOHEADER
@@ -387,43 +370,25 @@ An application should use the information stored in the biSize member to locate
 
 pColor = ((LPSTR)pBitmapInfo + (WORD)(pBitmapInfo->bmiHeader.biSize));
 */
-
-// Read and convert to big endian
-         bmpInfoHeader_biSize          = dibdumper.swapInt(in.readInt());              // DWORD
-         bmpInfoHeader_biWidth         = dibdumper.swapInt(in.readInt());              // LONG
-         bmpInfoHeader_biHeight        = dibdumper.swapInt(in.readInt());              // LONG
-         bmpInfoHeader_biPlanes        = dibdumper.swapShort(in.readUnsignedShort());  // WORD
-         bmpInfoHeader_biBitCount      = dibdumper.swapShort(in.readUnsignedShort());  // WORD
-         bmpInfoHeader_biCompression   = dibdumper.swapInt(in.readInt());              // DWORD
-         bmpInfoHeader_biSizeImage     = dibdumper.swapInt(in.readInt());              // DWORD
-         bmpInfoHeader_biXPelsPerMeter = dibdumper.swapInt(in.readInt());              // LONG
-         bmpInfoHeader_biYPelsPerMeter = dibdumper.swapInt(in.readInt());              // LONG
-         bmpInfoHeader_biClrUsed       = dibdumper.swapInt(in.readInt());              // DWORD
-         bmpInfoHeader_biClrImportant  = dibdumper.swapInt(in.readInt());              // DWORD
-
-         System.out.printf("biSize=%d\nbiWidth=%d\nbiHeight=%d\nbiPlanes=%d\nbiBitCount=%d\nbiCompression=%d\nbiSizeImage=%d\nbiXPelsPerMeter=%d\nbiYPelsPerMeter=%d\nbiClrUsed=%d\nbiClrImportant=%d\n",
-                 bmpInfoHeader_biSize,
-                 bmpInfoHeader_biWidth,
-                 bmpInfoHeader_biHeight,
-                 bmpInfoHeader_biPlanes,
-                 bmpInfoHeader_biBitCount,
-                 bmpInfoHeader_biCompression,
-                 bmpInfoHeader_biSizeImage,
-                 bmpInfoHeader_biXPelsPerMeter,
-                 bmpInfoHeader_biYPelsPerMeter,
-                 bmpInfoHeader_biClrUsed,
-                 bmpInfoHeader_biClrImportant);
-
-         System.out.printf("\n");
-
-// Since we use the height to crate arrays, it cannot have a negative a value. If the height field is
-// less than zero, then make it positive and set the topDownDIB flag to TRUE so we know that the image is
-// stored on disc upsidedown (which means it is actually rightside up).
-         if (bmpInfoHeader_biHeight < 0)
+// Copy the info header out of the image, which stores biHeight as a positive number and flags top down images
+         bmpInfoHeader_biSize          = image.biSize;             // DWORD
+         bmpInfoHeader_biWidth         = image.biWidth;            // LONG
+         bmpInfoHeader_biHeight        = image.biHeight;           // LONG
+         bmpInfoHeader_biPlanes        = image.biPlanes;           // WORD
+         bmpInfoHeader_biBitCount      = image.biBitCount;         // WORD
+         bmpInfoHeader_biCompression   = image.biCompression;      // DWORD
+         bmpInfoHeader_biSizeImage     = image.biSizeImage;        // DWORD
+         bmpInfoHeader_biXPelsPerMeter = image.biXPelsPerMeter;    // LONG
+         bmpInfoHeader_biYPelsPerMeter = image.biYPelsPerMeter;    // LONG
+         bmpInfoHeader_biClrUsed       = image.biClrUsed;          // DWORD
+         bmpInfoHeader_biClrImportant  = image.biClrImportant;     // DWORD
+         topDownDIB                    = image.topDownDIB;
+
+         if (printDumps)
          {
-            topDownDIB = true;
-            bmpInfoHeader_biHeight = -bmpInfoHeader_biHeight;
+            image.printHeader(System.out);
          }
+
 /*
 Now for the color table. For true color images, there isn't one.
 
@@ -436,400 +401,54 @@ typedef struct tagRGBQUAD {
 
 typedef RGBQUAD FAR* LPRGBQUAD;
 */
+         // The color table has already been applied by the decoder. printHeader reports the color depth and the number of colors
+         // in the default color table for it: 2, 4, 16 or 256, and 0 for true color images which have none.
+         imageArray = image.pels;
 
-         switch (bmpInfoHeader_biBitCount) // Determine the number of colors in the default color table
-         {
-            case 1:
-               numberOfColors = 2;
-               break;
-            case 2:
-               numberOfColors = 4;
-               break;
-            case 4:
-               numberOfColors = 16;
-               break;
-            case 8:
-               numberOfColors = 256;
-               break;
-            default:
-               numberOfColors = 0; // no color table
-         }
-
-         System.out.printf("Color Depth = %d, %d\n", bmpInfoHeader_biBitCount, numberOfColors);
          /*
-          * biClrUsed -  Specifies the number of color indexes in the color table that are actually used by the bitmap.
-          *     If this value is zero, the bitmap uses the maximum number of colors corresponding to the value of the biBitCount member for the compression mode specified by biCompression.
-          *     If biClrUsed is nonzero and the biBitCount member is less than 16, the biClrUsed member specifies the actual number of colors the graphics engine or device driver accesses.
-          *     If biBitCount is 16 or greater, the biClrUsed member specifies the size of the color table used to optimize performance of the system color palettes.
-          *     If biBitCount equals 16 or 32, the optimal color palette starts immediately following the three DWORD masks.
-          *     If the bitmap is a packed bitmap (a bitmap in which the bitmap array immediately follows the BITMAPINFO header and is referenced by a single pointer), the biClrUsed member must be either zero or the actual size of the color table.
+          * Console dump of image bytes in HEX if the image is smaller than 33 x 33
           */
-         if (bmpInfoHeader_biClrUsed > 0) numberOfColors = bmpInfoHeader_biClrUsed;
-
-         for (i = 0; i < numberOfColors; ++i) // Read in the color table (or not if numberOfColors is zero)
+         if (printDumps)
          {
-            rgbQuad_rgbBlue      = in.readUnsignedByte(); // lowest byte in the color
-            rgbQuad_rgbGreen     = in.readUnsignedByte();
-            rgbQuad_rgbRed       = in.readUnsignedByte(); // highest byte in the color
-            rgbQuad_rgbReserved  = in.readUnsignedByte();
-
-            // Build the color from the RGB values. Since we declared the rgbQuad values to be int, we can shift and then OR the values
-            // to build up the color. Since we are reading one byte at a time, there are no "endian" issues.
-
-            colorPallet[i] = (rgbQuad_rgbRed << 16) | (rgbQuad_rgbGreen << 8) | rgbQuad_rgbBlue;
-// System.out.printf("DEBUG: Color Table = %d, %06X\n", i, colorPallet[i]);
-         } // for (i = 0; i < numberOfColors; ++i)
-
-         /*
-          * Now for the fun part. We need to read in the rest of the bit map, but how we interpret the values depends on the color depth.
-          *
-          * numberOfColors = 2:   Each bit is a pel, so there are 8 pels per byte. The Color Table has only two values for "black" and "white"
-          * numberOfColors = 4:   Each pair of bits is a pel, so there are 4 pels per byte. The Color Table has only four values
-          * numberOfColors = 16;  Each nibble (4 bits) is a pel, so there are 2 pels per byte. The Color Table has 16 entries.
-          * numberOfColors = 256; Each byte is a pel and the value maps into the 256 byte Color Table.
-          *
-          * Any other value is read in as "true" color.
-          *
-          * The BMP image is stored from bottom to top, meaning that the first scan line is the last scan line in the image.
-          *
-          * The rest is the bitmap. Use the height and width information to read it in. And as I mentioned before....
-          * In the 32-bit format, each pixel in the image is represented by a series of four bytes of RGB stored as xBRG,
-          * where the 'x' is an unused byte. For ALL image types each scan line is padded to an even 4-byte boundary.
-          *
-          */
-
-         imageArray = new int[bmpInfoHeader_biHeight][bmpInfoHeader_biWidth]; // Create the array for the pels
-         /*
-          * I use the same loop structure for each case for clarity so you can see the similarities and differences.
-          * The outer loop is over the rows (in reverse), the inner loop over the columns.
-          */
-         switch (bmpInfoHeader_biBitCount)
-         {
-            case 1: // each bit is a color, so there are 8 pels per byte.  Works
-               /*
-                * Each byte read in is 8 columns, so we need to break them out. We also have to deal with the case
-                * where the image width is not an integer multiple of 8, in which case we will
-                * have bits from part of the remaining byte. Each color is 1 bit which is masked with 0x01.
-                * The screen ordering of the pels is High-Bit to Low-Bit, so the most significant element is first in the array of pels.
-                */
-               iBytesPerRow = bmpInfoHeader_biWidth / 8;
-               iTrailingBits = bmpInfoHeader_biWidth % 8;
-
-               iDeadBytes = iBytesPerRow;
-               if (iTrailingBits > 0) ++iDeadBytes;
-               iDeadBytes = (4 - iDeadBytes % 4) % 4;
-
-               for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-               {
-                  if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                  for (j = 0; j < iBytesPerRow; ++j)
-                  {
-                     iByteVal = in.readUnsignedByte();
-
-                     for (k = 0; k < 8; ++k)     // Get 8 pels from the one byte
-                     {
-                        iColumn = j * 8 + k;
-                        pel = colorPallet[(iByteVal >> (7 - k)) & 0x01];
-                        imageArray[i][iColumn] = pel;
-                     }
-                  }
-                  if (iTrailingBits > 0) // pick up the trailing bits for images that are not mod 8 columns wide
-                  {
-                     iByteVal = in.readUnsignedByte();
-
-                     for (k = 0; k < iTrailingBits; ++k)
-                     {
-                        iColumn = iBytesPerRow * 8 + k;
-                        pel = colorPallet[(iByteVal >> (7 - k)) & 0x01];
-                        imageArray[i][iColumn] = pel;
-                     }
-                  }
-
-                  for (j = 0; j < iDeadBytes; ++j) in.readUnsignedByte(); // Now read in the "dead bytes" to pad to a 4 byte boundary
-               }
-               break;
-            case 2: // 4 colors, Each byte is 4 pels (2 bits each),  Should work, not tested.
-               /*
-                * Each byte read in is 4 columns, so we need to break them out. We also have to deal with the case
-                * where the image width is not an integer multiple of 4, in which case we will
-                * have from 2 to 6 bits of the remaining byte. Each color is 2 bits which is masked with 0x03.
-                * The screen ordering of the pels is High-Half-Nibble to Low-Half-Nibble, so the most significant element is first in the array of pels.
-                */
-               iBytesPerRow = bmpInfoHeader_biWidth / 4;
-               iTrailingBits = bmpInfoHeader_biWidth % 4; // 0, 1, 2 or 3
-
-               iDeadBytes = iBytesPerRow;
-               if (iTrailingBits > 0) ++iDeadBytes;
-               iDeadBytes = (4 - iDeadBytes % 4) % 4;
-
-               for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-               {
-                  if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                  for (j = 0; j < iBytesPerRow; ++j)
-                  {
-                     iByteVal = in.readUnsignedByte();
-
-                     for (k = 0; k < 4; ++k) // Get 4 pels from one byte
-                     {
-                        iColumn = j * 4 + k;
-                        pel = colorPallet[(iByteVal >> ((3 - k) * 2)) & 0x03]; // shift 2 bits at a time and reverse order
-                        imageArray[i][iColumn] = pel;
-                     }
-                  }
-                  if (iTrailingBits > 0) // pick up the trailing nibble for images that are not mod 2 columns wide
-                  {
-                     iByteVal = in.readUnsignedByte();
-
-                     for (k = 0; k < iTrailingBits; ++k)
-                     {
-                        iColumn = iBytesPerRow * 4 + k;
-                        pel = colorPallet[(iByteVal >> ((3 - k) * 2)) & 0x03];
-                        imageArray[i][iColumn] = pel;
-                     }
-                  }
-                  for (j = 0; j < iDeadBytes; ++j) in.readUnsignedByte(); // Now read in the "dead bytes" to pad to a 4 byte boundary
-               }
-               break;
-            case 4: // 16 colors, Each byte is two pels. Works
-               /*
-                * Each byte read in is 2 columns, so we need to break them out. We also have to deal with the case
-                * where the image width is not an integer multiple of 2, in which case we will
-                * have one nibble from part of the remaining byte. We then read in the dead bytes so that each
-                * scan line is a multiple of 4 bytes. Each color is a nibble (4 bits) which is masked with 0x0F.
-                * The screen ordering of the pels is High-Nibble Low-Nibble, so the most significant element is first in the array of pels.
-                */
-               iPelsPerRow   = bmpInfoHeader_biWidth;
-               iBytesPerRow  = iPelsPerRow / 2;
-               iTrailingBits = iPelsPerRow % 2;  // Will either be 0 or 1
-
-               iDeadBytes = iBytesPerRow;
-               if (iTrailingBits > 0) ++iDeadBytes;
-               iDeadBytes = (4 - iDeadBytes % 4) % 4;
-
-               for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-               {
-                  if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                  for (j = 0; j < iBytesPerRow; ++j)
-                  {
-                     iByteVal = in.readUnsignedByte();
-
-                     for (k = 0; k < 2; ++k) // Two pels per byte
-                     {
-                        iColumn = j * 2 + k;          // 1 - k  is needed to have High, Low nibble ordering for the image.
-                        pel = colorPallet[(iByteVal >> ((1 - k) * 4)) & 0x0F]; // shift 4 bits at a time
-                        imageArray[i][iColumn] = pel;
-                     }
-                  }
-
-                  if (iTrailingBits > 0) // pick up the trailing nibble for images that are not mod 2 columns wide
-                  {
-                     iByteVal = in.readUnsignedByte();
-
-                     iColumn = iBytesPerRow * 2;
-                     pel = colorPallet[(iByteVal >> 4) & 0x0F]; // The High nibble is the last remaining pel
-                     imageArray[i][iColumn] = pel;
-                  }
-                  for (j = 0; j < iDeadBytes; ++j) in.readUnsignedByte(); // Now read in the "dead bytes" to pad to a 4 byte boundary
-               } // for (i = bmpInfoHeader_biHeight - 1; i >= 0; --i)
-               break;
-            case 8: // 1 byte, 1 pel, Works
-               /*
-                * Each byte read in is 1 column. We then read in the dead bytes so that each scan line is a multiple of 4 bytes.
-                */
-               iPelsPerRow = bmpInfoHeader_biWidth;
-               iDeadBytes = (4 - iPelsPerRow % 4) % 4;
-               for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-               {
-                  if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                  for (j = 0; j < iPelsPerRow; ++j)         // j is now just the column counter
-                  {
-                     iByteVal = in.readUnsignedByte();
-                     pel = colorPallet[iByteVal];
-                     imageArray[i][j] = pel;
-                  }
-
-                  for (j = 0; j < iDeadBytes; ++j) in.readUnsignedByte(); // Now read in the "dead bytes" to pad to a 4 byte boundary
-               }
-               break;
-            case 16: // Not likely to work (format is not internally consistent), not tested.
-               /*
-                * Each two bytes read in is 1 column. Each color is 5 bits in the 2 byte word value, so we shift 5 bits and then mask them
-                * off with 0x1F which is %11111 in binary. We then read in the dead bytes so that each scan line is a multiple of 4 bytes.
-                */
-               iPelsPerRow = bmpInfoHeader_biWidth;
-               iDeadBytes = (4 - iPelsPerRow % 4) % 4;
-               for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-               {
-                  if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                  for (j = 0; j < iPelsPerRow; ++j)         // j is now just the column counter
-                  {
-                     pel = dibdumper.swapShort(in.readUnsignedShort()); // Need to deal with little endian values
-                     rgbQuad_rgbBlue      =  pel        & 0x1F;
-                     rgbQuad_rgbGreen     = (pel >> 5)  & 0x1F;
-                     rgbQuad_rgbRed       = (pel >> 10) & 0x1F;
-                     pel = (rgbQuad_rgbRed << 16) | (rgbQuad_rgbGreen << 8) | rgbQuad_rgbBlue;
-                     imageArray[i][j] = pel;
-                  }
-
-                  for (j = 0; j < iDeadBytes; ++j) in.readUnsignedByte(); // Now read in the "dead bytes" to pad to a 4 byte boundary
-               } // for (i = bmpInfoHeader_biHeight - 1; i >= 0; --i)
-               break;
-            case 24: // Works
-               /*
-                * Each three bytes read in is 1 column. Each scan line is padded to by a multiple of 4 bytes. The disk image has only 3 however.
-                */
-               iPelsPerRow = bmpInfoHeader_biWidth;
-               iDeadBytes = (4 - (iPelsPerRow * 3) % 4) % 4;
-
-               for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-               {
-                  if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                  for (j = 0; j < iPelsPerRow; ++j)         // j is now just the column counter
-                  {
-                     rgbQuad_rgbBlue      = in.readUnsignedByte();
-                     rgbQuad_rgbGreen     = in.readUnsignedByte();
-                     rgbQuad_rgbRed       = in.readUnsignedByte();
-                     pel = (rgbQuad_rgbRed << 16) | (rgbQuad_rgbGreen << 8) | rgbQuad_rgbBlue;
-                     imageArray[i][j] = pel;
-                  }
-                  for (j = 0; j < iDeadBytes; ++j) in.readUnsignedByte(); // Now read in the "dead bytes" to pad to a 4 byte boundary
-               }
-               break;
-            case 32: // Works
-               /*
-                * Each four bytes read in is 1 column. The number of bytes per line will always be a multiple of 4, so there are no dead bytes.
-                */
-               iPelsPerRow = bmpInfoHeader_biWidth;
-               for (int row = 0; row < bmpInfoHeader_biHeight; ++row) // read over the rows
-               {
-                  if (topDownDIB) i = row; else i = bmpInfoHeader_biHeight - 1 - row;
-
-                  for (j = 0; j < iPelsPerRow; ++j)         // j is now just the column counter
-                  {
-                     rgbQuad_rgbBlue      = in.readUnsignedByte();
-                     rgbQuad_rgbGreen     = in.readUnsignedByte();
-                     rgbQuad_rgbRed       = in.readUnsignedByte();
-                     rgbQuad_rgbReserved  = in.readUnsignedByte();
-                     pel =  (rgbQuad_rgbReserved << 24) |(rgbQuad_rgbRed << 16) | (rgbQuad_rgbGreen << 8) | rgbQuad_rgbBlue;
-                     imageArray[i][j] = pel;
-                  }
-               }
-               break;
-            default: // Oops
-               System.out.printf("This error should not occur - 1!\n");
-
-         } // switch (bmpInfoHeader_biBitCount)
-
-         in.close();
-         fstream.close();
+            image.printPels(System.out);
+         }
       } // try
       catch (Exception e)
       {
          System.err.println("File input error" + e);
       }
-      /*
-       * Console dump of image bytes in HEX if the image is smaller than 33 x 33
-       */
-
-      if ((bmpInfoHeader_biWidth < 33) && (bmpInfoHeader_biHeight < 33))
-      {
-         iBytesPerRow = bmpInfoHeader_biWidth;
-         for (i = 0; i < bmpInfoHeader_biHeight; ++i) // read over the rows
-         {
-            for (j = 0; j < iBytesPerRow; ++j)         // j is now just the column counter
-            {
-               System.out.printf("%08X ", imageArray[i][j]);
-            }
-            System.out.printf("\n");
-         }
-      }
       return imageArray;
    } // public int[][] BMPtoArray
 
    /**
-    * Converts an array to a BMP
+    * Converts an array to a BMP with the dimensions of the array
     *
     * @param activations   the activations that represent the BMP
     * @param outFileName   the name of the output file
     */
    public void arrayToBMP(int[][] activations, String outFileName)
    {
-      DibDump dibdumper = new DibDump();
+      arrayToBMP(activations, activations[0].length, activations.length, outFileName);
+   }
 
+   /**
+    * Converts an array to a BMP
+    *
+    * @param activations   the activations that represent the BMP
+    * @param width         the width of the BMP in pels
+    * @param height        the height of the BMP in pels
+    * @param outFileName   the name of the output file
+    */
+   public void arrayToBMP(int[][] activations, int width, int height, String outFileName)
+   {
       /*
        * Now write out the true color bitmap (24-bits) to a disk file. This is here mostly to be sure we did it all correctly.
-       *
+       * The encoder builds the header and the padded scan lines from the given dimensions in its own buffer and writes them
+       * through a FileChannel, so nothing here depends on the header of the last file read.
        */
       try
       {
-         int iDeadBytes = (4 - (bmpInfoHeader_biWidth * 3) % 4) % 4;
-
-         bmpInfoHeader_biSizeImage =  (bmpInfoHeader_biWidth * 3 + iDeadBytes) * bmpInfoHeader_biHeight;
-         bmpFileHeader_bfOffBits = 54;        // 54 byte offset for 24 bit images (just open one with this app to get this value)
-         bmpFileHeader_bfSize = bmpInfoHeader_biSizeImage + bmpFileHeader_bfOffBits;
-         bmpInfoHeader_biBitCount = 24;       // 24 bit color image. Changes this number to 32 to write out 32 bit color images
-         bmpInfoHeader_biCompression = 0;     // BI_RGB (which is a value of zero)
-         bmpInfoHeader_biClrUsed = 0;         // Zero for true color
-         bmpInfoHeader_biClrImportant = 0;    // Zero for true color
-
-         FileOutputStream fstream = new FileOutputStream(outFileName);
-         DataOutputStream out = new DataOutputStream(fstream);
-
-// BITMAPFILEHEADER
-         out.writeShort(bmpFileHeader_bfType);                           // WORD - un-swapped since should be the letters BM
-         out.writeInt(dibdumper.swapInt(bmpFileHeader_bfSize));          // DWORD
-         out.writeShort(dibdumper.swapShort(bmpFileHeader_bfReserved1)); // WORD
-         out.writeShort(dibdumper.swapShort(bmpFileHeader_bfReserved2)); // WORD
-         out.writeInt(dibdumper.swapInt(bmpFileHeader_bfOffBits));       // DWORD
-
-// BITMAPINFOHEADER
-         out.writeInt(dibdumper.swapInt(bmpInfoHeader_biSize));          // DWORD
-         out.writeInt(dibdumper.swapInt(bmpInfoHeader_biWidth));         // LONG
-         out.writeInt(dibdumper.swapInt(bmpInfoHeader_biHeight));        // LONG
-         out.writeShort(dibdumper.swapShort(bmpInfoHeader_biPlanes));    // WORD
-         out.writeShort(dibdumper.swapShort(bmpInfoHeader_biBitCount));  // WORD
-         out.writeInt(dibdumper.swapInt(bmpInfoHeader_biCompression));   // DWORD
-         out.writeInt(dibdumper.swapInt(bmpInfoHeader_biSizeImage));     // DWORD
-         out.writeInt(dibdumper.swapInt(bmpInfoHeader_biXPelsPerMeter)); // LONG
-         out.writeInt(dibdumper.swapInt(bmpInfoHeader_biYPelsPerMeter)); // LONG
-         out.writeInt(dibdumper.swapInt(bmpInfoHeader_biClrUsed));       // DWORD
-         out.writeInt(dibdumper.swapInt(bmpInfoHeader_biClrImportant));  // DWORD
-
-// there is no color table for this true color image, so write out the pels
-
-         int rgbQuad_rgbReserved = 0;
-
-         for (int i = bmpInfoHeader_biHeight - 1; i >= 0; --i)    // write over the rows (in the usual inverted format)
-         {
-            for (int j = 0; j < bmpInfoHeader_biWidth; ++j) // and the columns
-            {
-               int pel = activations[i][j];
-               int rgbQuad_rgbBlue  = pel & 0x00FF;
-               int rgbQuad_rgbGreen = (pel >> 8)  & 0x00FF;
-               int rgbQuad_rgbRed   = (pel >> 16) & 0x00FF;
-               out.writeByte(rgbQuad_rgbBlue); // lowest byte in the color
-               out.writeByte(rgbQuad_rgbGreen);
-               out.writeByte(rgbQuad_rgbRed);  // highest byte in the color
-               if (bmpInfoHeader_biBitCount == 32) out.writeByte(rgbQuad_rgbReserved);
-            }
-
-            if (bmpInfoHeader_biBitCount != 32)
-            {
-               for (int j = 0; j < iDeadBytes; ++j)
-               {
-                  out.writeByte(0); // Now write out the "dead bytes" to pad to a 4 byte boundary
-               }
-            }
-         } // for (i = bmpInfoHeader_biHeight - 1; i >= 0; --i)
-
-         out.close();
-         fstream.close();
+         encoder.write(activations, width, height, outFileName);
       }
       catch (Exception e)
       {
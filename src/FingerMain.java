@@ -1,4 +1,4 @@
-import java.io.FileReader;
+import java.io.File;
 import java.io.IOException;
 import java.util.Scanner;
 
@@ -7,6 +7,10 @@ public class FingerMain
 
    private static String networkInfoFileDD = "networkInfo2.txt";
    private static String testCasesFileDD = "testCases.txt";
+   private static String checkpointFileDD = "fingerWeights.bin";
+   // the number of threads that train the network; 1 trains online on the main thread, more train every epoch as one batch split
+   // across a ParallelTrainer, and 0 uses one thread per processor
+   private static int workersDD = 1;
 
    /**
     * This method creates the FirstTry network, stores the weights matrix, and runs the four test cases for the neural network. It
@@ -25,48 +29,36 @@ public class FingerMain
          networkInfoFileDD = args[0];
          testCasesFileDD = args[1];
       }
+      else if (args.length == 3)
+      {
+         networkInfoFileDD = args[0];
+         testCasesFileDD = args[1];
+         checkpointFileDD = args[2];
+      }
+      else if (args.length == 4)
+      {
+         networkInfoFileDD = args[0];
+         testCasesFileDD = args[1];
+         checkpointFileDD = args[2];
+         workersDD = Integer.parseInt(args[3]);
+      }
 
-      DibDump dibdumper = new DibDump();
-      int[][] activationBMPOne = dibdumper.BMPtoArray("One.bmp");
-      int[][] activationBMPTwo = dibdumper.BMPtoArray("Two.bmp");
-      int[][] activationBMPThree = dibdumper.BMPtoArray("Three.bmp");
-      int[][] activationBMPFour = dibdumper.BMPtoArray("Four.bmp");
-      int[][] activationBMPFive = dibdumper.BMPtoArray("Five.bmp");
-      int length = activationBMPOne.length * activationBMPOne[0].length;
-      double[] activationInputOne = new double[length];
+      // the images in the order of their expected outputs; training decodes them as it reads them
+      File[] images = {new File("One.bmp"), new File("Two.bmp"), new File("Three.bmp"), new File("Four.bmp"), new File("Five.bmp")};
+
+      // decodes every image once more straight into inputs holding its 24 color bits scaled by 2^24, for the size of the input layer
+      // and for printing the outputs of the network
+      BmpDecoder decoder = new BmpDecoder();
+      double[] activationInputOne = decoder.decodeInputs(images[0].getPath(), BmpInputMode.PACKED_RGB);
+      int length = activationInputOne.length;
       double[] activationInputTwo = new double[length];
       double[] activationInputThree = new double[length];
       double[] activationInputFour = new double[length];
       double[] activationInputFive = new double[length];
-      int count = 0;
-      for (int i = 0; i < activationBMPOne.length; i++)
-      {
-         for (int j = 0; j < activationBMPOne[i].length; j++)
-         {
-            activationBMPOne[i][j] &= 0x00ffffff;
-            activationInputOne[count] = activationBMPOne[i][j];
-            double scalingfactor = 1 << 24;
-            activationInputOne[count] /= scalingfactor;
-
-            activationBMPTwo[i][j] &= 0x00ffffff;
-            activationInputTwo[count] = activationBMPTwo[i][j];
-            activationInputTwo[count] /= scalingfactor;
-
-            activationBMPThree[i][j] &= 0x00ffffff;
-            activationInputThree[count] = activationBMPThree[i][j];
-            activationInputThree[count] /= scalingfactor;
-
-            activationBMPFour[i][j] &= 0x00ffffff;
-            activationInputFour[count] = activationBMPFour[i][j];
-            activationInputFour[count] /= scalingfactor;
-
-            activationBMPFive[i][j] &= 0x00ffffff;
-            activationInputFive[count] = activationBMPFive[i][j];
-            activationInputFive[count] /= scalingfactor;
-            count++;
-         }
-      }
-
+      decoder.decodeInputs(images[1].getPath(), BmpInputMode.PACKED_RGB, activationInputTwo);
+      decoder.decodeInputs(images[2].getPath(), BmpInputMode.PACKED_RGB, activationInputThree);
+      decoder.decodeInputs(images[3].getPath(), BmpInputMode.PACKED_RGB, activationInputFour);
+      decoder.decodeInputs(images[4].getPath(), BmpInputMode.PACKED_RGB, activationInputFive);
 
       System.out.println("Do you want to train the network [y/n]");
       Scanner readTrain = new Scanner(System.in);
@@ -74,131 +66,203 @@ public class FingerMain
 
       // read basic neural network values: number of input nodes, hidden layer array, and number of output nodes
       String fileName = networkInfoFileDD;
-      Scanner sc = new Scanner(new FileReader(fileName));
-      int inputNodes = sc.nextInt();
-      int hiddenLayerLength = sc.nextInt();
-      sc.nextLine();
-      String[] hiddenLayerArray = sc.nextLine().split(",");
-      int[] hiddenLayerInformation = new int[hiddenLayerLength];
-      for (int i = 0; i < hiddenLayerLength; i++)
-      {
-         hiddenLayerInformation[i] = Integer.parseInt(hiddenLayerArray[i]);
-      }
-      int outputNodes = sc.nextInt();
-
-      FirstTry network = new FirstTry(length, hiddenLayerInformation, outputNodes);
-
-      // read basic values necessary for training
-      double minRandom = sc.nextDouble();
-      double maxRandom = sc.nextDouble();
-      double learningRate = sc.nextDouble();
-      int epochs = sc.nextInt();
-      double errorThreshold = sc.nextDouble();
-      int pixels = sc.nextInt();
-      sc.nextLine();
-
-      // prints out basic information relevant to testing and training
-      System.out.println();
-      System.out.println("Basic Information");
-      System.out.println("Number of layers: " + network.numLayers);
-      System.out.println("Number of activations for each layer:");
-      for (int activation = 0; activation < network.numLayers; activation++)
+      NumberParser sc = new NumberParser(fileName);
+      try
       {
-         System.out.println("Layer " + (activation + 1) + ": " + network.layerInfo[activation] + " activations");
-      }
+         int inputNodes = sc.nextInt();
+         int hiddenLayerLength = sc.nextInt();
+         sc.skipLine();
+         int[] hiddenLayerInformation = new int[hiddenLayerLength];
+         for (int i = 0; i < hiddenLayerLength; i++)
+         {
+            hiddenLayerInformation[i] = sc.nextInt();
+         }
+         sc.skipLine();
+         int outputNodes = sc.nextInt();
 
-      if (trainOrNo.equals("y"))
-      {
-         // prints out basic information
-         System.out.println("Error threshold: " + errorThreshold);
-         System.out.println("Max iterations allowed: " + epochs + " iterations");
-         System.out.println("Learning factor: " + learningRate);
-         System.out.println("Minimum weight: " + minRandom);
-         System.out.println("Maximum weight: " + maxRandom);
-
-         // Randomizing weights
-         for (int n = 0; n < network.numLayers - 1; n++)
+         // read basic values necessary for training
+         double minRandom = sc.nextDouble();
+         double maxRandom = sc.nextDouble();
+         double learningRate = sc.nextDouble();
+         int epochs = sc.nextInt();
+         double errorThreshold = sc.nextDouble();
+         int pixels = sc.nextInt();
+         // the word float may follow the last training value on its line for a single precision network, and an optimizer may follow
+         // that, such as "50 float" or "50 adam"; a double precision network with plain gradient descent is used without them
+         NeuralNetwork network = NeuralNetwork.read(sc, length, hiddenLayerInformation, outputNodes);
+         sc.skipLine();
+         // builds the workers now, so a network they cannot train, such as a float or lbfgs one, stops the run before it starts
+         ParallelTrainer trainer = null;
+         if (workersDD != 1)
          {
-            for (int j = 0; j < network.layerInfo[n]; j++)
+            if (!(network instanceof FirstTry))
             {
-               for (int i = 0; i < network.layerInfo[n + 1]; i++)
-               {
-                  network.weights[n][j][i] = network.randomize(minRandom, maxRandom);
-               }
+               throw new IllegalArgumentException(networkInfoFileDD + ": only a double precision network trains across workers");
             }
+            trainer = new ParallelTrainer((FirstTry) network, workersDD);
          }
 
-         double[][] testCasesDouble = new double[5][length];
-         testCasesDouble[0] = activationInputOne;
-         testCasesDouble[1] = activationInputTwo;
-         testCasesDouble[2] = activationInputThree;
-         testCasesDouble[3] = activationInputFour;
-         testCasesDouble[4] = activationInputFive;
-         double[][] results = new double[][]{{0.0}, {0.2}, {0.4}, {0.6}, {0.8}};
-         network.train(5, testCasesDouble, results, learningRate, epochs, errorThreshold);
+         // prints out basic information relevant to testing and training
+         System.out.println();
+         System.out.println("Basic Information");
+         System.out.println("Number of layers: " + network.numLayers);
+         System.out.println("Number of activations for each layer:");
+         for (int activation = 0; activation < network.numLayers; activation++)
+         {
+            System.out.println("Layer " + (activation + 1) + ": " + network.layerInfo[activation] + " activations");
+         }
 
-         for (int propagateCase = 0; propagateCase < 5; propagateCase++)
+         if (trainOrNo.equals("y"))
          {
-            network.propagate(testCasesDouble[propagateCase]);
+            // prints out basic information
+            System.out.println("Error threshold: " + errorThreshold);
+            System.out.println("Max iterations allowed: " + epochs + " iterations");
+            System.out.println("Learning factor: " + learningRate);
+            System.out.println("Optimizer: " + network.optimizer.name());
+            System.out.println("Workers: " + workersDD);
+            System.out.println("Minimum weight: " + minRandom);
+            System.out.println("Maximum weight: " + maxRandom);
 
-            System.out.println("Test Case: " + propagateCase);
-            //prints the output of the test cases
-            for (int node = 0; node < outputNodes; node++)
+            // Randomizing weights
+            for (int n = 0; n < network.numLayers - 1; n++)
             {
-               System.out.print("Post-training: " + network.activations[network.numLayers - 1][node]);
-               System.out.print("  |  Expected: " + results[propagateCase][node]);
-               System.out.println();
+               for (int j = 0; j < network.layerInfo[n]; j++)
+               {
+                  for (int i = 0; i < network.layerInfo[n + 1]; i++)
+                  {
+                     network.setWeight(n, j, i, network.randomize(minRandom, maxRandom));
+                  }
+               }
             }
-         } // for (int propogateCase = 0; propogateCase < numTestCases; propogateCase++)
 
-         // prints out end weights
-         network.printWeights();
+            double[][] testCasesDouble = new double[5][length];
+            testCasesDouble[0] = activationInputOne;
+            testCasesDouble[1] = activationInputTwo;
+            testCasesDouble[2] = activationInputThree;
+            testCasesDouble[3] = activationInputFour;
+            testCasesDouble[4] = activationInputFive;
+            double[][] results = new double[][]{{0.0}, {0.2}, {0.4}, {0.6}, {0.8}};
+            trainCases(network, trainer, images, testCasesDouble, results, learningRate, epochs, errorThreshold);
 
-         // prints learning rate
-         System.out.println("Final learning rate: " + learningRate);
+            for (int propagateCase = 0; propagateCase < 5; propagateCase++)
+            {
+               network.propagate(testCasesDouble[propagateCase]);
 
-      } // if(trainOrNo.equals("y"))
+               System.out.println("Test Case: " + propagateCase);
+               //prints the output of the test cases
+               for (int node = 0; node < outputNodes; node++)
+               {
+                  System.out.print("Post-training: " + network.getOutput(node));
+                  System.out.print("  |  Expected: " + results[propagateCase][node]);
+                  System.out.println();
+               }
+            } // for (int propogateCase = 0; propogateCase < numTestCases; propogateCase++)
 
-      if (trainOrNo.equals("n"))
-      {
-         for (int i = 0; i < network.numLayers - 1; i++)
+            // prints out end weights
+            network.printWeights();
+            network.saveCheckpoint(checkpointFileDD);
+
+            // prints learning rate
+            System.out.println("Final learning rate: " + learningRate);
+
+         } // if(trainOrNo.equals("y"))
+
+         if (trainOrNo.equals("n"))
          {
-            for (int j = 0; j < network.layerInfo[i]; j++)
+            // loads the binary checkpoint saved by a training run, or falls back to the weights listed in the network file when there
+            // is none or it was saved from a network of another shape
+            if (!network.loadCheckpointIfPresent(checkpointFileDD))
             {
-               String[] temp = sc.nextLine().split(",");
-               double[] tempWeights = new double[network.layerInfo[i + 1]];
-               for (int numberOfWeights = 0; numberOfWeights < network.layerInfo[i + 1]; numberOfWeights++)
+               double[] temp = new double[network.layerInfo[1]];
+               for (int i = 0; i < network.numLayers - 1; i++)
                {
-                  tempWeights[numberOfWeights] = Double.parseDouble(temp[numberOfWeights]);
-               }
-               network.weights[i][j] = tempWeights;
+                  if (temp.length < network.layerInfo[i + 1])
+                  {
+                     temp = new double[network.layerInfo[i + 1]];
+                  }
+                  for (int j = 0; j < network.layerInfo[i]; j++)
+                  {
+                     sc.readDoubles(temp, network.layerInfo[i + 1]);
+                     for (int numberOfWeights = 0; numberOfWeights < network.layerInfo[i + 1]; numberOfWeights++)
+                     {
+                        network.setWeight(i, j, numberOfWeights, temp[numberOfWeights]);
+                     }
+                  }
+               } // for (int i = 0; i < network.numLayers - 1; i++)
             }
-         } // for (int i = 0; i < network.numLayers - 1; i++)
 
-         // propagates the network
-         System.out.println();
-         System.out.println("Original test cases outputs: ");
-
-         double[][] testCasesDouble = new double[5][length];
-         testCasesDouble[0] = activationInputOne;
-         testCasesDouble[1] = activationInputTwo;
-         testCasesDouble[2] = activationInputThree;
-         testCasesDouble[3] = activationInputFour;
-         testCasesDouble[4] = activationInputFive;
-         double[][] results = new double[][]{{0.0}, {0.2}, {0.4}, {0.6}, {0.8}};
-         network.train(5, testCasesDouble, results, learningRate, epochs, errorThreshold);
-
-         for (int propagateCase = 0; propagateCase < 5; propagateCase++)
-         {
-            network.propagate(testCasesDouble[propagateCase]);
+            // propagates the network
+            System.out.println();
+            System.out.println("Original test cases outputs: ");
 
-            for (int node = 0; node < outputNodes; node++)
+            double[][] testCasesDouble = new double[5][length];
+            testCasesDouble[0] = activationInputOne;
+            testCasesDouble[1] = activationInputTwo;
+            testCasesDouble[2] = activationInputThree;
+            testCasesDouble[3] = activationInputFour;
+            testCasesDouble[4] = activationInputFive;
+            double[][] results = new double[][]{{0.0}, {0.2}, {0.4}, {0.6}, {0.8}};
+            trainCases(network, trainer, images, testCasesDouble, results, learningRate, epochs, errorThreshold);
+
+            for (int propagateCase = 0; propagateCase < 5; propagateCase++)
             {
-               System.out.print("Original: " + network.activations[network.numLayers - 1][node]);
-               System.out.print("  |  Expected: " + testCasesDouble[propagateCase][node]);
-               System.out.println();
-            }
-         } // for (int propagateCase = 0; propagateCase < numTestCases; propagateCase++)
+               network.propagate(testCasesDouble[propagateCase]);
+
+               for (int node = 0; node < outputNodes; node++)
+               {
+                  System.out.print("Original: " + network.getOutput(node));
+                  System.out.print("  |  Expected: " + testCasesDouble[propagateCase][node]);
+                  System.out.println();
+               }
+            } // for (int propagateCase = 0; propagateCase < numTestCases; propagateCase++)
+         }
+      }
+      finally
+      {
+         sc.close();
       }
    }
+
+   /**
+    * Trains the network on the images with the number of workers asked for. With one worker the network trains online, as it always
+    * has, on cases streamed from a BitmapProducer, which decodes the images on background threads while the network trains on the
+    * ones before them. With more, the ParallelTrainer splits every epoch, taken as one batch, across its threads, working from the
+    * decoded inputs, and is shut down afterwards.
+    *
+    * @param network        the network being trained
+    * @param trainer        the workers, or null to train on the main thread
+    * @param images         the images
+    * @param inputs         the decoded inputs of the images
+    * @param expected       the expected outputs of the images
+    * @param learningRate   an predetermined rate at which the network learns
+    * @param epochs         the number of iterations that the training function uses
+    * @param errorThreshold the average error under which training stops
+    */
+   private static void trainCases(NeuralNetwork network, ParallelTrainer trainer, File[] images, double[][] inputs,
+                                  double[][] expected, double learningRate, int epochs, double errorThreshold) throws IOException
+   {
+      if (trainer == null)
+      {
+         // a whole epoch of images can be decoded ahead of the case being trained on
+         PrefetchingSampleSource source = BitmapProducer.prefetch(images, expected, BmpInputMode.PACKED_RGB, 0, images.length);
+         try
+         {
+            network.train(source, learningRate, epochs, errorThreshold);
+         }
+         finally
+         {
+            source.close();
+         }
+         return;
+      }
+
+      try
+      {
+         trainer.train(inputs.length, inputs, expected, learningRate, epochs, errorThreshold, inputs.length);
+      }
+      finally
+      {
+         trainer.shutdown();
+      }
+   } // private static void trainCases(NeuralNetwork network, ParallelTrainer trainer, File[] images, double[][] inputs, ...
 }
@@ -1,11 +1,19 @@
 import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /**
  * Neural Network
  *
  * This class constructs one flexible neural network with a variable amount of input nodes, hidden activation layers, number of
  * nodes per hidden activation layer, and output nodes. The connectivity of the neural network is a fully-connected and
- * feed-forward such that every node in one layer is connected to every node in the next layer.
+ * feed-forward such that every node in one layer is connected to every node in the next layer. It keeps its weights and working
+ * arrays in double; FirstTryFloat is the single precision network, and the two share everything that does not depend on the
+ * precision through NeuralNetwork.
  *
  * This neural network can be constructed by inputting the number of input nodes, an array description of hidden layers, and the
  * number of output nodes. This information will be used to construct the 2D matrix of activations and 3D matrix of weights for
@@ -15,31 +23,70 @@ import java.io.*;
  * This network can be trained with three activation layers or fewer; specifically, the network uses gradient descent and implementing
  * backpropagation to minimize the average of all the individual error functions, changing the weights while it performs that task.
  *
+ * The weights of each layer are stored in one flat array ordered by destination node, so the weight from node j of layer n to node
+ * i of layer n + 1 lives at weights[n][i * layerInfo[n] + j]. Both the forward pass and the backpropagation pass scan these arrays
+ * sequentially. Individual weights are read and written through getWeight and setWeight. Every one of those scans is a dot product
+ * or an axpy (y += alpha * x) run by KERNEL, which uses SIMD instructions when the Vector API is available (see ComputeKernel).
+ *
+ * Besides the online training in train, the network can be trained in mini-batches: accumulateGradients adds the gradient of one
+ * training case into per-layer buffers shaped like the weights, and applyGradients moves the weights once per batch.
+ * Both kinds of training can also read their cases from a SampleSource one at a time, which keeps only the current case in memory.
+ * applyGradients moves the weights with the network's Optimizer, plain gradient descent unless setOptimizer picks momentum,
+ * rmsprop or adam. Online training with any other optimizer runs every case as a batch of one, since those need the whole
+ * gradient of a case before they can move any weight. An LbfgsOptimizer instead takes over every train method and trains on the
+ * error of the whole training set at once, which suits small training sets. checkTrain, which this class shares with FirstTryFloat
+ * through NeuralNetwork, ends every epoch of every train method, and tells the TrainingMonitor set with setMonitor and the
+ * CheckpointWriter set with setCheckpointWriter, if there are any, how the epoch went. Every layer of the forward pass and of
+ * backpropagation is timed by a LayerForwardEvent or LayerBackwardEvent, which Java Flight Recorder records when it is running.
+ *
+ * The working arrays of a pass (activations, theta, psi, omega and gradients) can also be supplied through a NetworkContext, which
+ * lets several threads share one network's weights, as ParallelTrainer does. For serving, infer runs a forward pass that only reads
+ * the weights and the caller's inputs, keeps its working state in a caller-owned context and copies the result into a caller-owned
+ * buffer, so one loaded network can answer many threads at once as long as it is not being trained at the same time.
+ *
+ * propagateBatch pushes many samples through each layer together. The weights of a layer are visited in tiles of BLOCK_ROWS
+ * destination nodes by BLOCK_COLUMNS source nodes, and every sample of the batch is run against a tile while it is still in cache,
+ * so a weight is read from memory once per batch instead of once per sample.
+ *
  * Methods in this class
  * void   propagate
- * double outputFunction
- * double outputFunctionPrime
+ * double[] infer
+ * void   propagateBatch
+ * NetworkContext newContext
+ * double getOutput
+ * void   setOptimizer
  * void   train
- * int    checkTrain
- * double randomize
- * void   printWeights
+ * void   accumulateGradients
+ * void   applyGradients
+ * void   clearGradients
+ * double weightAt
+ * void   setWeight
+ * void   saveCheckpoint
+ * void   loadCheckpoint
+ * FirstTry fromCheckpoint
+ * FirstTry mapCheckpoint
  *
  * @author David Feng
  * @version March 02, 2020
  */
-public class FirstTry
+public class FirstTry extends NeuralNetwork implements InferenceModel
 {
 
-   int inputs;
-   int numLayers;
-   int[] layerInfo;
-   int[] hidden;
-   int output;
+   static final int BLOCK_ROWS = 16;
+   static final int BLOCK_COLUMNS = 512;
+   static final ComputeKernel KERNEL = ComputeKernel.ACTIVE;
+   // the kernel names given to the layer events of a loaded and of a mapped network
+   static final String KERNEL_NAME = KERNEL.name();
+   static final String MAPPED_KERNEL_NAME = "mapped";
+
    double[][] activations;
-   double[][][] weights;
+   double[][] weights;
+   DoubleBuffer[] mappedWeights;
    double[][] thetaArray;
    double[][] psiArray;
    double[][] omegaArray;
+   double[][] gradients;
+   NetworkContext context;
 
    /**
     * Constructs a FirstTry object that is the feed-forward, fully-connected neural network. The neural network takes in an integer
@@ -54,21 +101,23 @@ public class FirstTry
     */
    public FirstTry(int inputNodes, int[] hiddenLayerNodes, int outputNodes)
    {
-      //creates the global variables
-      inputs = inputNodes;
-      hidden = hiddenLayerNodes;
-      output = outputNodes;
-      numLayers = hiddenLayerNodes.length + 2;
-
-      //creates the layer info array
-      layerInfo = new int[numLayers];
-      layerInfo[0] = inputs;
-      for (int layer = 1; layer < numLayers - 1; layer++)
-      {
-         layerInfo[layer] = hiddenLayerNodes[layer - 1];
-      }
-      layerInfo[numLayers - 1] = outputNodes;
+      this(inputNodes, hiddenLayerNodes, outputNodes, null);
+   }
 
+   /**
+    * Constructs the neural network either with its own weight arrays or, for a network served from a mapped checkpoint, with the
+    * given read-only views of the weights. A mapped network allocates neither weight arrays nor gradient buffers.
+    *
+    * @param inputNodes       the number of input nodes in the neural network
+    * @param hiddenLayerNodes an array of integers that indicates the number hidden layers and the number of nodes in every hidden
+    *                         layer
+    * @param outputNodes      the number of output nodes in the neural network
+    * @param mappedLayers     the mapped weights of every layer, or null to allocate weight arrays
+    */
+   private FirstTry(int inputNodes, int[] hiddenLayerNodes, int outputNodes, DoubleBuffer[] mappedLayers)
+   {
+      //sets up the layers and their output functions
+      super(inputNodes, hiddenLayerNodes, outputNodes);
 
       //calculates the activations matrix for the network
       activations = new double[hiddenLayerNodes.length + 2][];
@@ -79,13 +128,15 @@ public class FirstTry
          activations[hiddenLayer] = new double[hiddenLayerNodes[hiddenLayer - 1]];
       }
 
-      //creates the weights matrix for the neural network
-      weights = new double[hiddenLayerNodes.length + 1][][];
-      weights[0] = new double[inputNodes][hiddenLayerNodes[0]];
-      weights[hiddenLayerNodes.length] = new double[hiddenLayerNodes[hiddenLayerNodes.length - 1]][outputNodes];
-      for (int hiddenNode = 1; hiddenNode < hiddenLayerNodes.length; hiddenNode++)
+      //creates one flat weights array per layer, ordered by destination node, unless the weights are mapped from a file
+      mappedWeights = mappedLayers;
+      if (mappedWeights == null)
       {
-         weights[hiddenNode] = new double[hiddenLayerNodes[hiddenNode - 1]][hiddenLayerNodes[hiddenNode]];
+         weights = new double[numLayers - 1][];
+         for (int n = 0; n < numLayers - 1; n++)
+         {
+            weights[n] = new double[layerInfo[n] * layerInfo[n + 1]];
+         }
       }
 
       //creates the backpropagation arrays
@@ -98,7 +149,20 @@ public class FirstTry
          omegaArray[layer] = new double[layerInfo[layer]];
          psiArray[layer] = new double[layerInfo[layer]];
       }
-   } // public FirstTry(int inputNodes, int[] hiddenLayerNodes, int outputNodes)
+
+      //creates the gradient accumulation buffers used by mini-batch training
+      if (mappedWeights == null)
+      {
+         gradients = new double[numLayers - 1][];
+         for (int n = 0; n < numLayers - 1; n++)
+         {
+            gradients[n] = new double[layerInfo[n] * layerInfo[n + 1]];
+         }
+      }
+
+      //exposes the fields above as the context used by the single-threaded methods
+      context = new NetworkContext(activations, thetaArray, psiArray, omegaArray, gradients);
+   } // private FirstTry(int inputNodes, int[] hiddenLayerNodes, int outputNodes, DoubleBuffer[] mappedLayers)
 
    /**
     * The propagate method helps generate the activations in the hidden layers of the neural network and calculates the final
@@ -108,45 +172,210 @@ public class FirstTry
     */
    public void propagate(double[] inputs)
    {
-      activations[0] = inputs;
+      propagate(inputs, context);
+   }
+
+   /**
+    * Runs the same forward pass as propagate, but stores the activations and theta values in the given context instead of in
+    * the fields of this network
+    *
+    * @param inputs         a double array of the inputs to the neural network
+    * @param networkContext the context that receives the activations and theta values
+    */
+   public void propagate(double[] inputs, NetworkContext networkContext)
+   {
+      networkContext.activations[0] = inputs;
+      forward(inputs, networkContext);
+   }
+
+   /**
+    * Computes the outputs of the network for one set of inputs without touching any state of the network itself. The inputs are
+    * only read and are not kept by the context, and the output layer is copied into the caller's buffer. Any number of threads may
+    * call this method on the same network at once provided that each thread uses its own context.
+    *
+    * @param inputs         a double array of the inputs to the neural network
+    * @param outputs        the buffer that receives the output activations, at least getOutputCount() long
+    * @param networkContext the per-thread context that holds the hidden activations of this call
+    * @return the outputs buffer
+    */
+   public double[] infer(double[] inputs, double[] outputs, NetworkContext networkContext)
+   {
+      forward(inputs, networkContext);
+      System.arraycopy(networkContext.activations[numLayers - 1], 0, outputs, 0, output);
+      return outputs;
+   }
+
+   /**
+    * Propagates a whole batch of inputs through the network and copies the outputs of every sample into the matching row of outputs.
+    * The activations of the batch are kept in the batch buffers of this network's own context.
+    *
+    * @param inputs  the inputs of every sample in the batch
+    * @param outputs the buffers that receive the outputs of every sample, one row per sample
+    */
+   public void propagateBatch(double[][] inputs, double[][] outputs)
+   {
+      propagateBatch(inputs, outputs, context);
+   }
+
+   /**
+    * Propagates a whole batch of inputs through the network using the batch buffers of the given context. Each layer is computed as
+    * one blocked matrix-matrix product: for every tile of weights, all samples of the batch accumulate their partial sums before the
+    * next tile is loaded. With the scalar kernel the partial sums are added in the same order as in propagate, so each sample gets
+    * exactly the outputs that propagate would give it; the vector kernel can differ from propagate in the last few bits.
+    *
+    * @param inputs         the inputs of every sample in the batch
+    * @param outputs        the buffers that receive the outputs of every sample, one row per sample
+    * @param networkContext the context whose batch buffers hold the activations of the batch
+    */
+   public void propagateBatch(double[][] inputs, double[][] outputs, NetworkContext networkContext)
+   {
+      int batchSize = inputs.length;
+      networkContext.ensureBatchCapacity(layerInfo, batchSize);
+      double[][] batchActivations = networkContext.batchActivations;
+
       for (int n = 1; n < numLayers; n++)
       {
-         for (int k = 0; k < layerInfo[n]; k++)
+         LayerForwardEvent event = new LayerForwardEvent();
+         event.begin();
+         double[] layerWeights = mappedWeights == null ? weights[n - 1] : null;
+         double[] previousBatch = batchActivations[n - 1];
+         double[] currentBatch = batchActivations[n];
+         int previousNodes = layerInfo[n - 1];
+         int nodes = layerInfo[n];
+
+         Arrays.fill(currentBatch, 0, batchSize * nodes, 0.0);
+
+         for (int rowStart = 0; rowStart < nodes; rowStart += BLOCK_ROWS)
          {
-            double temp = 0.0;
+            int rowEnd = Math.min(rowStart + BLOCK_ROWS, nodes);
 
-            for (int m = 0; m < layerInfo[n - 1]; m++)
+            for (int columnStart = 0; columnStart < previousNodes; columnStart += BLOCK_COLUMNS)
             {
-               temp += weights[n - 1][m][k] * activations[n - 1][m];
-            }
-            thetaArray[n][k] = temp;
-
-            activations[n][k] = outputFunction(temp);
+               int columnEnd = Math.min(columnStart + BLOCK_COLUMNS, previousNodes);
+
+               for (int sample = 0; sample < batchSize; sample++)
+               {
+                  double[] previous = n == 1 ? inputs[sample] : previousBatch;
+                  int previousOffset = n == 1 ? 0 : sample * previousNodes;
+                  int currentOffset = sample * nodes;
+
+                  for (int k = rowStart; k < rowEnd; k++)
+                  {
+                     double temp = currentBatch[currentOffset + k];
+                     int row = k * previousNodes;
+
+                     if (layerWeights != null)
+                     {
+                        temp = KERNEL.dot(layerWeights, row + columnStart, previous, previousOffset + columnStart,
+                                columnEnd - columnStart, temp);
+                     }
+                     else
+                     {
+                        temp = mappedDot(mappedWeights[n - 1], row, previous, previousOffset, columnStart, columnEnd, temp);
+                     }
+                     currentBatch[currentOffset + k] = temp;
+                  }
+               } // for (int sample = 0; sample < batchSize; sample++)
+            } // for (int columnStart = 0; columnStart < previousNodes; columnStart += BLOCK_COLUMNS)
+         } // for (int rowStart = 0; rowStart < nodes; rowStart += BLOCK_ROWS)
+
+         ActivationFunction function = layerFunctions[n];
+         for (int index = 0; index < batchSize * nodes; index++)
+         {
+            currentBatch[index] = function.apply(currentBatch[index]);
          }
+         event.record(n, nodes, batchSize, layerWeights != null ? KERNEL_NAME : MAPPED_KERNEL_NAME);
       } // for (int n = 1; n < numLayers; n++)
-   } // public void propagate(double[] inputs)
+
+      double[] lastBatch = batchActivations[numLayers - 1];
+      for (int sample = 0; sample < batchSize; sample++)
+      {
+         System.arraycopy(lastBatch, sample * output, outputs[sample], 0, output);
+      }
+   } // public void propagateBatch(double[][] inputs, double[][] outputs, NetworkContext networkContext)
 
    /**
-    * This is the output function applied to each node to produce the final output
+    * Creates a context sized for this network, which a thread can reuse across calls to infer or propagate
     *
-    * @param x the input that is passed into the output function
-    * @return the result of the output function
+    * @return a new NetworkContext
     */
-   public double outputFunction(double x)
+   public NetworkContext newContext()
    {
-      return 1.0 / (1.0 + Math.exp(-x));
+      return new NetworkContext(this);
    }
 
    /**
-    * The derivative of the output function, which is integral in the training process
+    * Reads one output of the most recent propagate
+    *
+    * @param node the node of the output layer
+    * @return the activation of the node
+    */
+   public double getOutput(int node)
+   {
+      return activations[numLayers - 1][node];
+   }
+
+   /**
+    * Computes the theta values and activations of every layer after the input layer. Layer 1 reads the inputs directly, so the
+    * first row of the context's activations is neither read nor written.
+    *
+    * @param inputs         a double array of the inputs to the neural network
+    * @param networkContext the context that receives the activations and theta values
+    */
+   private void forward(double[] inputs, NetworkContext networkContext)
+   {
+      double[][] contextActivations = networkContext.activations;
+      double[][] contextTheta = networkContext.thetaArray;
+
+      for (int n = 1; n < numLayers; n++)
+      {
+         LayerForwardEvent event = new LayerForwardEvent();
+         event.begin();
+         double[] previous = n == 1 ? inputs : contextActivations[n - 1];
+         int previousNodes = layerInfo[n - 1];
+
+         for (int k = 0; k < layerInfo[n]; k++)
+         {
+            double temp;
+            int row = k * previousNodes;
+
+            if (mappedWeights == null)
+            {
+               temp = KERNEL.dot(weights[n - 1], row, previous, 0, previousNodes, 0.0);
+            }
+            else
+            {
+               temp = mappedDot(mappedWeights[n - 1], row, previous, 0, 0, previousNodes, 0.0);
+            }
+            contextTheta[n][k] = temp;
+
+            contextActivations[n][k] = layerFunctions[n].apply(temp);
+         }
+         event.record(n, layerInfo[n], 1, mappedWeights == null ? KERNEL_NAME : MAPPED_KERNEL_NAME);
+      } // for (int n = 1; n < numLayers; n++)
+   } // private void forward(double[] inputs, NetworkContext networkContext)
+
+   /**
+    * Adds the products of one range of a row of mapped weights with the matching activations onto a running sum, in the same order
+    * as the array kernels so that a mapped network gives the same outputs as a loaded one
     *
-    * @param x the input that is passed into this derivative function
-    * @return the result of the output derivative function
+    * @param layerWeights   the mapped weights of the layer
+    * @param row            the index of the first weight of the destination node's row
+    * @param previous       the activations of the layer below
+    * @param previousOffset the index of the first activation of the sample in previous
+    * @param start          the first source node of the range
+    * @param end            one past the last source node of the range
+    * @param temp           the running sum
+    * @return the running sum with the range added
     */
-   public double outputFunctionPrime(double x)
+   private static double mappedDot(DoubleBuffer layerWeights, int row, double[] previous, int previousOffset, int start, int end,
+                                   double temp)
    {
-      double output = outputFunction(x);
-      return output * (1.0 - output);
+      for (int m = start; m < end; m++)
+      {
+         temp += layerWeights.get(row + m) * previous[previousOffset + m];
+      }
+      return temp;
    }
 
    /**
@@ -161,10 +390,17 @@ public class FirstTry
     */
    public void train(int numTrainCases, double[][] inputs, double[][] expected, double learningRate, int epochs, double errorThreshold)
    {
+      checkWritable();
+      startMonitor(numTrainCases);
+      if (optimizer instanceof LbfgsOptimizer)
+      {
+         ((LbfgsOptimizer) optimizer).train(this, numTrainCases, inputs, expected, epochs, errorThreshold);
+         return;
+      }
       for (int testCase = 0; testCase < numTrainCases; testCase++)
       {
          propagate(inputs[testCase]);
-         calculateBackprop(expected, testCase, learningRate);
+         learnCase(expected, testCase, learningRate);
       }
 
       double error = 0.0;
@@ -188,7 +424,7 @@ public class FirstTry
          for (int testCase = 0; testCase < numTrainCases; testCase++)
          {
             propagate(inputs[testCase]);
-            calculateBackprop(expected, testCase, learningRate);
+            learnCase(expected, testCase, learningRate);
 
             for (int outputs = 0; outputs < output; outputs++)
             {
@@ -201,6 +437,298 @@ public class FirstTry
       } // while (checkTrain(numLoops, epochs, error, errorThreshold) == -2)
    } //public void train(int numTrainCases, double[][] inputs, double[][] expected, double learningRate, int epochs, double errorThreshold)
 
+   /**
+    * Trains the neural network in mini-batches. The gradient of every training case in a batch is accumulated into the gradients
+    * buffers and the weights are moved once at the end of the batch by the average gradient. A batch size of 1 updates the weights
+    * after every case like train does, and a batch size of numTrainCases or more performs full-batch gradient descent.
+    *
+    * @param numTrainCases  the number of training cases being used in the method
+    * @param inputs         the training cases used in optimizing the weights
+    * @param expected       the expected results for the the training cases
+    * @param learningRate   an predetermined rate at which the network learns
+    * @param epochs         the number of iterations that the training function uses
+    * @param errorThreshold the average error under which training stops
+    * @param batchSize      the number of training cases whose gradients are combined into one weight update
+    */
+   public void train(int numTrainCases, double[][] inputs, double[][] expected, double learningRate, int epochs, double errorThreshold,
+                     int batchSize)
+   {
+      checkWritable();
+      startMonitor(numTrainCases);
+      if (optimizer instanceof LbfgsOptimizer)
+      {
+         ((LbfgsOptimizer) optimizer).train(this, numTrainCases, inputs, expected, epochs, errorThreshold);
+         return;
+      }
+      if (batchSize < 1 || batchSize > numTrainCases)
+      {
+         batchSize = numTrainCases;
+      }
+
+      int numLoops = 0;
+      double error;
+
+      do
+      {
+         error = 0.0;
+         clearGradients();
+         int casesInBatch = 0;
+
+         for (int testCase = 0; testCase < numTrainCases; testCase++)
+         {
+            propagate(inputs[testCase]);
+
+            for (int outputs = 0; outputs < output; outputs++)
+            {
+               double difference = expected[testCase][outputs] - activations[numLayers - 1][outputs];
+               error += 0.5 * difference * difference;
+            }
+
+            accumulateGradients(expected, testCase, batchSize);
+            casesInBatch++;
+
+            if (casesInBatch == batchSize || testCase == numTrainCases - 1)
+            {
+               applyGradients(learningRate, casesInBatch);
+               clearGradients();
+               casesInBatch = 0;
+            }
+         } // for (int testCase = 0; testCase < numTrainCases; testCase++)
+         error = error / (numTrainCases * output);
+         numLoops++;
+      } while (checkTrain(numLoops, epochs, error, errorThreshold) == -2);
+   } // public void train(int numTrainCases, double[][] inputs, double[][] expected, double learningRate, int epochs, ...
+
+   /**
+    * Trains the neural network online, like train, on cases streamed from a SampleSource. Every epoch rewinds the source and reads
+    * its cases one at a time into two reused buffers, so the cases never have to fit in memory together.
+    *
+    * @param source         the training cases, which are read once per epoch
+    * @param learningRate   an predetermined rate at which the network learns
+    * @param epochs         the number of iterations that the training function uses
+    * @param errorThreshold the average error under which training stops
+    */
+   public void train(SampleSource source, double learningRate, int epochs, double errorThreshold) throws IOException
+   {
+      checkWritable();
+      startMonitor(source.size());
+      if (optimizer instanceof LbfgsOptimizer)
+      {
+         ((LbfgsOptimizer) optimizer).train(this, source, epochs, errorThreshold);
+         return;
+      }
+      double[] caseInputs = new double[inputs];
+      double[][] caseExpected = new double[1][output];
+      int numLoops = 0;
+      double error;
+
+      do
+      {
+         error = 0.0;
+         source.rewind();
+
+         while (source.next(caseInputs, caseExpected[0]))
+         {
+            propagate(caseInputs);
+
+            for (int outputs = 0; outputs < output; outputs++)
+            {
+               double difference = caseExpected[0][outputs] - activations[numLayers - 1][outputs];
+               error += 0.5 * difference * difference;
+            }
+
+            learnCase(caseExpected, 0, learningRate);
+         } // while (source.next(caseInputs, caseExpected[0]))
+         error = error / ((double) source.size() * output);
+         numLoops++;
+      } while (checkTrain(numLoops, epochs, error, errorThreshold) == -2);
+   } // public void train(SampleSource source, double learningRate, int epochs, double errorThreshold) throws IOException
+
+   /**
+    * Trains the neural network in mini-batches, like the batched train, on cases streamed from a SampleSource
+    *
+    * @param source         the training cases, which are read once per epoch
+    * @param learningRate   an predetermined rate at which the network learns
+    * @param epochs         the number of iterations that the training function uses
+    * @param errorThreshold the average error under which training stops
+    * @param batchSize      the number of training cases whose gradients are combined into one weight update, or 0 to combine
+    *                       every case of an epoch
+    */
+   public void train(SampleSource source, double learningRate, int epochs, double errorThreshold, int batchSize) throws IOException
+   {
+      checkWritable();
+      startMonitor(source.size());
+      if (optimizer instanceof LbfgsOptimizer)
+      {
+         ((LbfgsOptimizer) optimizer).train(this, source, epochs, errorThreshold);
+         return;
+      }
+      double[] caseInputs = new double[inputs];
+      double[] caseExpected = new double[output];
+      // the size of the batches the layer events record; a batch size of 0, or one larger than the source, is the whole epoch
+      int casesPerBatch = batchSize < 1 || batchSize > source.size() ? source.size() : batchSize;
+      int numLoops = 0;
+      double error;
+
+      do
+      {
+         error = 0.0;
+         clearGradients();
+         int casesInBatch = 0;
+         source.rewind();
+
+         while (source.next(caseInputs, caseExpected))
+         {
+            propagate(caseInputs);
+
+            for (int outputs = 0; outputs < output; outputs++)
+            {
+               double difference = caseExpected[outputs] - activations[numLayers - 1][outputs];
+               error += 0.5 * difference * difference;
+            }
+
+            accumulateGradients(caseExpected, context, casesPerBatch);
+            casesInBatch++;
+
+            if (casesInBatch == batchSize)
+            {
+               applyGradients(learningRate, casesInBatch);
+               clearGradients();
+               casesInBatch = 0;
+            }
+         } // while (source.next(caseInputs, caseExpected))
+
+         if (casesInBatch > 0)
+         {
+            applyGradients(learningRate, casesInBatch);
+         }
+         error = error / ((double) source.size() * output);
+         numLoops++;
+      } while (checkTrain(numLoops, epochs, error, errorThreshold) == -2);
+   } // public void train(SampleSource source, double learningRate, int epochs, double errorThreshold, int batchSize) ...
+
+   /**
+    * Runs backpropagation for the most recently propagated training case and adds its gradient to the gradients buffers without
+    * changing the weights. The psi values of the hidden layers are found from the weights as they were when the case was propagated.
+    *
+    * @param expected  the expected values from training
+    * @param testCase  the test case number, which is useful for finding the expected value
+    * @param batchSize the number of training cases in the batch the case belongs to, which the layer events record
+    */
+   public void accumulateGradients(double[][] expected, int testCase, int batchSize)
+   {
+      accumulateGradients(expected[testCase], context, batchSize);
+   }
+
+   /**
+    * Runs the same backpropagation as accumulateGradients, but reads the forward pass from the given context and adds the gradient
+    * into the gradient buffer of that context
+    *
+    * @param expected       the expected outputs of the case that was last propagated through the context
+    * @param networkContext the context holding the forward pass and receiving the gradient
+    * @param batchSize      the number of training cases in the batch the case belongs to, which the layer events record
+    */
+   public void accumulateGradients(double[] expected, NetworkContext networkContext, int batchSize)
+   {
+      checkWritable();
+      double[][] contextActivations = networkContext.activations;
+      double[][] contextTheta = networkContext.thetaArray;
+      double[][] contextPsi = networkContext.psiArray;
+      double[][] contextOmega = networkContext.omegaArray;
+
+      for (int outputNode = 0; outputNode < output; outputNode++)
+      {
+         contextOmega[numLayers - 1][outputNode] = expected[outputNode] - contextActivations[numLayers - 1][outputNode];
+         contextPsi[numLayers - 1][outputNode] = contextOmega[numLayers - 1][outputNode] * layerFunctions[numLayers - 1].derivativeFromOutput(contextActivations[numLayers - 1][outputNode]);
+      }
+
+      for (int layerNum = numLayers - 2; layerNum >= 0; layerNum--)
+      {
+         LayerBackwardEvent event = new LayerBackwardEvent();
+         event.begin();
+         double[] layerWeights = weights[layerNum];
+         double[] layerGradients = networkContext.gradients[layerNum];
+         double[] below = contextActivations[layerNum];
+         double[] psiAbove = contextPsi[layerNum + 1];
+         double[] omega = contextOmega[layerNum];
+         int nodes = layerInfo[layerNum];
+
+         // the input layer has no psi, so its omega sums, a full pass over the largest weights, are skipped
+         if (layerNum > 0)
+         {
+            for (int j = 0; j < nodes; j++)
+            {
+               omega[j] = 0.0;
+            }
+         }
+
+         for (int i = 0; i < layerInfo[layerNum + 1]; i++)
+         {
+            double psi = psiAbove[i];
+            int row = i * nodes;
+            if (layerNum > 0)
+            {
+               KERNEL.axpy(psi, layerWeights, row, omega, 0, nodes);
+            }
+            KERNEL.axpy(psi, below, 0, layerGradients, row, nodes);
+         }
+
+         if (layerNum > 0)
+         {
+            for (int j = 0; j < nodes; j++)
+            {
+               contextPsi[layerNum][j] = omega[j] * layerFunctions[layerNum].derivativeFromOutput(contextActivations[layerNum][j]);
+            }
+         }
+         event.record(layerNum + 1, layerInfo[layerNum + 1], batchSize, KERNEL_NAME);
+      } // for (int layerNum = numLayers - 2; layerNum >= 0; layerNum--)
+   } // public void accumulateGradients(double[] expected, NetworkContext networkContext, int batchSize)
+
+   /**
+    * Sets the rule applyGradients uses to move the weights and starts its state over. A mapped network is refused before the
+    * optimizer is touched, since it could never train.
+    *
+    * @param optimizer the optimizer
+    */
+   public void setOptimizer(Optimizer optimizer)
+   {
+      checkWritable();
+      optimizer.reset(weights);
+      this.optimizer = optimizer;
+   }
+
+   /**
+    * Moves the weights by the gradients accumulated since the buffers were last cleared, with the network's optimizer
+    *
+    * @param learningRate the learning rate for the network
+    * @param numCases     the number of training cases whose gradients were accumulated
+    */
+   public void applyGradients(double learningRate, int numCases)
+   {
+      applyGradients(gradients, learningRate, numCases);
+   }
+
+   /**
+    * Moves the weights by the given gradient buffer, such as one reduced from several contexts, with the network's optimizer
+    *
+    * @param batchGradients the summed gradients of the batch, shaped like the weights
+    * @param learningRate   the learning rate for the network
+    * @param numCases       the number of training cases whose gradients were summed
+    */
+   public void applyGradients(double[][] batchGradients, double learningRate, int numCases)
+   {
+      checkWritable();
+      optimizer.update(weights, batchGradients, learningRate, numCases);
+   }
+
+   /**
+    * Sets every value in the gradients buffers back to zero so that a new batch can be accumulated
+    */
+   public void clearGradients()
+   {
+      context.clearGradients();
+   }
+
    /**
     * Calculates the omega, psi, and weights in the backpropagation algorithm
     *
@@ -210,97 +738,222 @@ public class FirstTry
     */
    public void calculateBackprop(double[][] expected, int testCase, double learningRate)
    {
+      checkWritable();
+      double[] outputWeights = weights[numLayers - 2];
+      int lastHidden = layerInfo[numLayers - 2];
+      LayerBackwardEvent outputEvent = new LayerBackwardEvent();
+      outputEvent.begin();
+
       for (int outputNode = 0; outputNode < output; outputNode++)
       {
          omegaArray[numLayers - 1][outputNode] = expected[testCase][outputNode] - activations[numLayers - 1][outputNode];
-         psiArray[numLayers - 1][outputNode] = omegaArray[numLayers - 1][outputNode] * outputFunctionPrime(thetaArray[numLayers - 1][outputNode]);
+         psiArray[numLayers - 1][outputNode] = omegaArray[numLayers - 1][outputNode] * layerFunctions[numLayers - 1].derivativeFromOutput(activations[numLayers - 1][outputNode]);
 
-         for (int j = 0; j < layerInfo[numLayers - 2]; j++)
-         {
-            weights[numLayers - 2][j][outputNode] += learningRate * activations[numLayers - 2][j] * psiArray[numLayers - 1][outputNode];
-         }
+         double step = learningRate * psiArray[numLayers - 1][outputNode];
+         int row = outputNode * lastHidden;
+         KERNEL.axpy(step, activations[numLayers - 2], 0, outputWeights, row, lastHidden);
       } // for (int outputNode = 0; outputNode < output; outputNode++)
+      outputEvent.record(numLayers - 1, output, 1, KERNEL_NAME);
 
       for (int layerNum = numLayers - 2; layerNum > 0; layerNum--)
       {
-         for (int j = 0; j < layerInfo[layerNum]; j++)
+         LayerBackwardEvent event = new LayerBackwardEvent();
+         event.begin();
+         double[] aboveWeights = weights[layerNum];
+         double[] belowWeights = weights[layerNum - 1];
+         double[] omega = omegaArray[layerNum];
+         double[] psiAbove = psiArray[layerNum + 1];
+         int nodes = layerInfo[layerNum];
+         int belowNodes = layerInfo[layerNum - 1];
+
+         // the omega sums are accumulated row by row so the weights above are read in storage order
+         for (int j = 0; j < nodes; j++)
+         {
+            omega[j] = 0.0;
+         }
+         for (int i = 0; i < layerInfo[layerNum + 1]; i++)
          {
-            double omegaSum = 0.0;
+            double psi = psiAbove[i];
+            int row = i * nodes;
+            KERNEL.axpy(psi, aboveWeights, row, omega, 0, nodes);
+         }
 
-            for (int i = 0; i < layerInfo[layerNum + 1]; i++)
-            {
-               omegaSum += psiArray[layerNum + 1][i] * weights[layerNum][j][i];
-            }
-            psiArray[layerNum][j] = omegaSum * outputFunctionPrime(thetaArray[layerNum][j]);
+         for (int j = 0; j < nodes; j++)
+         {
+            psiArray[layerNum][j] = omega[j] * layerFunctions[layerNum].derivativeFromOutput(activations[layerNum][j]);
 
-            for (int k = 0; k < layerInfo[layerNum - 1]; k++)
-            {
-               weights[layerNum - 1][k][j] += learningRate * activations[layerNum - 1][k] * psiArray[layerNum][j];
-            }
+            double step = learningRate * psiArray[layerNum][j];
+            int row = j * belowNodes;
+            KERNEL.axpy(step, activations[layerNum - 1], 0, belowWeights, row, belowNodes);
          }
+         event.record(layerNum, nodes, 1, KERNEL_NAME);
       } // for (int layerNum = numLayers - 2; layerNum > 0; layerNum--)
    } // public void calculateBackprop(double[][] expected, int testCase, double learningRate)
 
    /**
-    * Checks whether the training for the network is done given the number of intended epochs and the average error
+    * Trains on the most recently propagated case. Plain gradient descent moves the weights during backpropagation, as
+    * calculateBackprop always has; any other optimizer needs the whole gradient of the case first, so the case is run as a batch of
+    * one.
     *
-    * @param epochs    the number of current iterations
-    * @param goalEpoch the number of maximum iterations under which the network will stop training
-    * @param error     the error of the network under the current set of weights
-    * @param goalError the error threshold of the network
-    * @return -2 if neither condition (number of epochs, average error) is met
-    * -1 if the error threshold is reached
-    * 0 if the number of epochs is reached
+    * @param expected     the expected values from training
+    * @param testCase     the test case number, which is useful for finding the expected value
+    * @param learningRate the learning rate for the network
     */
-   public int checkTrain(int epochs, int goalEpoch, double error, double goalError)
+   private void learnCase(double[][] expected, int testCase, double learningRate)
    {
-      int returnable = -2;
+      if (optimizer instanceof SgdOptimizer)
+      {
+         calculateBackprop(expected, testCase, learningRate);
+      }
+      else
+      {
+         clearGradients();
+         accumulateGradients(expected, testCase, 1);
+         applyGradients(learningRate, 1);
+      }
+   } // private void learnCase(double[][] expected, int testCase, double learningRate)
 
-      if (epochs >= goalEpoch)
+   /**
+    * Reads a weight by its position in the flat weights of its layer
+    *
+    * @param n     the layer the weight leaves from
+    * @param index the index of the weight, as weightIndex finds it
+    * @return the value of the weight
+    */
+   public double weightAt(int n, int index)
+   {
+      if (mappedWeights != null)
       {
-         System.out.println("Training complete because goal epochs of " + goalEpoch + " was reached with error of " + error);
-         returnable = 0;
+         return mappedWeights[n].get(index);
       }
+      return weights[n][index];
+   }
+
+   /**
+    * Writes the weight connecting node j of layer n to node i of layer n + 1
+    *
+    * @param n     the layer the weight leaves from
+    * @param j     the node in layer n that the weight starts at
+    * @param i     the node in layer n + 1 that the weight ends at
+    * @param value the new value of the weight
+    */
+   public void setWeight(int n, int j, int i, double value)
+   {
+      checkWritable();
+      weights[n][weightIndex(n, j, i)] = value;
+   }
 
-      if (error <= goalError)
+   /**
+    * Copies the weights of one layer into a double array, in the flat layout of the layer
+    *
+    * @param n    the layer the weights leave from
+    * @param into the array that receives the weights, layerInfo[n] * layerInfo[n + 1] long
+    */
+   void copyWeights(int n, double[] into)
+   {
+      if (mappedWeights != null)
       {
-         System.out.println("Training complete because network reached error threshold with " + epochs + " training cases with " +
-                 "error of " + error);
-         returnable = -1;
+         super.copyWeights(n, into);
+         return;
       }
+      System.arraycopy(weights[n], 0, into, 0, weights[n].length);
+   }
 
-      return returnable;
-   } // public int checkTrain(int epochs, int goalEpoch, double error, double goalError)
+   /**
+    * Saves the topology and weights of the neural network to a binary checkpoint file
+    *
+    * @param fileName the name of the checkpoint file
+    */
+   public void saveCheckpoint(String fileName) throws IOException
+   {
+      checkWritable();
+      Checkpoint.write(fileName, layerInfo, weights);
+   }
 
    /**
-    * Generates a random double between two user-determined values using the Math.random function
+    * Replaces the weights of the neural network with the ones stored in a binary checkpoint file, which must describe a network with
+    * the same number of nodes in every layer
     *
-    * @param min the minimum value of the random number
-    * @param max the maximum value of the random number
-    * @return the random number
+    * @param fileName the name of the checkpoint file
     */
-   public double randomize(double min, double max)
+   public void loadCheckpoint(String fileName) throws IOException
    {
-      return (max - min) * Math.random() + min;
+      checkWritable();
+      Checkpoint.read(fileName, layerInfo, weights);
    }
 
    /**
-    * Prints the current weights in the neural network into a file and labels them using the conventional method for identifying weights
+    * Builds a new neural network with the topology stored in a binary checkpoint file and loads its weights
+    *
+    * @param fileName the name of the checkpoint file
+    * @return the loaded network
+    */
+   public static FirstTry fromCheckpoint(String fileName) throws IOException
+   {
+      FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+      int[] fileLayerInfo;
+      try
+      {
+         fileLayerInfo = Checkpoint.readTopology(channel, fileName);
+      }
+      finally
+      {
+         channel.close();
+      }
+
+      int[] hiddenLayerNodes = Arrays.copyOfRange(fileLayerInfo, 1, fileLayerInfo.length - 1);
+      FirstTry network = new FirstTry(fileLayerInfo[0], hiddenLayerNodes, fileLayerInfo[fileLayerInfo.length - 1]);
+      network.loadCheckpoint(fileName);
+      return network;
+   } // public static FirstTry fromCheckpoint(String fileName) throws IOException
+
+   /**
+    * Builds a read-only neural network that serves its weights straight from a memory-mapped checkpoint file instead of copying them
+    * into arrays. Startup only reads the header, the weight pages are loaded on demand by the operating system, and every process
+    * that maps the same file shares one copy of them in the page cache. The checksum is not verified, since that would read the
+    * whole file; use fromCheckpoint to load and verify a file. The returned network can propagate and infer but not train.
+    *
+    * @param fileName the name of the checkpoint file
+    * @return the mapped network
     */
-   public void printWeights() throws IOException
+   public static FirstTry mapCheckpoint(String fileName) throws IOException
    {
-      PrintWriter printer = new PrintWriter(new BufferedWriter(new FileWriter("weights.txt")));
-      for (int n = 0; n < numLayers - 1; n++)
+      FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+      try
       {
-         for (int j = 0; j < layerInfo[n]; j++)
+         int[] fileLayerInfo = Checkpoint.readTopology(channel, fileName);
+         long weightsEnd = Checkpoint.layerOffset(fileLayerInfo, fileLayerInfo.length - 1);
+         if (channel.size() != weightsEnd + Long.BYTES)
          {
-            for (int i = 0; i < layerInfo[n + 1]; i++)
-            {
-               printer.println("w" + n + j + i + " = " + weights[n][j][i]);
-            }
+            throw new IOException(fileName + " is " + channel.size() + " bytes long, expected " + (weightsEnd + Long.BYTES));
          }
+
+         DoubleBuffer[] mappedLayers = new DoubleBuffer[fileLayerInfo.length - 1];
+         for (int n = 0; n < mappedLayers.length; n++)
+         {
+            long offset = Checkpoint.layerOffset(fileLayerInfo, n);
+            long size = Checkpoint.layerOffset(fileLayerInfo, n + 1) - offset;
+            mappedLayers[n] = channel.map(FileChannel.MapMode.READ_ONLY, offset, size).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+         }
+
+         int[] hiddenLayerNodes = Arrays.copyOfRange(fileLayerInfo, 1, fileLayerInfo.length - 1);
+         return new FirstTry(fileLayerInfo[0], hiddenLayerNodes, fileLayerInfo[fileLayerInfo.length - 1], mappedLayers);
+      } // try
+      finally
+      {
+         channel.close();
+      }
+   } // public static FirstTry mapCheckpoint(String fileName) throws IOException
+
+   /**
+    * Stops a method that changes the weights from running on a network whose weights are mapped read-only from a file
+    */
+   void checkWritable()
+   {
+      if (mappedWeights != null)
+      {
+         throw new UnsupportedOperationException("the weights of a mapped network are read-only");
       }
-      printer.close();
-   } // public void printWeights() throws IOException
+   }
 
 } // public class FirstTry
\ No newline at end of file
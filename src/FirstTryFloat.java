@@ -0,0 +1,646 @@
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Single Precision Neural Network
+ *
+ * This class is the single precision variant of FirstTry. It builds the same fully-connected, feed-forward network with the same
+ * flat, destination-ordered weight layout (the weight from node j of layer n to node i of layer n + 1 lives at
+ * weights[n][i * layerInfo[n] + j]), but it stores the weights, activations, theta, psi, omega and gradient buffers as float. That
+ * halves the memory the weights take up and the memory traffic of every pass, which is what bounds the wide image networks.
+ *
+ * A network is made single precision by constructing a FirstTryFloat in place of a FirstTry, or by writing float in its network
+ * file (see NeuralNetwork.read). Everything that does not depend on the precision, from the output functions to checkTrain and its
+ * monitor and checkpoint hooks, comes from NeuralNetwork, and the loops run through the float operations of FirstTry.KERNEL. The
+ * weighted sums of the forward pass are taken in double by the kernel, and the omega sums of backpropagation are accumulated in
+ * double, and both are only rounded to float when they are stored, so long dot products over 10201 inputs do not lose accuracy to
+ * float rounding. Inputs given as double are rounded to float one case at a time, as they are copied into reused buffers, so a
+ * training set given as double is never copied whole. Checkpoints store the weights as double, like those of a FirstTry. Every
+ * layer is timed by a LayerForwardEvent or LayerBackwardEvent, as in FirstTry.
+ *
+ * propagateBatch runs a batch through each layer in the tiles of FirstTry.propagateBatch, BLOCK_ROWS destination nodes by
+ * BLOCK_COLUMNS source nodes, so a tile of weights is read from memory once for the whole batch. The partial sums of every tile are
+ * kept in double, so with the scalar kernel each sample gets exactly the outputs propagate would give it.
+ *
+ * Training moves the weights by plain gradient descent once per mini-batch, in the same way as the mini-batch train of FirstTry;
+ * online training is a batch size of 1, which updates after every case.
+ *
+ * Methods in this class
+ * void   propagate
+ * void   propagateBatch
+ * double getOutput
+ * void   setOptimizer
+ * void   train
+ * void   accumulateGradients
+ * void   applyGradients
+ * void   clearGradients
+ * double weightAt
+ * void   setWeight
+ * void   saveCheckpoint
+ * void   loadCheckpoint
+ * float[][] toFloat
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class FirstTryFloat extends NeuralNetwork
+{
+
+   // the kernel name given to the layer events
+   static final String KERNEL_NAME = "float-" + FirstTry.KERNEL_NAME;
+
+   float[][] activations;
+   float[][] weights;
+   float[][] thetaArray;
+   float[][] psiArray;
+   float[][] omegaArray;
+   float[][] gradients;
+   double[] omegaSums;
+   float[] inputBuffer;
+   float[] expectedBuffer;
+   float[][] batchActivations;    // the activations of every sample of a batch, one row of samples after another, for every layer
+   double[] batchSums;            // the weighted sums of the layer being computed for every sample of a batch
+   int batchCapacity;
+
+   /**
+    * Constructs a FirstTryFloat object, the single precision feed-forward, fully-connected neural network, from the same description
+    * as FirstTry: the number of input nodes, the number of nodes in every hidden layer, and the number of output nodes.
+    *
+    * @param inputNodes       the number of input nodes in the neural network
+    * @param hiddenLayerNodes an array of integers that indicates the number hidden layers and the number of nodes in every hidden
+    *                         layer
+    * @param outputNodes      the number of output nodes in the neural network
+    */
+   public FirstTryFloat(int inputNodes, int[] hiddenLayerNodes, int outputNodes)
+   {
+      //sets up the layers and their output functions
+      super(inputNodes, hiddenLayerNodes, outputNodes);
+
+      //creates the per-layer buffers of the forward and backpropagation passes
+      activations = new float[numLayers][];
+      thetaArray = new float[numLayers][];
+      omegaArray = new float[numLayers][];
+      psiArray = new float[numLayers][];
+      for (int layer = 0; layer < numLayers; layer++)
+      {
+         activations[layer] = new float[layerInfo[layer]];
+         thetaArray[layer] = new float[layerInfo[layer]];
+         omegaArray[layer] = new float[layerInfo[layer]];
+         psiArray[layer] = new float[layerInfo[layer]];
+      }
+      inputBuffer = new float[inputNodes];
+      expectedBuffer = new float[outputNodes];
+
+      //creates one flat weights array and one gradient buffer per layer, ordered by destination node
+      weights = new float[numLayers - 1][];
+      gradients = new float[numLayers - 1][];
+      for (int n = 0; n < numLayers - 1; n++)
+      {
+         weights[n] = new float[layerInfo[n] * layerInfo[n + 1]];
+         gradients[n] = new float[layerInfo[n] * layerInfo[n + 1]];
+      }
+
+      //the omega sums of the widest layer are accumulated in double before being stored
+      int widest = 0;
+      for (int layer = 0; layer < numLayers; layer++)
+      {
+         widest = Math.max(widest, layerInfo[layer]);
+      }
+      omegaSums = new double[widest];
+   } // public FirstTryFloat(int inputNodes, int[] hiddenLayerNodes, int outputNodes)
+
+   /**
+    * Rounds double inputs to float and calculates the activations of every layer for them
+    *
+    * @param inputs a double array of the inputs to the neural network
+    */
+   public void propagate(double[] inputs)
+   {
+      for (int node = 0; node < this.inputs; node++)
+      {
+         inputBuffer[node] = (float) inputs[node];
+      }
+      propagate(inputBuffer);
+   }
+
+   /**
+    * Calculates the activations of every layer for one set of inputs. The inputs are stored as the activations of layer 0.
+    *
+    * @param inputs a float array of the inputs to the neural network
+    */
+   public void propagate(float[] inputs)
+   {
+      activations[0] = inputs;
+      for (int n = 1; n < numLayers; n++)
+      {
+         LayerForwardEvent event = new LayerForwardEvent();
+         event.begin();
+         float[] layerWeights = weights[n - 1];
+         float[] previous = activations[n - 1];
+         int previousNodes = layerInfo[n - 1];
+
+         for (int k = 0; k < layerInfo[n]; k++)
+         {
+            double temp = FirstTry.KERNEL.dot(layerWeights, k * previousNodes, previous, 0, previousNodes, 0.0);
+            thetaArray[n][k] = (float) temp;
+
+            activations[n][k] = (float) layerFunctions[n].apply(temp);
+         }
+         event.record(n, layerInfo[n], 1, KERNEL_NAME);
+      } // for (int n = 1; n < numLayers; n++)
+   } // public void propagate(float[] inputs)
+
+   /**
+    * Propagates a whole batch of inputs through the network, one blocked matrix-matrix product per layer as in
+    * FirstTry.propagateBatch: for every tile of weights, all samples of the batch add their partial sums before the next tile is
+    * loaded. The inputs are rounded to float as they are copied into the batch buffers.
+    *
+    * @param inputs  the inputs of every sample in the batch
+    * @param outputs the buffers that receive the outputs of every sample, one row per sample
+    */
+   public void propagateBatch(double[][] inputs, double[][] outputs)
+   {
+      int batchSize = inputs.length;
+      ensureBatchCapacity(batchSize);
+      float[] inputBatch = batchActivations[0];
+      for (int sample = 0; sample < batchSize; sample++)
+      {
+         int offset = sample * this.inputs;
+         for (int node = 0; node < this.inputs; node++)
+         {
+            inputBatch[offset + node] = (float) inputs[sample][node];
+         }
+      }
+
+      for (int n = 1; n < numLayers; n++)
+      {
+         LayerForwardEvent event = new LayerForwardEvent();
+         event.begin();
+         float[] layerWeights = weights[n - 1];
+         float[] previousBatch = batchActivations[n - 1];
+         float[] currentBatch = batchActivations[n];
+         int previousNodes = layerInfo[n - 1];
+         int nodes = layerInfo[n];
+
+         Arrays.fill(batchSums, 0, batchSize * nodes, 0.0);
+
+         for (int rowStart = 0; rowStart < nodes; rowStart += FirstTry.BLOCK_ROWS)
+         {
+            int rowEnd = Math.min(rowStart + FirstTry.BLOCK_ROWS, nodes);
+
+            for (int columnStart = 0; columnStart < previousNodes; columnStart += FirstTry.BLOCK_COLUMNS)
+            {
+               int columnEnd = Math.min(columnStart + FirstTry.BLOCK_COLUMNS, previousNodes);
+
+               for (int sample = 0; sample < batchSize; sample++)
+               {
+                  int previousOffset = sample * previousNodes;
+                  int currentOffset = sample * nodes;
+
+                  for (int k = rowStart; k < rowEnd; k++)
+                  {
+                     batchSums[currentOffset + k] = FirstTry.KERNEL.dot(layerWeights, k * previousNodes + columnStart, previousBatch,
+                             previousOffset + columnStart, columnEnd - columnStart, batchSums[currentOffset + k]);
+                  }
+               } // for (int sample = 0; sample < batchSize; sample++)
+            } // for (int columnStart = 0; columnStart < previousNodes; columnStart += FirstTry.BLOCK_COLUMNS)
+         } // for (int rowStart = 0; rowStart < nodes; rowStart += FirstTry.BLOCK_ROWS)
+
+         ActivationFunction function = layerFunctions[n];
+         for (int index = 0; index < batchSize * nodes; index++)
+         {
+            currentBatch[index] = (float) function.apply(batchSums[index]);
+         }
+         event.record(n, nodes, batchSize, KERNEL_NAME);
+      } // for (int n = 1; n < numLayers; n++)
+
+      float[] lastBatch = batchActivations[numLayers - 1];
+      for (int sample = 0; sample < batchSize; sample++)
+      {
+         for (int node = 0; node < output; node++)
+         {
+            outputs[sample][node] = lastBatch[sample * output + node];
+         }
+      }
+   } // public void propagateBatch(double[][] inputs, double[][] outputs)
+
+   /**
+    * Makes sure the batch buffers can hold a batch of the given size, reallocating them only when a larger batch than any before
+    * comes along
+    *
+    * @param batchSize the number of samples in the batch
+    */
+   private void ensureBatchCapacity(int batchSize)
+   {
+      if (batchActivations == null || batchCapacity < batchSize)
+      {
+         int widest = 0;
+         batchActivations = new float[numLayers][];
+         for (int layer = 0; layer < numLayers; layer++)
+         {
+            batchActivations[layer] = new float[batchSize * layerInfo[layer]];
+            widest = Math.max(widest, layerInfo[layer]);
+         }
+         batchSums = new double[batchSize * widest];
+         batchCapacity = batchSize;
+      }
+   } // private void ensureBatchCapacity(int batchSize)
+
+   /**
+    * Reads one output of the most recent propagate
+    *
+    * @param node the node of the output layer
+    * @return the activation of the node
+    */
+   public double getOutput(int node)
+   {
+      return activations[numLayers - 1][node];
+   }
+
+   /**
+    * Keeps plain gradient descent, the only rule a single precision network trains with
+    *
+    * @param optimizer the optimizer, which must be an SgdOptimizer
+    */
+   public void setOptimizer(Optimizer optimizer)
+   {
+      if (!(optimizer instanceof SgdOptimizer))
+      {
+         throw new IllegalArgumentException("a float network only trains with sgd, not " + optimizer.name());
+      }
+      this.optimizer = optimizer;
+   }
+
+   /**
+    * Trains the neural network online, moving the weights after every training case
+    *
+    * @param numTrainCases  the number of training cases being used in the method
+    * @param inputs         the training cases used in optimizing the weights
+    * @param expected       the expected results for the the training cases
+    * @param learningRate   an predetermined rate at which the network learns
+    * @param epochs         the number of iterations that the training function uses
+    * @param errorThreshold the average error under which training stops
+    */
+   public void train(int numTrainCases, double[][] inputs, double[][] expected, double learningRate, int epochs, double errorThreshold)
+   {
+      train(numTrainCases, inputs, expected, learningRate, epochs, errorThreshold, 1);
+   }
+
+   /**
+    * Trains the neural network in mini-batches, like the batched train over float cases, on cases given as double. Every case is
+    * rounded to float into the two reused case buffers as it is trained on, so the training set is never copied.
+    *
+    * @param numTrainCases  the number of training cases being used in the method
+    * @param inputs         the training cases used in optimizing the weights
+    * @param expected       the expected results for the the training cases
+    * @param learningRate   an predetermined rate at which the network learns
+    * @param epochs         the number of iterations that the training function uses
+    * @param errorThreshold the average error under which training stops
+    * @param batchSize      the number of training cases whose gradients are combined into one weight update
+    */
+   public void train(int numTrainCases, double[][] inputs, double[][] expected, double learningRate, int epochs, double errorThreshold,
+                     int batchSize)
+   {
+      startMonitor(numTrainCases);
+      if (batchSize < 1 || batchSize > numTrainCases)
+      {
+         batchSize = numTrainCases;
+      }
+
+      int numLoops = 0;
+      double error;
+
+      do
+      {
+         error = 0.0;
+         clearGradients();
+         int casesInBatch = 0;
+
+         for (int testCase = 0; testCase < numTrainCases; testCase++)
+         {
+            //rounds the inputs into inputBuffer
+            propagate(inputs[testCase]);
+
+            for (int outputs = 0; outputs < output; outputs++)
+            {
+               expectedBuffer[outputs] = (float) expected[testCase][outputs];
+               double difference = expectedBuffer[outputs] - activations[numLayers - 1][outputs];
+               error += 0.5 * difference * difference;
+            }
+
+            accumulateGradients(expectedBuffer, batchSize);
+            casesInBatch++;
+
+            if (casesInBatch == batchSize || testCase == numTrainCases - 1)
+            {
+               applyGradients(learningRate, casesInBatch);
+               clearGradients();
+               casesInBatch = 0;
+            }
+         } // for (int testCase = 0; testCase < numTrainCases; testCase++)
+         error = error / (numTrainCases * output);
+         numLoops++;
+      } while (checkTrain(numLoops, epochs, error, errorThreshold) == -2);
+   } // public void train(int numTrainCases, double[][] inputs, double[][] expected, double learningRate, int epochs, ...
+
+   /**
+    * Trains the neural network in mini-batches. The gradient of every training case in a batch is accumulated into the gradients
+    * buffers and the weights are moved once at the end of the batch by the average gradient.
+    *
+    * @param numTrainCases  the number of training cases being used in the method
+    * @param inputs         the training cases used in optimizing the weights
+    * @param expected       the expected results for the the training cases
+    * @param learningRate   an predetermined rate at which the network learns
+    * @param epochs         the number of iterations that the training function uses
+    * @param errorThreshold the average error under which training stops
+    * @param batchSize      the number of training cases whose gradients are combined into one weight update
+    */
+   public void train(int numTrainCases, float[][] inputs, float[][] expected, double learningRate, int epochs, double errorThreshold,
+                     int batchSize)
+   {
+      startMonitor(numTrainCases);
+      if (batchSize < 1 || batchSize > numTrainCases)
+      {
+         batchSize = numTrainCases;
+      }
+
+      int numLoops = 0;
+      double error;
+
+      do
+      {
+         error = 0.0;
+         clearGradients();
+         int casesInBatch = 0;
+
+         for (int testCase = 0; testCase < numTrainCases; testCase++)
+         {
+            propagate(inputs[testCase]);
+
+            for (int outputs = 0; outputs < output; outputs++)
+            {
+               double difference = expected[testCase][outputs] - activations[numLayers - 1][outputs];
+               error += 0.5 * difference * difference;
+            }
+
+            accumulateGradients(expected[testCase], batchSize);
+            casesInBatch++;
+
+            if (casesInBatch == batchSize || testCase == numTrainCases - 1)
+            {
+               applyGradients(learningRate, casesInBatch);
+               clearGradients();
+               casesInBatch = 0;
+            }
+         } // for (int testCase = 0; testCase < numTrainCases; testCase++)
+         error = error / (numTrainCases * output);
+         numLoops++;
+      } while (checkTrain(numLoops, epochs, error, errorThreshold) == -2);
+   } // public void train(int numTrainCases, float[][] inputs, float[][] expected, double learningRate, int epochs, ...
+
+   /**
+    * Trains the neural network online on cases streamed from a SampleSource, one case in memory at a time
+    *
+    * @param source         the training cases, which are read once per epoch
+    * @param learningRate   an predetermined rate at which the network learns
+    * @param epochs         the number of iterations that the training function uses
+    * @param errorThreshold the average error under which training stops
+    */
+   public void train(SampleSource source, double learningRate, int epochs, double errorThreshold) throws IOException
+   {
+      train(source, learningRate, epochs, errorThreshold, 1);
+   }
+
+   /**
+    * Trains the neural network in mini-batches, like the batched train, on cases streamed from a SampleSource. Every case is read as
+    * double and rounded to float into the reused case buffers.
+    *
+    * @param source         the training cases, which are read once per epoch
+    * @param learningRate   an predetermined rate at which the network learns
+    * @param epochs         the number of iterations that the training function uses
+    * @param errorThreshold the average error under which training stops
+    * @param batchSize      the number of training cases whose gradients are combined into one weight update, or 0 to combine
+    *                       every case of an epoch
+    */
+   public void train(SampleSource source, double learningRate, int epochs, double errorThreshold, int batchSize) throws IOException
+   {
+      startMonitor(source.size());
+      double[] caseInputs = new double[inputs];
+      double[] caseExpected = new double[output];
+      // the size of the batches the layer events record; a batch size of 0, or one larger than the source, is the whole epoch
+      int casesPerBatch = batchSize < 1 || batchSize > source.size() ? source.size() : batchSize;
+      int numLoops = 0;
+      double error;
+
+      do
+      {
+         error = 0.0;
+         clearGradients();
+         int casesInBatch = 0;
+         source.rewind();
+
+         while (source.next(caseInputs, caseExpected))
+         {
+            propagate(caseInputs);
+
+            for (int outputs = 0; outputs < output; outputs++)
+            {
+               expectedBuffer[outputs] = (float) caseExpected[outputs];
+               double difference = expectedBuffer[outputs] - activations[numLayers - 1][outputs];
+               error += 0.5 * difference * difference;
+            }
+
+            accumulateGradients(expectedBuffer, casesPerBatch);
+            casesInBatch++;
+
+            if (casesInBatch == batchSize)
+            {
+               applyGradients(learningRate, casesInBatch);
+               clearGradients();
+               casesInBatch = 0;
+            }
+         } // while (source.next(caseInputs, caseExpected))
+
+         if (casesInBatch > 0)
+         {
+            applyGradients(learningRate, casesInBatch);
+         }
+         error = error / ((double) source.size() * output);
+         numLoops++;
+      } while (checkTrain(numLoops, epochs, error, errorThreshold) == -2);
+   } // public void train(SampleSource source, double learningRate, int epochs, double errorThreshold, int batchSize) ...
+
+   /**
+    * Runs backpropagation for the most recently propagated training case and adds its gradient to the gradients buffers without
+    * changing the weights
+    *
+    * @param expected  the expected outputs of the case that was last propagated
+    * @param batchSize the number of training cases in the batch the case belongs to, which the layer events record
+    */
+   public void accumulateGradients(float[] expected, int batchSize)
+   {
+      int outputLayer = numLayers - 1;
+      for (int outputNode = 0; outputNode < output; outputNode++)
+      {
+         omegaArray[outputLayer][outputNode] = expected[outputNode] - activations[outputLayer][outputNode];
+         psiArray[outputLayer][outputNode] = omegaArray[outputLayer][outputNode] *
+                 (float) layerFunctions[outputLayer].derivativeFromOutput(activations[outputLayer][outputNode]);
+      }
+
+      for (int layerNum = numLayers - 2; layerNum >= 0; layerNum--)
+      {
+         LayerBackwardEvent event = new LayerBackwardEvent();
+         event.begin();
+         float[] layerWeights = weights[layerNum];
+         float[] layerGradients = gradients[layerNum];
+         float[] below = activations[layerNum];
+         float[] psiAbove = psiArray[layerNum + 1];
+         int nodes = layerInfo[layerNum];
+
+         // the input layer has no psi, so its omega sums, a full pass over the largest weights, are skipped
+         if (layerNum > 0)
+         {
+            Arrays.fill(omegaSums, 0, nodes, 0.0);
+         }
+
+         for (int i = 0; i < layerInfo[layerNum + 1]; i++)
+         {
+            float psi = psiAbove[i];
+            int row = i * nodes;
+            if (layerNum > 0)
+            {
+               for (int j = 0; j < nodes; j++)
+               {
+                  omegaSums[j] += (double) psi * layerWeights[row + j];
+               }
+            }
+            FirstTry.KERNEL.axpy(psi, below, 0, layerGradients, row, nodes);
+         } // for (int i = 0; i < layerInfo[layerNum + 1]; i++)
+
+         if (layerNum > 0)
+         {
+            for (int j = 0; j < nodes; j++)
+            {
+               omegaArray[layerNum][j] = (float) omegaSums[j];
+               psiArray[layerNum][j] = omegaArray[layerNum][j] *
+                       (float) layerFunctions[layerNum].derivativeFromOutput(activations[layerNum][j]);
+            }
+         }
+         event.record(layerNum + 1, layerInfo[layerNum + 1], batchSize, KERNEL_NAME);
+      } // for (int layerNum = numLayers - 2; layerNum >= 0; layerNum--)
+   } // public void accumulateGradients(float[] expected, int batchSize)
+
+   /**
+    * Moves every weight by the average of the gradients accumulated since the buffers were last cleared
+    *
+    * @param learningRate the learning rate for the network
+    * @param numCases     the number of training cases whose gradients were accumulated
+    */
+   public void applyGradients(double learningRate, int numCases)
+   {
+      float step = (float) (learningRate / numCases);
+
+      for (int n = 0; n < numLayers - 1; n++)
+      {
+         FirstTry.KERNEL.axpy(step, gradients[n], 0, weights[n], 0, weights[n].length);
+      }
+   }
+
+   /**
+    * Sets every value in the gradients buffers back to zero so that a new batch can be accumulated
+    */
+   public void clearGradients()
+   {
+      for (int n = 0; n < numLayers - 1; n++)
+      {
+         Arrays.fill(gradients[n], 0.0f);
+      }
+   }
+
+   /**
+    * Reads a weight by its position in the flat weights of its layer
+    *
+    * @param n     the layer the weight leaves from
+    * @param index the index of the weight, as weightIndex finds it
+    * @return the value of the weight
+    */
+   public double weightAt(int n, int index)
+   {
+      return weights[n][index];
+   }
+
+   /**
+    * Writes the weight connecting node j of layer n to node i of layer n + 1, rounding it to single precision
+    *
+    * @param n     the layer the weight leaves from
+    * @param j     the node in layer n that the weight starts at
+    * @param i     the node in layer n + 1 that the weight ends at
+    * @param value the new value of the weight
+    */
+   public void setWeight(int n, int j, int i, double value)
+   {
+      weights[n][weightIndex(n, j, i)] = (float) value;
+   }
+
+   /**
+    * Saves the topology and weights of the neural network to a binary checkpoint file, widening the weights to double as a FirstTry
+    * would store them
+    *
+    * @param fileName the name of the checkpoint file
+    */
+   public void saveCheckpoint(String fileName) throws IOException
+   {
+      double[][] wideWeights = new double[numLayers - 1][];
+      for (int n = 0; n < numLayers - 1; n++)
+      {
+         wideWeights[n] = new double[weights[n].length];
+         copyWeights(n, wideWeights[n]);
+      }
+      Checkpoint.write(fileName, layerInfo, wideWeights);
+   } // public void saveCheckpoint(String fileName) throws IOException
+
+   /**
+    * Replaces the weights of the neural network with the ones stored in a binary checkpoint file, rounded to single precision. The
+    * file must describe a network with the same number of nodes in every layer.
+    *
+    * @param fileName the name of the checkpoint file
+    */
+   public void loadCheckpoint(String fileName) throws IOException
+   {
+      double[][] wideWeights = new double[numLayers - 1][];
+      for (int n = 0; n < numLayers - 1; n++)
+      {
+         wideWeights[n] = new double[weights[n].length];
+      }
+      Checkpoint.read(fileName, layerInfo, wideWeights);
+
+      for (int n = 0; n < numLayers - 1; n++)
+      {
+         for (int index = 0; index < weights[n].length; index++)
+         {
+            weights[n][index] = (float) wideWeights[n][index];
+         }
+      }
+   } // public void loadCheckpoint(String fileName) throws IOException
+
+   /**
+    * Copies double precision training data, such as the arrays the main classes build, into single precision arrays
+    *
+    * @param values the double precision values, one row per case
+    * @return the same values rounded to float
+    */
+   public static float[][] toFloat(double[][] values)
+   {
+      float[][] floats = new float[values.length][];
+      for (int row = 0; row < values.length; row++)
+      {
+         floats[row] = new float[values[row].length];
+         for (int column = 0; column < values[row].length; column++)
+         {
+            floats[row][column] = (float) values[row][column];
+         }
+      }
+      return floats;
+   } // public static float[][] toFloat(double[][] values)
+
+} // public class FirstTryFloat
@@ -0,0 +1,39 @@
+/**
+ * Inference Model
+ *
+ * A read-only view of a trained network. Implementations never change their own state while computing outputs; all working state
+ * of a call lives in the NetworkContext supplied by the caller, so one model can serve many threads as long as each thread keeps its
+ * own context.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public interface InferenceModel
+{
+
+   /**
+    * Computes the outputs of the model for one set of inputs
+    *
+    * @param inputs         the inputs to the model, which are only read
+    * @param outputs        the buffer that receives the outputs, at least getOutputCount() long
+    * @param networkContext the per-thread context that holds the working state of this call
+    * @return the outputs buffer
+    */
+   double[] infer(double[] inputs, double[] outputs, NetworkContext networkContext);
+
+   /**
+    * @return a new context sized for this model, to be reused by one thread at a time
+    */
+   NetworkContext newContext();
+
+   /**
+    * @return the number of inputs the model expects
+    */
+   int getInputCount();
+
+   /**
+    * @return the number of outputs the model produces
+    */
+   int getOutputCount();
+
+} // public interface InferenceModel
@@ -0,0 +1,19 @@
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Layer Backward Event
+ *
+ * The time backpropagation spends on one layer, in calculateBackprop or either accumulateGradients: the psi values of the layer and
+ * either the update or the gradient of its incoming weights.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+@Name("neuralnetwork.LayerBackward")
+@Label("Layer Backward")
+@Description("Backpropagation through one layer of a FirstTry or FirstTryFloat network")
+public class LayerBackwardEvent extends LayerEvent
+{
+} // public class LayerBackwardEvent extends LayerEvent
@@ -0,0 +1,62 @@
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Layer Event
+ *
+ * A Java Flight Recorder event that times the work of one layer of a FirstTry or FirstTryFloat network, so a recording shows which
+ * layer of a large network such as 10201-500-50-10-10201 takes the time. A layer's number is the number of the layer whose incoming
+ * weights the work reads or changes, from 1 for the first hidden layer to numLayers - 1 for the output layer, in both directions.
+ *
+ * Both networks create an event around every layer, begin it, and call record when the layer is done, giving it the batch size and
+ * the name of the code that ran the layer: the ComputeKernel for a FirstTry, mapped for a FirstTry reading mapped weights, and the
+ * ComputeKernel prefixed with float for a FirstTryFloat. The names are built once, so passing them costs nothing either. When no recording is running,
+ * or the recording has turned the event off, the event methods do nothing and the JIT removes the event altogether, so the events
+ * cost nothing unless they are being recorded. They are on in any recording by default, such as one started with
+ * -XX:StartFlightRecording, and a recording's settings can turn them off or give them a threshold by their names,
+ * neuralnetwork.LayerForward and neuralnetwork.LayerBackward.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+@Category({"Neural Network", "Layers"})
+@StackTrace(false)
+public abstract class LayerEvent extends Event
+{
+
+   @Label("Layer")
+   int layer;
+
+   @Label("Nodes")
+   int nodes;
+
+   @Label("Batch Size")
+   int batchSize;
+
+   @Label("Kernel")
+   String kernel;
+
+   /**
+    * Ends the event and, if the recording wants it, fills in its fields and writes it
+    *
+    * @param layer     the number of the layer
+    * @param nodes     the number of nodes in the layer
+    * @param batchSize the number of training cases in the batch the work belongs to
+    * @param kernel    the code that did the work, such as scalar, vector-256, float-scalar or mapped
+    */
+   void record(int layer, int nodes, int batchSize, String kernel)
+   {
+      end();
+      if (shouldCommit())
+      {
+         this.layer = layer;
+         this.nodes = nodes;
+         this.batchSize = batchSize;
+         this.kernel = kernel;
+         commit();
+      }
+   } // void record(int layer, int nodes, int batchSize, String kernel)
+
+} // public abstract class LayerEvent extends Event
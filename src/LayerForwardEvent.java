@@ -0,0 +1,19 @@
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Layer Forward Event
+ *
+ * The time one layer of the forward pass takes, in propagate, infer or propagateBatch, or in the propagate of FirstTryFloat: the
+ * theta values of the layer from the weights and the activations below, and the activation function.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+@Name("neuralnetwork.LayerForward")
+@Label("Layer Forward")
+@Description("The forward pass through one layer of a FirstTry or FirstTryFloat network")
+public class LayerForwardEvent extends LayerEvent
+{
+} // public class LayerForwardEvent extends LayerEvent
@@ -0,0 +1,432 @@
+import java.io.IOException;
+
+/**
+ * Lbfgs Optimizer
+ *
+ * A full-batch, second-order trainer for small training sets such as the four XOR cases or the five finger images. Every
+ * iteration computes the error and its gradient over all of the cases with the network's own propagate and accumulateGradients,
+ * then moves the weights along a quasi-Newton direction found by limited-memory BFGS from the last few steps and gradient changes,
+ * with a backtracking line search that only accepts a step that lowers the error enough (the Armijo condition). Plain gradient
+ * descent takes thousands of epochs on these problems because one learning rate has to suit every weight; L-BFGS adapts the step
+ * to the curvature of the error and usually needs tens.
+ *
+ * The error is the one train reports, half the squared difference averaged over every output of every case. One iteration counts
+ * as one epoch, and training stops on the same conditions as FirstTry.checkTrain, when the gradient is zero, or when no step along
+ * the direction of steepest descent lowers the error, both of which mean a minimum has been found. The learning rate is not used; the line search picks the steps.
+ *
+ * The steps, gradient changes and search buffers are allocated once, shaped like the weights, when training starts, along with the
+ * buffers that hold one case read from a SampleSource. When the
+ * network's optimizer is set to an LbfgsOptimizer, every train method of FirstTry trains with it, and it is chosen in a network
+ * file with "lbfgs", optionally followed by the number of steps it remembers, such as "0.01 lbfgs 10". Called through
+ * applyGradients, as ParallelTrainer does, it takes a plain gradient descent step.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class LbfgsOptimizer extends Optimizer
+{
+
+   static final double ARMIJO = 1e-4;           // the fraction of the predicted decrease a step must achieve
+   static final int MAX_BACKTRACKS = 40;
+   static final double MIN_CURVATURE = 1e-12;   // steps whose gradient change is smaller than this are not remembered
+   static final double MIN_GRADIENT = 1e-12;    // a gradient whose length is smaller than this is taken as zero
+
+   int memory;
+   double[][][] steps;                          // s, the last memory changes of the weights, oldest overwritten first
+   double[][][] gradientChanges;                // y, the matching changes of the gradient
+   double[] rho;                                // 1 / (y . s) of every remembered step
+   double[] alpha;
+   double[][] gradient;
+   double[][] direction;
+   double[][] startWeights;
+   double[][] startGradient;
+   double[] caseInputs;                         // one case read from a SampleSource
+   double[][] caseExpected;
+   int remembered;
+   int newest;
+
+   /**
+    * Constructs an LbfgsOptimizer
+    *
+    * @param memory the number of recent steps used to estimate the curvature, such as 10
+    */
+   public LbfgsOptimizer(int memory)
+   {
+      this.memory = Math.max(memory, 1);
+   }
+
+   /**
+    * Allocates the search buffers for a network with the given weights and forgets every remembered step
+    *
+    * @param weights the weights of the network, one flat array per layer
+    */
+   public void reset(double[][] weights)
+   {
+      steps = new double[memory][][];
+      gradientChanges = new double[memory][][];
+      for (int pair = 0; pair < memory; pair++)
+      {
+         steps[pair] = shapedLike(weights);
+         gradientChanges[pair] = shapedLike(weights);
+      }
+      rho = new double[memory];
+      alpha = new double[memory];
+      gradient = shapedLike(weights);
+      direction = shapedLike(weights);
+      startWeights = shapedLike(weights);
+      startGradient = shapedLike(weights);
+      remembered = 0;
+      newest = -1;
+   } // public void reset(double[][] weights)
+
+   /**
+    * Takes a plain gradient descent step, for callers that only hand over the gradient of a batch
+    *
+    * @param weights      the weights of the network, one flat array per layer
+    * @param gradients    the summed gradients of the batch, shaped like the weights
+    * @param learningRate the learning rate for the network
+    * @param numCases     the number of training cases whose gradients were summed
+    */
+   public void update(double[][] weights, double[][] gradients, double learningRate, int numCases)
+   {
+      double step = learningRate / numCases;
+      for (int n = 0; n < weights.length; n++)
+      {
+         FirstTry.KERNEL.axpy(step, gradients[n], 0, weights[n], 0, weights[n].length);
+      }
+   }
+
+   /**
+    * @return lbfgs followed by the number of steps remembered
+    */
+   public String name()
+   {
+      return "lbfgs " + memory;
+   }
+
+   /**
+    * Trains a network on a set of cases held in arrays
+    *
+    * @param network        the network whose weights are trained
+    * @param numTrainCases  the number of training cases
+    * @param inputs         the training cases
+    * @param expected       the expected results for the training cases
+    * @param epochs         the largest number of iterations
+    * @param errorThreshold the average error under which training stops
+    */
+   public void train(FirstTry network, int numTrainCases, double[][] inputs, double[][] expected, int epochs, double errorThreshold)
+   {
+      try
+      {
+         train(network, numTrainCases, inputs, expected, null, epochs, errorThreshold);
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException("cases held in arrays cannot fail to be read", e);
+      }
+   }
+
+   /**
+    * Trains a network on a set of cases read from a SampleSource, which is read in full once for every evaluation of the error
+    *
+    * @param network        the network whose weights are trained
+    * @param source         the training cases
+    * @param epochs         the largest number of iterations
+    * @param errorThreshold the average error under which training stops
+    */
+   public void train(FirstTry network, SampleSource source, int epochs, double errorThreshold) throws IOException
+   {
+      train(network, source.size(), null, null, source, epochs, errorThreshold);
+   }
+
+   /**
+    * Runs L-BFGS on the cases of either the arrays or the source
+    *
+    * @param network        the network whose weights are trained
+    * @param numTrainCases  the number of training cases
+    * @param inputs         the training cases, or null to read them from the source
+    * @param expected       the expected results for the training cases, or null to read them from the source
+    * @param source         the training cases, or null to read them from the arrays
+    * @param epochs         the largest number of iterations
+    * @param errorThreshold the average error under which training stops
+    */
+   private void train(FirstTry network, int numTrainCases, double[][] inputs, double[][] expected, SampleSource source, int epochs,
+                      double errorThreshold) throws IOException
+   {
+      double[][] weights = network.weights;
+      if (gradient == null || gradient.length != weights.length || gradient[0].length != weights[0].length ||
+              caseInputs == null || caseInputs.length != network.inputs || caseExpected[0].length != network.output)
+      {
+         reset(weights);
+         caseInputs = new double[network.inputs];
+         caseExpected = new double[1][network.output];
+      }
+      remembered = 0;
+      newest = -1;
+
+      double error = evaluate(network, numTrainCases, inputs, expected, source, gradient);
+      int numLoops = 0;
+
+      while (network.checkTrain(numLoops, epochs, error, errorThreshold) == -2)
+      {
+         //no direction leads down from a zero gradient, and the first step of steepest descent, 1 / |gradient|, would be infinite
+         if (Math.sqrt(dot(gradient, gradient)) < MIN_GRADIENT)
+         {
+            finish(network, numLoops + 1, error, "the gradient is zero at an error");
+            break;
+         }
+
+         findDirection();
+         double slope = dot(gradient, direction);
+         if (slope >= 0.0)
+         {
+            //not a descent direction, so start over from steepest descent
+            remembered = 0;
+            findDirection();
+            slope = dot(gradient, direction);
+         }
+
+         //the first step of steepest descent is one unit long; later steps start from the quasi-Newton step itself
+         double stepLength = remembered == 0 ? 1.0 / Math.sqrt(-slope) : 1.0;
+         copy(weights, startWeights);
+         copy(gradient, startGradient);
+
+         double newError = error;
+         boolean accepted = false;
+         for (int backtrack = 0; backtrack < MAX_BACKTRACKS && !accepted; backtrack++)
+         {
+            copy(startWeights, weights);
+            axpy(stepLength, direction, weights);
+            newError = evaluate(network, numTrainCases, inputs, expected, source, gradient);
+            accepted = newError <= error + ARMIJO * stepLength * slope;
+            if (!accepted)
+            {
+               stepLength *= 0.5;
+            }
+         }
+
+         if (!accepted)
+         {
+            copy(startWeights, weights);
+            copy(startGradient, gradient);
+            if (remembered == 0)
+            {
+               finish(network, numLoops + 1, error, "no step lowered the error");
+               break;
+            }
+            remembered = 0;
+         } // if (!accepted)
+         else
+         {
+            remember(stepLength);
+            error = newError;
+         }
+         numLoops++;
+      } // while (network.checkTrain(numLoops, epochs, error, errorThreshold) == -2)
+   } // private void train(FirstTry network, int numTrainCases, double[][] inputs, double[][] expected, SampleSource source, ...
+
+   /**
+    * Ends training for a reason of the optimizer's own. checkTrain is not called again, so the monitor and the checkpoint writer
+    * are told about the last iteration here.
+    *
+    * @param network  the network being trained
+    * @param numLoops the number of iterations run, counting the one that stopped
+    * @param error    the error of the network under its final weights
+    * @param reason   why training stopped, which the error follows in the message
+    */
+   private static void finish(FirstTry network, int numLoops, double error, String reason)
+   {
+      System.out.println("Training complete because " + reason + " of " + error + " after " + numLoops + " iterations");
+      network.endEpoch(numLoops, error, true);
+   }
+
+   /**
+    * Computes the error of the network over every case and its gradient with respect to the weights
+    *
+    * @param network       the network
+    * @param numTrainCases the number of training cases
+    * @param inputs        the training cases, or null to read them from the source
+    * @param expected      the expected results for the training cases, or null to read them from the source
+    * @param source        the training cases, or null to read them from the arrays
+    * @param errorGradient the buffer that receives the gradient of the error
+    * @return the error, half the squared difference averaged over every output of every case
+    */
+   private double evaluate(FirstTry network, int numTrainCases, double[][] inputs, double[][] expected, SampleSource source,
+                           double[][] errorGradient) throws IOException
+   {
+      int outputs = network.output;
+      double[] outputActivations = network.activations[network.numLayers - 1];
+      double error = 0.0;
+      network.clearGradients();
+
+      if (source == null)
+      {
+         for (int testCase = 0; testCase < numTrainCases; testCase++)
+         {
+            network.propagate(inputs[testCase]);
+            for (int node = 0; node < outputs; node++)
+            {
+               double difference = expected[testCase][node] - outputActivations[node];
+               error += 0.5 * difference * difference;
+            }
+            network.accumulateGradients(expected, testCase, numTrainCases);
+         }
+      } // if (source == null)
+      else
+      {
+         source.rewind();
+         while (source.next(caseInputs, caseExpected[0]))
+         {
+            network.propagate(caseInputs);
+            for (int node = 0; node < outputs; node++)
+            {
+               double difference = caseExpected[0][node] - outputActivations[node];
+               error += 0.5 * difference * difference;
+            }
+            network.accumulateGradients(caseExpected, 0, numTrainCases);
+         }
+      } // else
+
+      //the accumulated gradients point down hill and are summed over every output of every case
+      double scale = -1.0 / ((double) numTrainCases * outputs);
+      double[][] sums = network.context.gradients;
+      for (int n = 0; n < errorGradient.length; n++)
+      {
+         for (int index = 0; index < errorGradient[n].length; index++)
+         {
+            errorGradient[n][index] = scale * sums[n][index];
+         }
+      }
+      return error / ((double) numTrainCases * outputs);
+   } // private double evaluate(FirstTry network, int numTrainCases, double[][] inputs, double[][] expected, ...
+
+   /**
+    * Sets the direction to minus the gradient multiplied by the L-BFGS estimate of the inverse Hessian, with the two-loop recursion
+    */
+   private void findDirection()
+   {
+      for (int n = 0; n < direction.length; n++)
+      {
+         for (int index = 0; index < direction[n].length; index++)
+         {
+            direction[n][index] = -gradient[n][index];
+         }
+      }
+
+      int pair = newest;
+      for (int count = 0; count < remembered; count++)
+      {
+         alpha[pair] = rho[pair] * dot(steps[pair], direction);
+         axpy(-alpha[pair], gradientChanges[pair], direction);
+         pair = (pair + memory - 1) % memory;
+      }
+
+      if (remembered > 0)
+      {
+         //scale by the curvature of the newest step, the usual first guess at the inverse Hessian
+         double scale = dot(steps[newest], gradientChanges[newest]) / dot(gradientChanges[newest], gradientChanges[newest]);
+         for (int n = 0; n < direction.length; n++)
+         {
+            for (int index = 0; index < direction[n].length; index++)
+            {
+               direction[n][index] *= scale;
+            }
+         }
+      } // if (remembered > 0)
+
+      pair = (newest + memory - remembered + 1) % memory;
+      for (int count = 0; count < remembered; count++)
+      {
+         double beta = rho[pair] * dot(gradientChanges[pair], direction);
+         axpy(alpha[pair] - beta, steps[pair], direction);
+         pair = (pair + 1) % memory;
+      }
+   } // private void findDirection()
+
+   /**
+    * Stores the step just taken and the change of the gradient it caused, unless the change is too small to trust
+    *
+    * @param stepLength the length of the accepted step along the direction
+    */
+   private void remember(double stepLength)
+   {
+      int pair = (newest + 1) % memory;
+      double[][] step = steps[pair];
+      double[][] change = gradientChanges[pair];
+      for (int n = 0; n < step.length; n++)
+      {
+         for (int index = 0; index < step[n].length; index++)
+         {
+            step[n][index] = stepLength * direction[n][index];
+            change[n][index] = gradient[n][index] - startGradient[n][index];
+         }
+      }
+
+      double curvature = dot(step, change);
+      if (curvature > MIN_CURVATURE)
+      {
+         rho[pair] = 1.0 / curvature;
+         newest = pair;
+         remembered = Math.min(remembered + 1, memory);
+      }
+   } // private void remember(double stepLength)
+
+   /**
+    * @param a the first set of arrays
+    * @param b the second set of arrays, shaped like the first
+    * @return the dot product of the two as if every array of each were laid end to end
+    */
+   private static double dot(double[][] a, double[][] b)
+   {
+      double sum = 0.0;
+      for (int n = 0; n < a.length; n++)
+      {
+         sum = FirstTry.KERNEL.dot(a[n], 0, b[n], 0, a[n].length, sum);
+      }
+      return sum;
+   }
+
+   /**
+    * Adds a multiple of one set of arrays onto another, in place
+    *
+    * @param alpha the multiple of x that is added
+    * @param x     the arrays being added
+    * @param y     the arrays being changed, shaped like x
+    */
+   private static void axpy(double alpha, double[][] x, double[][] y)
+   {
+      for (int n = 0; n < x.length; n++)
+      {
+         FirstTry.KERNEL.axpy(alpha, x[n], 0, y[n], 0, x[n].length);
+      }
+   }
+
+   /**
+    * Copies one set of arrays into another of the same shape
+    *
+    * @param from the arrays copied
+    * @param to   the arrays that receive the copy
+    */
+   private static void copy(double[][] from, double[][] to)
+   {
+      for (int n = 0; n < from.length; n++)
+      {
+         System.arraycopy(from[n], 0, to[n], 0, from[n].length);
+      }
+   }
+
+   /**
+    * @param weights the arrays to match
+    * @return a new set of zeroed arrays shaped like the given ones
+    */
+   private static double[][] shapedLike(double[][] weights)
+   {
+      double[][] shaped = new double[weights.length][];
+      for (int n = 0; n < weights.length; n++)
+      {
+         shaped[n] = new double[weights[n].length];
+      }
+      return shaped;
+   }
+
+} // public class LbfgsOptimizer
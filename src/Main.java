@@ -1,12 +1,11 @@
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.Scanner;
 
 /**
- * The Main class creates and runs the neural network built in the FirstTry class. It also inputs the information into the
- * constructor of the network and also features the weights matrix for the neural network. The class also has test cases to test
- * whether the neural network performs as expected.
+ * The Main class creates and runs the neural network built in the FirstTry class, or in the FirstTryFloat class when the network
+ * file asks for float. It also inputs the information into the constructor of the network and also features the weights matrix for
+ * the neural network. The class also has test cases to test whether the neural network performs as expected.
  *
  * @author David Feng
  * @version February 20, 2020
@@ -17,6 +16,7 @@ public class Main
 
    private static String networkInfoFile = "networkInfo.txt";
    private static String testCasesFile = "testCases.txt";
+   private static String checkpointFile = "mainWeights.bin";
 
    /**
     * This method creates the FirstTry network, stores the weights matrix, and runs the four test cases for the neural network. It
@@ -35,6 +35,12 @@ public class Main
          networkInfoFile = args[0];
          testCasesFile = args[1];
       }
+      else if (args.length == 3)
+      {
+         networkInfoFile = args[0];
+         testCasesFile = args[1];
+         checkpointFile = args[2];
+      }
 
       System.out.println("Do you want to train the network [y/n]");
       Scanner readTrain = new Scanner(System.in);
@@ -42,201 +48,180 @@ public class Main
 
       // read basic neural network values: number of input nodes, hidden layer array, and number of output nodes
       String fileName = networkInfoFile;
-      Scanner sc = new Scanner(new FileReader(fileName));
-      int inputNodes = sc.nextInt();
-      int hiddenLayerLength = sc.nextInt();
-      sc.nextLine();
-      String[] hiddenLayerArray = sc.nextLine().split(",");
-      int[] hiddenLayerInformation = new int[hiddenLayerLength];
-      for (int i = 0; i < hiddenLayerLength; i++)
-      {
-         hiddenLayerInformation[i] = Integer.parseInt(hiddenLayerArray[i]);
-      }
-      int outputNodes = sc.nextInt();
-
-      // read basic values necessary for training
-      double minRandom = sc.nextDouble();
-      double maxRandom = sc.nextDouble();
-      double learningRate = sc.nextDouble();
-      int epochs = sc.nextInt();
-      double errorThreshold = sc.nextDouble();
-      sc.nextLine();
-
-      // set up weights matrix
-      FirstTry network = new FirstTry(inputNodes, hiddenLayerInformation, outputNodes);
-
-      // prints out basic information relevant to testing and training
-      System.out.println();
-      System.out.println("Basic Information");
-      System.out.println("Number of layers: " + network.numLayers);
-      System.out.println("Number of activations for each layer:");
-      for (int activation = 0; activation < network.numLayers; activation++)
-      {
-         System.out.println("Layer " + (activation + 1) + ": " + network.layerInfo[activation] + " activations");
-      }
-
-      if (trainOrNo.equals("y"))
+      NumberParser sc = new NumberParser(fileName);
+      try
       {
-         // prints out basic information
-         System.out.println("Error threshold: " + errorThreshold);
-         System.out.println("Max iterations allowed: " + epochs + " iterations");
-         System.out.println("Learning factor: " + learningRate);
-         System.out.println("Minimum weight: " + minRandom);
-         System.out.println("Maximum weight: " + maxRandom);
-
-         // Randomizing weights
-         for (int n = 0; n < network.numLayers - 1; n++)
-         {
-            for (int j = 0; j < network.layerInfo[n]; j++)
-            {
-               for (int i = 0; i < network.layerInfo[n + 1]; i++)
-               {
-                  network.weights[n][j][i] = network.randomize(minRandom, maxRandom);
-               }
-            }
-         }
-
-         // read the test cases
-         String testCasesData = testCasesFile;
-         Scanner second = new Scanner(new FileReader(testCasesData));
-         int numTestCases = second.nextInt();
-         String[][] testCases = new String[numTestCases][inputNodes];
-         second.nextLine();
-         for (int testCase = 0; testCase < numTestCases; testCase++)
+         int inputNodes = sc.nextInt();
+         int hiddenLayerLength = sc.nextInt();
+         sc.skipLine();
+         int[] hiddenLayerInformation = new int[hiddenLayerLength];
+         for (int i = 0; i < hiddenLayerLength; i++)
          {
-            testCases[testCase] = second.nextLine().split(",");
+            hiddenLayerInformation[i] = sc.nextInt();
          }
-
-         // creates test cases array
-         double[][] testCasesDouble = new double[numTestCases][inputNodes];
-         for (int testCase = 0; testCase < numTestCases; testCase++)
+         sc.skipLine();
+         int outputNodes = sc.nextInt();
+
+         // read basic values necessary for training
+         double minRandom = sc.nextDouble();
+         double maxRandom = sc.nextDouble();
+         double learningRate = sc.nextDouble();
+         int epochs = sc.nextInt();
+         double errorThreshold = sc.nextDouble();
+         // set up weights matrix; the word float may follow the last training value on its line for a single precision network, and
+         // an optimizer may follow that, such as "0.01 float" or "0.01 adam"; a double precision network with plain gradient descent
+         // is used without them
+         NeuralNetwork network = NeuralNetwork.read(sc, inputNodes, hiddenLayerInformation, outputNodes);
+         sc.skipLine();
+
+         // prints out basic information relevant to testing and training
+         System.out.println();
+         System.out.println("Basic Information");
+         System.out.println("Number of layers: " + network.numLayers);
+         System.out.println("Number of activations for each layer:");
+         for (int activation = 0; activation < network.numLayers; activation++)
          {
-            for (int testCaseNode = 0; testCaseNode < inputNodes; testCaseNode++)
-            {
-               testCasesDouble[testCase][testCaseNode] = Double.parseDouble(testCases[testCase][testCaseNode]);
-            }
+            System.out.println("Layer " + (activation + 1) + ": " + network.layerInfo[activation] + " activations");
          }
 
-         // makes the expected values array
-         String[][] expectedString = new String[numTestCases][outputNodes];
-         double[][] expectedDouble = new double[numTestCases][outputNodes];
-         for (int numCase = 0; numCase < numTestCases; numCase++)
+         if (trainOrNo.equals("y"))
          {
-            expectedString[numCase] = second.nextLine().split(",");
-            for (int node = 0; node < outputNodes; node++)
+            // prints out basic information
+            System.out.println("Error threshold: " + errorThreshold);
+            System.out.println("Max iterations allowed: " + epochs + " iterations");
+            System.out.println("Learning factor: " + learningRate);
+            System.out.println("Optimizer: " + network.optimizer.name());
+            System.out.println("Minimum weight: " + minRandom);
+            System.out.println("Maximum weight: " + maxRandom);
+
+            // Randomizing weights
+            for (int n = 0; n < network.numLayers - 1; n++)
             {
-               expectedDouble[numCase][node] = Double.parseDouble(expectedString[numCase][node]);
+               for (int j = 0; j < network.layerInfo[n]; j++)
+               {
+                  for (int i = 0; i < network.layerInfo[n + 1]; i++)
+                  {
+                     network.setWeight(n, j, i, network.randomize(minRandom, maxRandom));
+                  }
+               }
             }
-         }
 
-         // propagates the network
-         System.out.println();
-         System.out.println("Original training cases outputs: ");
-         for (int propogateCase = 0; propogateCase < numTestCases; propogateCase++)
-         {
-            network.propagate(testCasesDouble[propogateCase]);
+            // streams the test cases from the file instead of loading them, so only one case is in memory at a time
+            TestCaseSource testCases = new TestCaseSource(testCasesFile, inputNodes, outputNodes);
+            double[] caseInputs = new double[inputNodes];
+            double[] caseExpected = new double[outputNodes];
 
-            //prints the output of the test cases
-            for (int node = 0; node < outputNodes; node++)
+            // propagates the network
+            System.out.println();
+            System.out.println("Original training cases outputs: ");
+            while (testCases.next(caseInputs, caseExpected))
             {
-               System.out.println(network.activations[network.numLayers - 1][node]);
-            }
-         } // for (int propogateCase = 0; propogateCase < numTestCases; propogateCase++)
+               network.propagate(caseInputs);
 
-         // trains the network
-         System.out.println();
-         System.out.println("Post training outputs and expected outputs: ");
-         network.train(numTestCases, testCasesDouble, expectedDouble, learningRate, epochs, errorThreshold);
-         for (int propogateCase = 0; propogateCase < numTestCases; propogateCase++)
-         {
-            network.propagate(testCasesDouble[propogateCase]);
-
-            System.out.println("Test Case: " + propogateCase);
-            //prints the output of the test cases
-            for (int node = 0; node < outputNodes; node++)
+               //prints the output of the test cases
+               for (int node = 0; node < outputNodes; node++)
+               {
+                  System.out.println(network.getOutput(node));
+               }
+            } // while (testCases.next(caseInputs, caseExpected))
+
+            // trains the network
+            System.out.println();
+            System.out.println("Post training outputs and expected outputs: ");
+            network.train(testCases, learningRate, epochs, errorThreshold);
+            testCases.rewind();
+            int propogateCase = 0;
+            while (testCases.next(caseInputs, caseExpected))
             {
-               System.out.print("Post-training: " + network.activations[network.numLayers - 1][node]);
-               System.out.print("  |  Expected: " + expectedDouble[propogateCase][node]);
-               System.out.println();
-            }
-         } // for (int propogateCase = 0; propogateCase < numTestCases; propogateCase++)
+               network.propagate(caseInputs);
 
-         // prints out end weights
-         network.printWeights();
+               System.out.println("Test Case: " + propogateCase);
+               //prints the output of the test cases
+               for (int node = 0; node < outputNodes; node++)
+               {
+                  System.out.print("Post-training: " + network.getOutput(node));
+                  System.out.print("  |  Expected: " + caseExpected[node]);
+                  System.out.println();
+               }
+               propogateCase++;
+            } // while (testCases.next(caseInputs, caseExpected))
+            testCases.close();
 
-         // prints learning rate
-         System.out.println("Final learning rate: " + learningRate);
+            // prints out end weights
+            network.printWeights();
+            network.saveCheckpoint(checkpointFile);
 
-      } // if(trainOrNo.equals("y"))
+            // prints learning rate
+            System.out.println("Final learning rate: " + learningRate);
 
-      if (trainOrNo.equals("n"))
-      {
-         for (int i = 0; i < network.numLayers - 1; i++)
+         } // if(trainOrNo.equals("y"))
+
+         if (trainOrNo.equals("n"))
          {
-            for (int j = 0; j < network.layerInfo[i]; j++)
+            // loads the binary checkpoint saved by a training run, or falls back to the weights listed in the network file when there
+            // is none or it was saved from a network of another shape
+            if (!network.loadCheckpointIfPresent(checkpointFile))
             {
-               String[] temp = sc.nextLine().split(",");
-               double[] tempWeights = new double[network.layerInfo[i + 1]];
-               for (int numberOfWeights = 0; numberOfWeights < network.layerInfo[i + 1]; numberOfWeights++)
+               double[] temp = new double[network.layerInfo[1]];
+               for (int i = 0; i < network.numLayers - 1; i++)
                {
-                  tempWeights[numberOfWeights] = Double.parseDouble(temp[numberOfWeights]);
-               }
-               network.weights[i][j] = tempWeights;
+                  if (temp.length < network.layerInfo[i + 1])
+                  {
+                     temp = new double[network.layerInfo[i + 1]];
+                  }
+                  for (int j = 0; j < network.layerInfo[i]; j++)
+                  {
+                     sc.readDoubles(temp, network.layerInfo[i + 1]);
+                     for (int numberOfWeights = 0; numberOfWeights < network.layerInfo[i + 1]; numberOfWeights++)
+                     {
+                        network.setWeight(i, j, numberOfWeights, temp[numberOfWeights]);
+                     }
+                  }
+               } // for (int i = 0; i < network.numLayers - 1; i++)
             }
-         } // for (int i = 0; i < network.numLayers - 1; i++)
-         // read the test cases
-         String testCasesData = testCasesFile;
-         Scanner second = new Scanner(new FileReader(testCasesData));
-         int numTestCases = second.nextInt();
-         String[][] testCases = new String[numTestCases][inputNodes];
-         second.nextLine();
-         for (int testCase = 0; testCase < numTestCases; testCase++)
-         {
-            testCases[testCase] = second.nextLine().split(",");
-         }
-
-         // creates test cases array
-         double[][] testCasesDouble = new double[numTestCases][inputNodes];
-         for (int testCase = 0; testCase < numTestCases; testCase++)
-         {
-            for (int testCaseNode = 0; testCaseNode < inputNodes; testCaseNode++)
+            // read the test cases
+            NumberParser second = new NumberParser(testCasesFile);
+            int numTestCases = second.nextInt();
+            second.skipLine();
+            double[][] testCasesDouble = new double[numTestCases][inputNodes];
+            for (int testCase = 0; testCase < numTestCases; testCase++)
             {
-               testCasesDouble[testCase][testCaseNode] = Double.parseDouble(testCases[testCase][testCaseNode]);
+               second.readDoubles(testCasesDouble[testCase], inputNodes);
             }
-         }
 
-         // makes the expected values array
-         String[][] expectedString = new String[numTestCases][outputNodes];
-         double[][] expectedDouble = new double[numTestCases][outputNodes];
-         for (int numCase = 0; numCase < numTestCases; numCase++)
-         {
-            expectedString[numCase] = second.nextLine().split(",");
-            for (int node = 0; node < outputNodes; node++)
+            // makes the expected values array
+            double[][] expectedDouble = new double[numTestCases][outputNodes];
+            for (int numCase = 0; numCase < numTestCases; numCase++)
             {
-               expectedDouble[numCase][node] = Double.parseDouble(expectedString[numCase][node]);
+               second.readDoubles(expectedDouble[numCase], outputNodes);
             }
-         }
-
-         // propagates the network
-         System.out.println();
-         System.out.println("Original test cases outputs: ");
-         for (int propogateCase = 0; propogateCase < numTestCases; propogateCase++)
-         {
-            network.propagate(testCasesDouble[propogateCase]);
-
-            //prints the output of the test cases
-            for (int node = 0; node < outputNodes; node++)
+            second.close();
+
+            // propagates the network
+            System.out.println();
+            System.out.println("Original test cases outputs: ");
+            double[][] testCaseOutputs = new double[numTestCases][outputNodes];
+            network.propagateBatch(testCasesDouble, testCaseOutputs);
+            for (int propogateCase = 0; propogateCase < numTestCases; propogateCase++)
             {
-               System.out.print("Original: " + network.activations[network.numLayers - 1][node]);
-               System.out.print("  |  Expected: " + expectedDouble[propogateCase][node]);
-               System.out.println();
-            }
-         } // for (int propogateCase = 0; propogateCase < numTestCases; propogateCase++)
+               //prints the output of the test cases
+               for (int node = 0; node < outputNodes; node++)
+               {
+                  System.out.print("Original: " + testCaseOutputs[propogateCase][node]);
+                  System.out.print("  |  Expected: " + expectedDouble[propogateCase][node]);
+                  System.out.println();
+               }
+            } // for (int propogateCase = 0; propogateCase < numTestCases; propogateCase++)
 
-         // prints out weights
-         System.out.println();
-         System.out.println("Weights:");
-         network.printWeights();
-      } // if(trainOrNo.equals("n"))
+            // prints out weights
+            System.out.println();
+            System.out.println("Weights:");
+            network.printWeights();
+         } // if(trainOrNo.equals("n"))
+      }
+      finally
+      {
+         sc.close();
+      }
    } // public static void main(String[] args) throws FileNotFoundException, IOException
 } // public class Main
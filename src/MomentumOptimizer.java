@@ -0,0 +1,82 @@
+/**
+ * Momentum Optimizer
+ *
+ * Gradient descent with momentum. Every weight has a velocity that keeps a fraction of its previous step and adds the new one,
+ *
+ *    v = momentum * v + learningRate * g / numCases
+ *    w += v
+ *
+ * so steps that keep pointing the same way build up speed and steps that alternate cancel out. The velocities are kept in buffers
+ * shaped like the weights.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class MomentumOptimizer extends Optimizer
+{
+
+   double momentum;
+   double[][] velocity;
+
+   /**
+    * Constructs a MomentumOptimizer
+    *
+    * @param momentum the fraction of the previous step kept in the next, such as 0.9
+    */
+   public MomentumOptimizer(double momentum)
+   {
+      this.momentum = momentum;
+   }
+
+   /**
+    * Allocates a velocity of zero for every weight of a network with the given weights
+    *
+    * @param weights the weights of the network, one flat array per layer
+    */
+   public void reset(double[][] weights)
+   {
+      velocity = new double[weights.length][];
+      for (int n = 0; n < weights.length; n++)
+      {
+         velocity[n] = new double[weights[n].length];
+      }
+   }
+
+   /**
+    * Moves every weight by its velocity after adding the new step to it
+    *
+    * @param weights      the weights of the network, one flat array per layer
+    * @param gradients    the summed gradients of the batch, shaped like the weights
+    * @param learningRate the learning rate for the network
+    * @param numCases     the number of training cases whose gradients were summed
+    */
+   public void update(double[][] weights, double[][] gradients, double learningRate, int numCases)
+   {
+      if (velocity == null)
+      {
+         reset(weights);
+      }
+      double step = learningRate / numCases;
+
+      for (int n = 0; n < weights.length; n++)
+      {
+         double[] layerWeights = weights[n];
+         double[] layerGradients = gradients[n];
+         double[] layerVelocity = velocity[n];
+         for (int index = 0; index < layerWeights.length; index++)
+         {
+            layerVelocity[index] = momentum * layerVelocity[index] + step * layerGradients[index];
+            layerWeights[index] += layerVelocity[index];
+         }
+      }
+   } // public void update(double[][] weights, double[][] gradients, double learningRate, int numCases)
+
+   /**
+    * @return momentum followed by the fraction of the previous step kept
+    */
+   public String name()
+   {
+      return "momentum " + momentum;
+   }
+
+} // public class MomentumOptimizer
@@ -0,0 +1,329 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Network Benchmark
+ *
+ * This class is a self-contained microbenchmark for the hot paths of the project: FirstTry.propagate, propagateBatch,
+ * calculateBackprop and train, the same passes of the single precision FirstTryFloat, DibDump.BMPtoArray and arrayToBMP, and
+ * BmpDecoder.decodeInputs, and the epoch throughput of ParallelTrainer for one worker and for more, doubling up to the number of
+ * processors. The JMH suite in the benchmarks module (mvn package, then java -jar benchmarks/target/benchmarks.jar)
+ * measures the same operations with forks, blackholes and error bars and should be preferred; this class is the fallback for when
+ * only javac is available. Every operation is first run for a warmup period so that the JIT has compiled it, then run for a
+ * measurement period, and the average time and the average number of bytes allocated on the heap are reported per operation.
+ * Console output of the measured code is discarded while it runs.
+ *
+ * The topologies are written as inputs-hidden,hidden-outputs. With no arguments the benchmark runs the networks built by the main
+ * classes: the XOR network of testCases.txt, the DianeMain autoencoder, and the FingerMain network with the hidden layers of
+ * networkInfo2.txt. Arguments replace that list, an argument of the form seconds=N changes the measurement period, and one of the
+ * form workers=N changes the largest number of ParallelTrainer workers.
+ *
+ *    java -cp out NetworkBenchmark
+ *    java -cp out NetworkBenchmark 2-10,11-3 seconds=5 workers=8
+ *
+ * Methods in this class
+ * void     main
+ * void     benchmarkNetwork
+ * void     benchmarkFloatNetwork
+ * void     benchmarkParallel
+ * void     benchmarkBitmaps
+ * double   measure
+ * FirstTry buildNetwork
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class NetworkBenchmark
+{
+
+   static final String[] DEFAULT_TOPOLOGIES = {"2-10,11-3", "10201-500,50,10-10201", "2500-500,50,10-1"};
+   static final int BATCH_SIZE = 8;
+   static final int PARALLEL_BATCH_SIZE = 32;
+   static final String BITMAP_FILE = "One.bmp";
+
+   private static double warmupSeconds = 1.0;
+   private static double measureSeconds = 2.0;
+   private static int maxWorkers = Runtime.getRuntime().availableProcessors();
+   private static PrintStream console = System.out;
+   private static PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+   /**
+    * A single call of the code being measured
+    */
+   private interface Operation
+   {
+      void run() throws IOException;
+   }
+
+   /**
+    * Runs every benchmark for every topology and prints one line per benchmark
+    *
+    * @param args topologies such as 2-10,11-3, and optionally seconds=N for the measurement period and workers=N for the largest
+    *             number of workers
+    */
+   public static void main(String[] args) throws IOException
+   {
+      String[] topologies = DEFAULT_TOPOLOGIES;
+      int count = 0;
+      String[] given = new String[args.length];
+      for (String argument : args)
+      {
+         if (argument.startsWith("seconds="))
+         {
+            measureSeconds = Double.parseDouble(argument.substring("seconds=".length()));
+            warmupSeconds = measureSeconds / 2.0;
+         }
+         else if (argument.startsWith("workers="))
+         {
+            maxWorkers = Integer.parseInt(argument.substring("workers=".length()));
+         }
+         else
+         {
+            given[count] = argument;
+            count++;
+         }
+      }
+      if (count > 0)
+      {
+         topologies = Arrays.copyOf(given, count);
+      }
+
+      console.printf("kernel: %s, warmup %.1f s, measurement %.1f s%n%n", ComputeKernel.ACTIVE.name(), warmupSeconds, measureSeconds);
+      console.printf("%-50s %14s %14s %12s%n", "benchmark", "ns/op", "bytes/op", "MB/s alloc");
+
+      for (String topology : topologies)
+      {
+         benchmarkNetwork(topology);
+         benchmarkFloatNetwork(topology);
+         benchmarkParallel(topology);
+      }
+      benchmarkBitmaps();
+   } // public static void main(String[] args) throws IOException
+
+   /**
+    * Measures propagate, propagateBatch, calculateBackprop and one epoch of train on one topology with random weights and inputs
+    *
+    * @param topology the topology, written as inputs-hidden,hidden-outputs
+    */
+   public static void benchmarkNetwork(String topology) throws IOException
+   {
+      FirstTry network = buildNetwork(topology);
+      Random random = new Random(42);
+      for (double[] layerWeights : network.weights)
+      {
+         for (int index = 0; index < layerWeights.length; index++)
+         {
+            layerWeights[index] = (random.nextDouble() * 2.0 - 1.0) / Math.sqrt(layerWeights.length / 10.0 + 1.0);
+         }
+      }
+
+      double[][] inputs = new double[BATCH_SIZE][network.inputs];
+      double[][] expected = new double[BATCH_SIZE][network.output];
+      double[][] outputs = new double[BATCH_SIZE][network.output];
+      for (int sample = 0; sample < BATCH_SIZE; sample++)
+      {
+         for (int node = 0; node < network.inputs; node++)
+         {
+            inputs[sample][node] = random.nextDouble();
+         }
+         for (int node = 0; node < network.output; node++)
+         {
+            expected[sample][node] = random.nextDouble();
+         }
+      }
+
+      measure(topology + " propagate", () -> network.propagate(inputs[0]));
+      measure(topology + " propagateBatch/" + BATCH_SIZE, () -> network.propagateBatch(inputs, outputs));
+      measure(topology + " propagate+calculateBackprop", () ->
+      {
+         network.propagate(inputs[0]);
+         network.calculateBackprop(expected, 0, 0.001);
+      });
+      measure(topology + " train epoch/" + BATCH_SIZE, () ->
+              network.train(BATCH_SIZE, inputs, expected, 0.001, 1, 0.0, BATCH_SIZE));
+   } // public static void benchmarkNetwork(String topology) throws IOException
+
+   /**
+    * Measures propagate, propagateBatch, propagate with accumulateGradients, and one epoch of train of a FirstTryFloat on one topology
+    * with the same random weights and inputs as benchmarkNetwork, so the two precisions can be compared line by line
+    *
+    * @param topology the topology, written as inputs-hidden,hidden-outputs
+    */
+   public static void benchmarkFloatNetwork(String topology) throws IOException
+   {
+      FirstTry shape = buildNetwork(topology);
+      FirstTryFloat network = new FirstTryFloat(shape.inputs, shape.hidden, shape.output);
+      Random random = new Random(42);
+      for (float[] layerWeights : network.weights)
+      {
+         for (int index = 0; index < layerWeights.length; index++)
+         {
+            layerWeights[index] = (float) ((random.nextDouble() * 2.0 - 1.0) / Math.sqrt(layerWeights.length / 10.0 + 1.0));
+         }
+      }
+
+      float[][] inputs = new float[BATCH_SIZE][network.inputs];
+      float[][] expected = new float[BATCH_SIZE][network.output];
+      double[][] batchInputs = new double[BATCH_SIZE][network.inputs];
+      double[][] outputs = new double[BATCH_SIZE][network.output];
+      for (int sample = 0; sample < BATCH_SIZE; sample++)
+      {
+         for (int node = 0; node < network.inputs; node++)
+         {
+            inputs[sample][node] = (float) random.nextDouble();
+            batchInputs[sample][node] = inputs[sample][node];
+         }
+         for (int node = 0; node < network.output; node++)
+         {
+            expected[sample][node] = (float) random.nextDouble();
+         }
+      }
+
+      measure(topology + " float propagate", () -> network.propagate(inputs[0]));
+      measure(topology + " float propagateBatch/" + BATCH_SIZE, () -> network.propagateBatch(batchInputs, outputs));
+      measure(topology + " float propagate+accumulateGradients", () ->
+      {
+         network.propagate(inputs[0]);
+         network.accumulateGradients(expected[0], 1);
+      });
+      measure(topology + " float train epoch/" + BATCH_SIZE, () ->
+              network.train(BATCH_SIZE, inputs, expected, 0.001, 1, 0.0, BATCH_SIZE));
+   } // public static void benchmarkFloatNetwork(String topology) throws IOException
+
+   /**
+    * Measures one epoch of ParallelTrainer over a single batch of random cases with 1, 2, 4 and so on workers up to the largest number
+    * of workers, and the number of cases trained per second, so the scaling of the trainer can be read against the core count
+    *
+    * @param topology the topology, written as inputs-hidden,hidden-outputs
+    */
+   public static void benchmarkParallel(String topology) throws IOException
+   {
+      FirstTry network = buildNetwork(topology);
+      Random random = new Random(42);
+      double[][] inputs = new double[PARALLEL_BATCH_SIZE][network.inputs];
+      double[][] expected = new double[PARALLEL_BATCH_SIZE][network.output];
+      for (int sample = 0; sample < PARALLEL_BATCH_SIZE; sample++)
+      {
+         for (int node = 0; node < network.inputs; node++)
+         {
+            inputs[sample][node] = random.nextDouble();
+         }
+         for (int node = 0; node < network.output; node++)
+         {
+            expected[sample][node] = random.nextDouble();
+         }
+      }
+
+      // doubles the workers each time, but always ends with exactly the largest number
+      int workers = 1;
+      while (workers <= maxWorkers)
+      {
+         ParallelTrainer trainer = new ParallelTrainer(network, workers);
+         try
+         {
+            double nanosPerEpoch = measure(topology + " parallel epoch/" + PARALLEL_BATCH_SIZE + " workers=" + workers, () ->
+                    trainer.train(PARALLEL_BATCH_SIZE, inputs, expected, 0.001, 1, 0.0, PARALLEL_BATCH_SIZE));
+            console.printf("%-50s %14.1f cases/s%n", "", PARALLEL_BATCH_SIZE * 1e9 / nanosPerEpoch);
+         }
+         finally
+         {
+            trainer.shutdown();
+         }
+         workers = workers == maxWorkers ? workers + 1 : Math.min(workers * 2, maxWorkers);
+      } // while (workers <= maxWorkers)
+   } // public static void benchmarkParallel(String topology) throws IOException
+
+   /**
+    * Measures decoding a bitmap into an array and encoding the array back into a bitmap
+    */
+   public static void benchmarkBitmaps() throws IOException
+   {
+      if (!new File(BITMAP_FILE).exists())
+      {
+         console.println("skipping bitmap benchmarks, " + BITMAP_FILE + " not found");
+         return;
+      }
+
+      DibDump dibdumper = new DibDump();
+      File output = File.createTempFile("benchmark", ".bmp");
+      output.deleteOnExit();
+
+      System.setOut(discard);
+      int[][] pels = dibdumper.BMPtoArray(BITMAP_FILE);
+      System.setOut(console);
+
+      measure("DibDump.BMPtoArray " + BITMAP_FILE, () -> dibdumper.BMPtoArray(BITMAP_FILE));
+      measure("DibDump.arrayToBMP " + BITMAP_FILE, () -> dibdumper.arrayToBMP(pels, output.getPath()));
+
+      BmpDecoder decoder = new BmpDecoder();
+      double[] inputs = decoder.decodeInputs(BITMAP_FILE, BmpInputMode.GRAYSCALE);
+      measure("BmpDecoder.decodeInputs GRAYSCALE " + BITMAP_FILE,
+              () -> decoder.decodeInputs(BITMAP_FILE, BmpInputMode.GRAYSCALE, inputs));
+   } // public static void benchmarkBitmaps() throws IOException
+
+   /**
+    * Runs an operation for the warmup period, then for the measurement period, and prints the average time and heap allocation per
+    * call. Allocation is read from the per-thread allocation counter of the JVM, so the allocation of other threads, such as the
+    * workers of a ParallelTrainer, is not counted.
+    *
+    * @param name      the name printed for the benchmark
+    * @param operation the code being measured
+    * @return the average time of one call in nanoseconds
+    */
+   static double measure(String name, Operation operation) throws IOException
+   {
+      com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      long threadId = Thread.currentThread().getId();
+
+      System.setOut(discard);
+      long warmupEnd = System.nanoTime() + (long) (warmupSeconds * 1e9);
+      while (System.nanoTime() < warmupEnd)
+      {
+         operation.run();
+      }
+
+      long operations = 0;
+      long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+      long start = System.nanoTime();
+      long end = start + (long) (measureSeconds * 1e9);
+      long now = start;
+      while (now < end || operations == 0)
+      {
+         operation.run();
+         operations++;
+         now = System.nanoTime();
+      }
+      long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+      System.setOut(console);
+
+      double nanosPerOperation = (double) (now - start) / operations;
+      double bytesPerOperation = (double) bytes / operations;
+      double megabytesPerSecond = bytes / ((now - start) / 1e9) / (1 << 20);
+      console.printf("%-50s %14.1f %14.1f %12.1f%n", name, nanosPerOperation, bytesPerOperation, megabytesPerSecond);
+      return nanosPerOperation;
+   } // static double measure(String name, Operation operation) throws IOException
+
+   /**
+    * Builds a network from a topology written as inputs-hidden,hidden-outputs
+    *
+    * @param topology the topology
+    * @return the network
+    */
+   static FirstTry buildNetwork(String topology)
+   {
+      String[] parts = topology.split("-");
+      String[] hiddenParts = parts[1].split(",");
+      int[] hiddenLayerNodes = new int[hiddenParts.length];
+      for (int layer = 0; layer < hiddenParts.length; layer++)
+      {
+         hiddenLayerNodes[layer] = Integer.parseInt(hiddenParts[layer]);
+      }
+      return new FirstTry(Integer.parseInt(parts[0]), hiddenLayerNodes, Integer.parseInt(parts[2]));
+   }
+
+} // public class NetworkBenchmark
@@ -0,0 +1,122 @@
+/**
+ * Network Context
+ *
+ * This class holds the per-call working state of a FirstTry network: the activations and theta values of the forward pass, the
+ * omega and psi values of backpropagation, and a gradient buffer shaped like the weights. The weights themselves stay in the
+ * FirstTry object, so several contexts can run the same network at once as long as every thread uses its own context.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class NetworkContext
+{
+
+   double[][] activations;
+   double[][] thetaArray;
+   double[][] psiArray;
+   double[][] omegaArray;
+   double[][] gradients;
+   double[][] batchActivations;
+   int batchCapacity;
+
+   /**
+    * Constructs a NetworkContext with freshly allocated buffers sized for the layers of the given network
+    *
+    * @param network the network this context will be used with
+    */
+   public NetworkContext(FirstTry network)
+   {
+      int numLayers = network.numLayers;
+
+      activations = new double[numLayers][];
+      thetaArray = new double[numLayers][];
+      psiArray = new double[numLayers][];
+      omegaArray = new double[numLayers][];
+      for (int layer = 0; layer < numLayers; layer++)
+      {
+         activations[layer] = new double[network.layerInfo[layer]];
+         thetaArray[layer] = new double[network.layerInfo[layer]];
+         psiArray[layer] = new double[network.layerInfo[layer]];
+         omegaArray[layer] = new double[network.layerInfo[layer]];
+      }
+
+      // a network mapped read-only from a checkpoint cannot be trained, so its contexts need no gradient buffers
+      if (network.mappedWeights == null)
+      {
+         gradients = new double[numLayers - 1][];
+         for (int n = 0; n < numLayers - 1; n++)
+         {
+            gradients[n] = new double[network.layerInfo[n] * network.layerInfo[n + 1]];
+         }
+      }
+   } // public NetworkContext(FirstTry network)
+
+   /**
+    * Constructs a NetworkContext around buffers that already exist, which lets a network expose its own fields as a context
+    *
+    * @param activations the activations of every layer
+    * @param thetaArray  the weighted sums of every layer
+    * @param psiArray    the psi values of every layer
+    * @param omegaArray  the omega values of every layer
+    * @param gradients   the gradient buffer of every weight layer
+    */
+   public NetworkContext(double[][] activations, double[][] thetaArray, double[][] psiArray, double[][] omegaArray,
+                         double[][] gradients)
+   {
+      this.activations = activations;
+      this.thetaArray = thetaArray;
+      this.psiArray = psiArray;
+      this.omegaArray = omegaArray;
+      this.gradients = gradients;
+   }
+
+   /**
+    * Makes sure the batch buffers can hold the activations of at least the given number of samples per layer. The buffers hold one
+    * flat array per layer with the activations of sample b at [b * nodes, (b + 1) * nodes) and only grow, so a context that is
+    * reused for batches of the same size allocates nothing after the first call.
+    *
+    * @param layerInfo the number of nodes in every layer of the network
+    * @param batchSize the number of samples in the batch
+    */
+   public void ensureBatchCapacity(int[] layerInfo, int batchSize)
+   {
+      if (batchActivations == null || batchCapacity < batchSize)
+      {
+         batchActivations = new double[layerInfo.length][];
+         for (int layer = 1; layer < layerInfo.length; layer++)
+         {
+            batchActivations[layer] = new double[batchSize * layerInfo[layer]];
+         }
+         batchCapacity = batchSize;
+      }
+   } // public void ensureBatchCapacity(int[] layerInfo, int batchSize)
+
+   /**
+    * Sets every value in the gradient buffer back to zero
+    */
+   public void clearGradients()
+   {
+      for (int n = 0; n < gradients.length; n++)
+      {
+         double[] layerGradients = gradients[n];
+         for (int index = 0; index < layerGradients.length; index++)
+         {
+            layerGradients[index] = 0.0;
+         }
+      }
+   }
+
+   /**
+    * Adds the gradient buffer of another context into the gradient buffer of this one
+    *
+    * @param other the context whose gradients are added
+    */
+   public void addGradients(NetworkContext other)
+   {
+      for (int n = 0; n < gradients.length; n++)
+      {
+         FirstTry.KERNEL.axpy(1.0, other.gradients[n], 0, gradients[n], 0, gradients[n].length);
+      }
+   }
+
+} // public class NetworkContext
@@ -0,0 +1,473 @@
+import java.io.*;
+
+/**
+ * Neural Network
+ *
+ * The parts of the fully-connected, feed-forward neural network that do not depend on the precision of its weights, shared by
+ * FirstTry, which keeps everything in double, and FirstTryFloat, which keeps its weights, activations and training buffers in float.
+ * A network of either precision has the same layers, output functions, flat weight layout, training stop conditions, monitor and
+ * checkpoint hooks, and checkpoint files, so a driver can train or run either one through this class and only picks the precision
+ * when it constructs the network.
+ *
+ * The weight from node j of layer n to node i of layer n + 1 lives at index weightIndex(n, j, i) = i * layerInfo[n] + j of the flat
+ * weights of layer n, and weightAt reads it from there. Checkpoints always store the weights as double, so a checkpoint saved by a
+ * network of one precision loads into a network of the other.
+ *
+ * A network file picks the precision with the word float after the last training value on its line, before any optimizer, such as
+ * "0.01 float"; read builds a FirstTryFloat for it and a FirstTry otherwise. A FirstTryFloat only trains with plain gradient
+ * descent. The parallel trainer, the L-BFGS optimizer, infer and mapped checkpoints are only available to a FirstTry.
+ *
+ * Methods in this class
+ * NeuralNetwork read
+ * void   propagate
+ * void   propagateBatch
+ * double getOutput
+ * int    getInputCount
+ * int    getOutputCount
+ * double outputFunction
+ * double outputFunctionPrime
+ * void   setActivation
+ * void   setOptimizer
+ * void   setMonitor
+ * void   setCheckpointWriter
+ * void   train
+ * int    checkTrain
+ * double randomize
+ * int    weightIndex
+ * double weightAt
+ * double getWeight
+ * void   setWeight
+ * void   printWeights
+ * void   saveCheckpoint
+ * void   loadCheckpoint
+ * boolean loadCheckpointIfPresent
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public abstract class NeuralNetwork
+{
+
+   int inputs;
+   int numLayers;
+   int[] layerInfo;
+   int[] hidden;
+   int output;
+   ActivationFunction[] layerFunctions;
+   Optimizer optimizer = new SgdOptimizer();
+   TrainingMonitor monitor;
+   CheckpointWriter checkpointWriter;
+
+   /**
+    * Sets up the layers of the network: the number of nodes in every layer, and the sigmoid output function for every layer after
+    * the input layer. The subclass allocates the weights and the working arrays in its own precision.
+    *
+    * @param inputNodes       the number of input nodes in the neural network
+    * @param hiddenLayerNodes an array of integers that indicates the number hidden layers and the number of nodes in every hidden
+    *                         layer
+    * @param outputNodes      the number of output nodes in the neural network
+    */
+   NeuralNetwork(int inputNodes, int[] hiddenLayerNodes, int outputNodes)
+   {
+      //creates the global variables
+      inputs = inputNodes;
+      hidden = hiddenLayerNodes;
+      output = outputNodes;
+      numLayers = hiddenLayerNodes.length + 2;
+
+      //creates the layer info array
+      layerInfo = new int[numLayers];
+      layerInfo[0] = inputs;
+      for (int layer = 1; layer < numLayers - 1; layer++)
+      {
+         layerInfo[layer] = hiddenLayerNodes[layer - 1];
+      }
+      layerInfo[numLayers - 1] = outputNodes;
+
+      //every layer after the input layer starts with the sigmoid output function
+      layerFunctions = new ActivationFunction[numLayers];
+      setActivation(ActivationFunction.SIGMOID);
+   } // NeuralNetwork(int inputNodes, int[] hiddenLayerNodes, int outputNodes)
+
+   /**
+    * Builds the network a network file describes once its layers have been read. The rest of the line of the last training value
+    * may hold the word float, which makes the network single precision, and then an optimizer, such as "0.01 float" or
+    * "0.01 adam"; without them the network is double precision and uses plain gradient descent.
+    *
+    * @param sc               the parser, placed after the last training value of its line
+    * @param inputNodes       the number of input nodes in the neural network
+    * @param hiddenLayerNodes the number of nodes in every hidden layer
+    * @param outputNodes      the number of output nodes in the neural network
+    * @return a FirstTryFloat if the line asks for float, or a FirstTry
+    */
+   public static NeuralNetwork read(NumberParser sc, int inputNodes, int[] hiddenLayerNodes, int outputNodes) throws IOException
+   {
+      int line = sc.getLine();
+      boolean singlePrecision = sc.skipWord("float");
+      Optimizer optimizer = Optimizer.read(sc);
+
+      NeuralNetwork network;
+      if (singlePrecision)
+      {
+         if (optimizer != null && !(optimizer instanceof SgdOptimizer))
+         {
+            throw new IOException(sc.fileName + " line " + line + ": a float network only trains with sgd, not " + optimizer.name());
+         }
+         network = new FirstTryFloat(inputNodes, hiddenLayerNodes, outputNodes);
+      }
+      else
+      {
+         network = new FirstTry(inputNodes, hiddenLayerNodes, outputNodes);
+      }
+
+      if (optimizer != null)
+      {
+         network.setOptimizer(optimizer);
+      }
+      return network;
+   } // public static NeuralNetwork read(NumberParser sc, int inputNodes, int[] hiddenLayerNodes, int outputNodes) ...
+
+   /**
+    * Calculates the activations of every layer for one set of inputs
+    *
+    * @param inputs a double array of the inputs to the neural network
+    */
+   public abstract void propagate(double[] inputs);
+
+   /**
+    * Propagates a whole batch of inputs through the network and copies the outputs of every sample into the matching row of outputs
+    *
+    * @param inputs  the inputs of every sample in the batch
+    * @param outputs the buffers that receive the outputs of every sample, one row per sample
+    */
+   public abstract void propagateBatch(double[][] inputs, double[][] outputs);
+
+   /**
+    * Reads one output of the most recent propagate
+    *
+    * @param node the node of the output layer
+    * @return the activation of the node
+    */
+   public abstract double getOutput(int node);
+
+   /**
+    * @return the number of input nodes in the neural network
+    */
+   public int getInputCount()
+   {
+      return inputs;
+   }
+
+   /**
+    * @return the number of output nodes in the neural network
+    */
+   public int getOutputCount()
+   {
+      return output;
+   }
+
+   /**
+    * This is the output function applied to each node of the output layer to produce the final output
+    *
+    * @param x the input that is passed into the output function
+    * @return the result of the output function
+    */
+   public double outputFunction(double x)
+   {
+      return layerFunctions[numLayers - 1].apply(x);
+   }
+
+   /**
+    * The derivative of the output function, which is integral in the training process. Backpropagation itself uses the derivative
+    * written in terms of the stored activation, so it never evaluates the output function twice.
+    *
+    * @param x the input that is passed into this derivative function
+    * @return the result of the output derivative function
+    */
+   public double outputFunctionPrime(double x)
+   {
+      return layerFunctions[numLayers - 1].derivativeFromOutput(outputFunction(x));
+   }
+
+   /**
+    * Uses the same output function for every layer after the input layer
+    *
+    * @param function the output function of every layer
+    */
+   public void setActivation(ActivationFunction function)
+   {
+      setActivation(function, function);
+   }
+
+   /**
+    * Uses one output function for the hidden layers and another for the output layer, for example RELU or TANH in the hidden layers
+    * with SIGMOID on the output layer so that the outputs stay between 0 and 1
+    *
+    * @param hiddenFunction the output function of every hidden layer
+    * @param outputFunction the output function of the output layer
+    */
+   public void setActivation(ActivationFunction hiddenFunction, ActivationFunction outputFunction)
+   {
+      for (int layer = 1; layer < numLayers - 1; layer++)
+      {
+         layerFunctions[layer] = hiddenFunction;
+      }
+      layerFunctions[numLayers - 1] = outputFunction;
+   }
+
+   /**
+    * Sets the rule the network uses to move the weights and starts its state over
+    *
+    * @param optimizer the optimizer
+    */
+   public abstract void setOptimizer(Optimizer optimizer);
+
+   /**
+    * Sets the monitor that records every epoch of training, or removes it with null
+    *
+    * @param monitor the monitor, which checkTrain tells about the end of every epoch
+    */
+   public void setMonitor(TrainingMonitor monitor)
+   {
+      this.monitor = monitor;
+   }
+
+   /**
+    * Sets the writer that saves the weights to a checkpoint file while the network trains, or removes it with null
+    *
+    * @param checkpointWriter the writer, which checkTrain tells about the end of every epoch
+    */
+   public void setCheckpointWriter(CheckpointWriter checkpointWriter)
+   {
+      this.checkpointWriter = checkpointWriter;
+   }
+
+   /**
+    * Tells the monitor, if there is one, that training is about to start
+    *
+    * @param casesPerEpoch the number of training cases run in every epoch
+    */
+   void startMonitor(int casesPerEpoch)
+   {
+      if (monitor != null)
+      {
+         monitor.start(casesPerEpoch);
+      }
+   }
+
+   /**
+    * Trains the neural network on the given training cases until the error falls below the threshold or the epochs run out
+    *
+    * @param numTrainCases  the number of training cases being used in the method
+    * @param inputs         the training cases used in optimizing the weights
+    * @param expected       the expected results for the the training cases
+    * @param learningRate   an predetermined rate at which the network learns
+    * @param epochs         the number of iterations that the training function uses
+    * @param errorThreshold the average error under which training stops
+    */
+   public abstract void train(int numTrainCases, double[][] inputs, double[][] expected, double learningRate, int epochs,
+                              double errorThreshold);
+
+   /**
+    * Trains the neural network like the train above on cases streamed from a SampleSource, one case in memory at a time
+    *
+    * @param source         the training cases, which are read once per epoch
+    * @param learningRate   an predetermined rate at which the network learns
+    * @param epochs         the number of iterations that the training function uses
+    * @param errorThreshold the average error under which training stops
+    */
+   public abstract void train(SampleSource source, double learningRate, int epochs, double errorThreshold) throws IOException;
+
+   /**
+    * Checks whether the training for the network is done given the number of intended epochs and the average error
+    *
+    * @param epochs    the number of current iterations
+    * @param goalEpoch the number of maximum iterations under which the network will stop training
+    * @param error     the error of the network under the current set of weights
+    * @param goalError the error threshold of the network
+    * @return -2 if neither condition (number of epochs, average error) is met
+    * -1 if the error threshold is reached
+    * 0 if the number of epochs is reached
+    */
+   public int checkTrain(int epochs, int goalEpoch, double error, double goalError)
+   {
+      int returnable = -2;
+
+      if (epochs >= goalEpoch)
+      {
+         System.out.println("Training complete because goal epochs of " + goalEpoch + " was reached with error of " + error);
+         returnable = 0;
+      }
+
+      if (error <= goalError)
+      {
+         System.out.println("Training complete because network reached error threshold with " + epochs + " training cases with " +
+                 "error of " + error);
+         returnable = -1;
+      }
+
+      endEpoch(epochs, error, returnable != -2);
+      return returnable;
+   } // public int checkTrain(int epochs, int goalEpoch, double error, double goalError)
+
+   /**
+    * Tells the monitor and the checkpoint writer, if there are any, that an epoch has ended. checkTrain calls this for every epoch;
+    * a trainer that stops for a reason of its own calls it for its last epoch.
+    *
+    * @param epochs   the number of epochs run so far
+    * @param error    the error of the network under the current set of weights
+    * @param finished true if training stops after this epoch
+    */
+   void endEpoch(int epochs, double error, boolean finished)
+   {
+      if (monitor != null)
+      {
+         monitor.endEpoch(epochs, error, this);
+      }
+      if (checkpointWriter != null)
+      {
+         checkpointWriter.epochEnded(finished);
+      }
+   } // void endEpoch(int epochs, double error, boolean finished)
+
+   /**
+    * Generates a random double between two user-determined values using the Math.random function
+    *
+    * @param min the minimum value of the random number
+    * @param max the maximum value of the random number
+    * @return the random number
+    */
+   public double randomize(double min, double max)
+   {
+      return (max - min) * Math.random() + min;
+   }
+
+   /**
+    * Finds the position of a single weight inside the flat weights array of its layer
+    *
+    * @param n the layer the weight leaves from
+    * @param j the node in layer n that the weight starts at
+    * @param i the node in layer n + 1 that the weight ends at
+    * @return the index of the weight in weights[n]
+    */
+   public int weightIndex(int n, int j, int i)
+   {
+      return i * layerInfo[n] + j;
+   }
+
+   /**
+    * Reads a weight by its position in the flat weights of its layer
+    *
+    * @param n     the layer the weight leaves from
+    * @param index the index of the weight, as weightIndex finds it
+    * @return the value of the weight
+    */
+   public abstract double weightAt(int n, int index);
+
+   /**
+    * Reads the weight connecting node j of layer n to node i of layer n + 1
+    *
+    * @param n the layer the weight leaves from
+    * @param j the node in layer n that the weight starts at
+    * @param i the node in layer n + 1 that the weight ends at
+    * @return the value of the weight
+    */
+   public double getWeight(int n, int j, int i)
+   {
+      return weightAt(n, weightIndex(n, j, i));
+   }
+
+   /**
+    * Writes the weight connecting node j of layer n to node i of layer n + 1
+    *
+    * @param n     the layer the weight leaves from
+    * @param j     the node in layer n that the weight starts at
+    * @param i     the node in layer n + 1 that the weight ends at
+    * @param value the new value of the weight
+    */
+   public abstract void setWeight(int n, int j, int i, double value);
+
+   /**
+    * Copies the weights of one layer into a double array, in the flat layout of the layer
+    *
+    * @param n    the layer the weights leave from
+    * @param into the array that receives the weights, layerInfo[n] * layerInfo[n + 1] long
+    */
+   void copyWeights(int n, double[] into)
+   {
+      for (int index = 0; index < into.length; index++)
+      {
+         into[index] = weightAt(n, index);
+      }
+   }
+
+   /**
+    * Prints the current weights in the neural network into a file and labels them using the conventional method for identifying weights
+    */
+   public void printWeights() throws IOException
+   {
+      PrintWriter printer = new PrintWriter(new BufferedWriter(new FileWriter("weights.txt")));
+      for (int n = 0; n < numLayers - 1; n++)
+      {
+         for (int j = 0; j < layerInfo[n]; j++)
+         {
+            for (int i = 0; i < layerInfo[n + 1]; i++)
+            {
+               printer.println("w" + n + j + i + " = " + getWeight(n, j, i));
+            }
+         }
+      }
+      printer.close();
+   } // public void printWeights() throws IOException
+
+   /**
+    * Saves the topology and weights of the neural network to a binary checkpoint file
+    *
+    * @param fileName the name of the checkpoint file
+    */
+   public abstract void saveCheckpoint(String fileName) throws IOException;
+
+   /**
+    * Replaces the weights of the neural network with the ones stored in a binary checkpoint file, which must describe a network with
+    * the same number of nodes in every layer
+    *
+    * @param fileName the name of the checkpoint file
+    */
+   public abstract void loadCheckpoint(String fileName) throws IOException;
+
+   /**
+    * Loads the weights stored in a binary checkpoint file if the file exists and describes a network with the same number of nodes
+    * in every layer. A file that does not fit this network, or cannot be read, is reported and skipped rather than thrown, so that
+    * the caller can fall back to other weights.
+    *
+    * @param fileName the name of the checkpoint file
+    * @return true if the weights were loaded, false if they were left for the caller to set
+    */
+   public boolean loadCheckpointIfPresent(String fileName)
+   {
+      if (!new File(fileName).exists())
+      {
+         return false;
+      }
+
+      try
+      {
+         loadCheckpoint(fileName);
+         return true;
+      }
+      catch (IOException e)
+      {
+         System.out.println("Not loading the checkpoint: " + e.getMessage());
+         return false;
+      }
+   } // public boolean loadCheckpointIfPresent(String fileName)
+
+   /**
+    * Stops a method that changes the weights from running on a network whose weights cannot be changed. The weights of a network
+    * can always be changed unless a subclass says otherwise.
+    */
+   void checkWritable()
+   {
+   }
+
+} // public abstract class NeuralNetwork
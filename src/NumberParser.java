@@ -0,0 +1,467 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Number Parser
+ *
+ * This class reads the ints and doubles of the networkInfo.txt and testCases.txt formats straight from the bytes of the file. The
+ * file is read through a FileChannel into one reused buffer, every number is copied into a reused token array and converted there,
+ * so parsing a file of any size allocates nothing after the parser is constructed. Numbers are separated by commas, spaces, tabs
+ * and line breaks.
+ *
+ * Most doubles in these files have few digits. Any double whose digits fit in a long below 2^53 and whose decimal exponent is at
+ * most 22 in size is converted with a single multiplication or division by an exact power of ten, which rounds correctly. Anything
+ * else (long mantissas, large exponents, NaN, Infinity) falls back to Double.parseDouble, which allocates one String.
+ *
+ * Every error is an IOException naming the file, line and column of the offending token.
+ *
+ * Methods in this class
+ * int    nextInt
+ * double nextDouble
+ * void   readDoubles
+ * boolean hasNextOnLine
+ * String nextWord
+ * boolean skipWord
+ * void   skipLine
+ * void   seek
+ * long   position
+ * int    getLine
+ * void   close
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class NumberParser
+{
+
+   static final int BUFFER_BYTES = 1 << 16;
+   static final int MAX_TOKEN_BYTES = 64;
+   static final long EXACT_MANTISSA = 1L << 53;
+   static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+           1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+   String fileName;
+   FileChannel channel;
+   ByteBuffer buffer;
+   long position;
+   int line;
+   int column;
+   byte[] token;
+   int tokenLength;
+   int tokenLine;
+   int tokenColumn;
+
+   /**
+    * Opens a parser at the start of a file
+    *
+    * @param fileName the name of the file to parse
+    */
+   public NumberParser(String fileName) throws IOException
+   {
+      this(fileName, 0, 1);
+   }
+
+   /**
+    * Opens a parser at a given byte offset of a file, such as the start of a section found by an earlier pass
+    *
+    * @param fileName  the name of the file to parse
+    * @param offset    the byte offset where parsing starts
+    * @param firstLine the line number of that offset, used in error messages
+    */
+   public NumberParser(String fileName, long offset, int firstLine) throws IOException
+   {
+      this.fileName = fileName;
+      channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+      buffer = ByteBuffer.allocate(BUFFER_BYTES);
+      token = new byte[MAX_TOKEN_BYTES];
+      seek(offset, firstLine);
+   } // public NumberParser(String fileName, long offset, int firstLine) throws IOException
+
+   /**
+    * Reads the next int, skipping any separators and line breaks before it
+    *
+    * @return the int
+    */
+   public int nextInt() throws IOException
+   {
+      skipSeparators(true);
+      readToken();
+
+      int index = 0;
+      boolean negative = false;
+      if (token[0] == '-' || token[0] == '+')
+      {
+         negative = token[0] == '-';
+         index++;
+      }
+      if (index == tokenLength)
+      {
+         throw error("is not an int");
+      }
+
+      long value = 0;
+      for (; index < tokenLength; index++)
+      {
+         int digit = token[index] - '0';
+         if (digit < 0 || digit > 9)
+         {
+            throw error("is not an int");
+         }
+         value = value * 10 + digit;
+         if (value > (long) Integer.MAX_VALUE + 1)
+         {
+            throw error("is too large for an int");
+         }
+      }
+
+      value = negative ? -value : value;
+      if (value > Integer.MAX_VALUE)
+      {
+         throw error("is too large for an int");
+      }
+      return (int) value;
+   } // public int nextInt() throws IOException
+
+   /**
+    * Reads the next double, skipping any separators and line breaks before it
+    *
+    * @return the double
+    */
+   public double nextDouble() throws IOException
+   {
+      skipSeparators(true);
+      readToken();
+      return convertDouble();
+   }
+
+   /**
+    * Reads a given number of doubles from the current line into a buffer and moves to the start of the next line. Values after the
+    * first count on the line are ignored, as the split-based parsing this replaces did.
+    *
+    * @param values the buffer that receives the values
+    * @param count  the number of values to read
+    */
+   public void readDoubles(double[] values, int count) throws IOException
+   {
+      for (int value = 0; value < count; value++)
+      {
+         skipSeparators(false);
+         int next = peek();
+         if (next < 0 || next == '\n' || next == '\r')
+         {
+            throw new IOException(fileName + " line " + line + ", column " + column + ": expected " + count + " values but found " +
+                    value);
+         }
+         readToken();
+         values[value] = convertDouble();
+      }
+      skipLine();
+   } // public void readDoubles(double[] values, int count) throws IOException
+
+   /**
+    * Checks whether anything but separators is left on the current line, such as an optional setting after the last value
+    *
+    * @return true if another token follows on the current line
+    */
+   public boolean hasNextOnLine() throws IOException
+   {
+      skipSeparators(false);
+      int next = peek();
+      return next >= 0 && next != '\n' && next != '\r';
+   }
+
+   /**
+    * Reads the next token of the current line as a word, such as the name of a setting
+    *
+    * @return the word
+    */
+   public String nextWord() throws IOException
+   {
+      skipSeparators(false);
+      int next = peek();
+      if (next < 0 || next == '\n' || next == '\r')
+      {
+         throw new IOException(fileName + " line " + line + ", column " + column + ": expected a word but the line ended");
+      }
+      readToken();
+      return new String(token, 0, tokenLength, StandardCharsets.ISO_8859_1);
+   } // public String nextWord() throws IOException
+
+   /**
+    * Reads the next token of the current line if it is the given word, such as an optional setting, and otherwise leaves the parser
+    * where it was
+    *
+    * @param word the word
+    * @return true if the word was there and has been read
+    */
+   public boolean skipWord(String word) throws IOException
+   {
+      if (!hasNextOnLine())
+      {
+         return false;
+      }
+
+      long start = position;
+      int startLine = line;
+      int startColumn = column;
+      readToken();
+      if (word.equals(new String(token, 0, tokenLength, StandardCharsets.ISO_8859_1)))
+      {
+         return true;
+      }
+
+      //goes back to the start of the token, which the caller reads as something else
+      seek(start, startLine);
+      column = startColumn;
+      return false;
+   } // public boolean skipWord(String word) throws IOException
+
+   /**
+    * Moves past the rest of the current line, including its line break
+    */
+   public void skipLine() throws IOException
+   {
+      int next = peek();
+      while (next >= 0 && next != '\n')
+      {
+         advance();
+         next = peek();
+      }
+      if (next == '\n')
+      {
+         advance();
+      }
+   } // public void skipLine() throws IOException
+
+   /**
+    * Moves the parser to a given byte offset of the file, discarding anything buffered
+    *
+    * @param offset     the byte offset where parsing continues
+    * @param lineNumber the line number of that offset, used in error messages
+    */
+   public void seek(long offset, int lineNumber) throws IOException
+   {
+      channel.position(offset);
+      buffer.clear();
+      buffer.flip();
+      position = offset;
+      line = lineNumber;
+      column = 1;
+   }
+
+   /**
+    * @return the byte offset in the file of the next byte the parser will read
+    */
+   public long position()
+   {
+      return position;
+   }
+
+   /**
+    * @return the line number of the next byte the parser will read
+    */
+   public int getLine()
+   {
+      return line;
+   }
+
+   /**
+    * Closes the file
+    */
+   public void close() throws IOException
+   {
+      channel.close();
+   }
+
+   /**
+    * Converts the current token to a double, exactly when it can be done with one operation on exact values and through
+    * Double.parseDouble otherwise
+    *
+    * @return the double
+    */
+   private double convertDouble() throws IOException
+   {
+      int index = 0;
+      boolean negative = false;
+      if (token[0] == '-' || token[0] == '+')
+      {
+         negative = token[0] == '-';
+         index++;
+      }
+
+      long mantissa = 0;
+      int significantDigits = 0;
+      int digits = 0;
+      int exponent = 0;
+      boolean exact = true;
+
+      //the digits before and after the decimal point
+      boolean seenPoint = false;
+      for (; index < tokenLength; index++)
+      {
+         byte next = token[index];
+         if (next == '.' && !seenPoint)
+         {
+            seenPoint = true;
+         }
+         else if (next >= '0' && next <= '9')
+         {
+            digits++;
+            if (mantissa != 0 || next != '0')
+            {
+               significantDigits++;
+            }
+            if (significantDigits <= 18)
+            {
+               mantissa = mantissa * 10 + (next - '0');
+               if (seenPoint)
+               {
+                  exponent--;
+               }
+            }
+            else
+            {
+               exact = false;
+            }
+         }
+         else
+         {
+            break;
+         }
+      } // for (; index < tokenLength; index++)
+
+      //the exponent
+      if (index < tokenLength && (token[index] == 'e' || token[index] == 'E') && digits > 0)
+      {
+         index++;
+         boolean negativeExponent = false;
+         if (index < tokenLength && (token[index] == '-' || token[index] == '+'))
+         {
+            negativeExponent = token[index] == '-';
+            index++;
+         }
+         int written = 0;
+         int exponentDigits = 0;
+         for (; index < tokenLength && token[index] >= '0' && token[index] <= '9'; index++)
+         {
+            written = Math.min(written * 10 + (token[index] - '0'), 100000);
+            exponentDigits++;
+         }
+         if (exponentDigits == 0)
+         {
+            exact = false;
+         }
+         exponent += negativeExponent ? -written : written;
+      } // if (index < tokenLength && (token[index] == 'e' || token[index] == 'E') && digits > 0)
+
+      if (exact && digits > 0 && index == tokenLength && mantissa < EXACT_MANTISSA && exponent >= -22 && exponent <= 22)
+      {
+         double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+         return negative ? -value : value;
+      }
+
+      try
+      {
+         return Double.parseDouble(new String(token, 0, tokenLength, StandardCharsets.ISO_8859_1));
+      }
+      catch (NumberFormatException e)
+      {
+         throw error("is not a number");
+      }
+   } // private double convertDouble() throws IOException
+
+   /**
+    * Moves past separators, and line breaks too if allowed
+    *
+    * @param crossLines whether line breaks are skipped as well
+    */
+   private void skipSeparators(boolean crossLines) throws IOException
+   {
+      int next = peek();
+      while (next == ',' || next == ' ' || next == '\t' || (crossLines && (next == '\n' || next == '\r')))
+      {
+         advance();
+         next = peek();
+      }
+   }
+
+   /**
+    * Copies the bytes up to the next separator, line break or end of file into the token array
+    */
+   private void readToken() throws IOException
+   {
+      tokenLength = 0;
+      tokenLine = line;
+      tokenColumn = column;
+
+      int next = peek();
+      if (next < 0)
+      {
+         throw new IOException(fileName + " line " + line + ", column " + column + ": expected a number but the file ended");
+      }
+      while (next >= 0 && next != ',' && next != ' ' && next != '\t' && next != '\n' && next != '\r')
+      {
+         if (tokenLength == MAX_TOKEN_BYTES)
+         {
+            throw error("is longer than " + MAX_TOKEN_BYTES + " characters");
+         }
+         token[tokenLength] = (byte) next;
+         tokenLength++;
+         advance();
+         next = peek();
+      }
+   } // private void readToken() throws IOException
+
+   /**
+    * @return the next byte of the file without consuming it, or -1 at the end of the file
+    */
+   private int peek() throws IOException
+   {
+      if (!buffer.hasRemaining())
+      {
+         buffer.clear();
+         int count = channel.read(buffer);
+         buffer.flip();
+         if (count <= 0)
+         {
+            return -1;
+         }
+      }
+      return buffer.get(buffer.position()) & 0xFF;
+   } // private int peek() throws IOException
+
+   /**
+    * Consumes the byte returned by the last peek and keeps the line and column up to date
+    */
+   private void advance()
+   {
+      byte next = buffer.get();
+      position++;
+      if (next == '\n')
+      {
+         line++;
+         column = 1;
+      }
+      else
+      {
+         column++;
+      }
+   } // private void advance()
+
+   /**
+    * Builds an exception describing the current token
+    *
+    * @param problem what is wrong with the token
+    * @return the exception
+    */
+   private IOException error(String problem)
+   {
+      return new IOException(fileName + " line " + tokenLine + ", column " + tokenColumn + ": \"" +
+              new String(token, 0, tokenLength, StandardCharsets.ISO_8859_1) + "\" " + problem);
+   }
+
+} // public class NumberParser
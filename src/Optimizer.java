@@ -0,0 +1,122 @@
+import java.io.IOException;
+
+/**
+ * Optimizer
+ *
+ * The rule FirstTry.applyGradients uses to move the weights once the gradient of a batch has been accumulated. The gradients are
+ * sums over numCases training cases of psi times the activation below, the direction that lowers the error, so every optimizer
+ * adds a step along them to the weights.
+ *
+ *    sgd       plain gradient descent, w += learningRate * g / numCases, which is what the network has always done
+ *    momentum  gradient descent with a velocity that keeps a fraction of every earlier step
+ *    rmsprop   every weight's step is divided by a running root mean square of its own gradients
+ *    adam      momentum and rmsprop together, with both running averages corrected for starting at zero
+ *    lbfgs     full-batch quasi-Newton training with a line search, which replaces the loops of FirstTry.train
+ *
+ * The adaptive optimizers keep state for every weight in buffers shaped like the weights, which reset allocates once, so a step
+ * allocates nothing. Their steps are about learningRate in size whatever the size of the gradient, so they want much smaller
+ * learning rates than plain gradient descent, usually 0.001 to 0.1.
+ *
+ * An optimizer is chosen in a network file by writing its name, and optionally its parameters, after the last training value on
+ * its line, such as "0.01 adam" or "0.01 momentum 0.95". Older readers skip the rest of that line, so such files still load. The
+ * word float may come before it to make the network single precision (see NeuralNetwork.read), which only trains with sgd.
+ *
+ * Methods in this class
+ * void      reset
+ * void      update
+ * String    name
+ * Optimizer forName
+ * Optimizer read
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public abstract class Optimizer
+{
+
+   /**
+    * Allocates and zeroes the state of the optimizer for a network with the given weights, which starts it over
+    *
+    * @param weights the weights of the network, one flat array per layer
+    */
+   public void reset(double[][] weights)
+   {
+   }
+
+   /**
+    * Moves the weights by one step
+    *
+    * @param weights      the weights of the network, one flat array per layer
+    * @param gradients    the summed gradients of the batch, shaped like the weights
+    * @param learningRate the learning rate for the network
+    * @param numCases     the number of training cases whose gradients were summed
+    */
+   public abstract void update(double[][] weights, double[][] gradients, double learningRate, int numCases);
+
+   /**
+    * @return the name of the optimizer as it is written in a network file, followed by its parameters
+    */
+   public abstract String name();
+
+   /**
+    * Builds an optimizer from its name and parameters. Missing parameters take their usual values: a momentum of 0.9, an rmsprop
+    * decay of 0.9, adam betas of 0.9 and 0.999, and an lbfgs memory of 10 steps.
+    *
+    * @param name       sgd, momentum, rmsprop, adam or lbfgs, in any case
+    * @param parameters the parameters of the optimizer in the order above
+    * @param count      the number of parameters given
+    * @return the optimizer
+    */
+   public static Optimizer forName(String name, double[] parameters, int count) throws IOException
+   {
+      switch (name.toLowerCase())
+      {
+         case "sgd":
+            return new SgdOptimizer();
+         case "momentum":
+            return new MomentumOptimizer(count > 0 ? parameters[0] : 0.9);
+         case "rmsprop":
+            return new RmsPropOptimizer(count > 0 ? parameters[0] : 0.9);
+         case "adam":
+            return new AdamOptimizer(count > 0 ? parameters[0] : 0.9, count > 1 ? parameters[1] : 0.999);
+         case "lbfgs":
+            return new LbfgsOptimizer(count > 0 ? (int) parameters[0] : 10);
+         default:
+            throw new IOException("unknown optimizer \"" + name + "\", expected sgd, momentum, rmsprop, adam or lbfgs");
+      }
+   } // public static Optimizer forName(String name, double[] parameters, int count) throws IOException
+
+   /**
+    * Reads an optimizer name and its parameters from the rest of the current line of a network file, if there is one
+    *
+    * @param sc the parser, placed after the last value it has read from the line
+    * @return the optimizer, or null if the line holds nothing more
+    */
+   public static Optimizer read(NumberParser sc) throws IOException
+   {
+      if (!sc.hasNextOnLine())
+      {
+         return null;
+      }
+
+      int line = sc.getLine();
+      String name = sc.nextWord();
+      double[] parameters = new double[2];
+      int count = 0;
+      while (count < parameters.length && sc.hasNextOnLine())
+      {
+         parameters[count] = sc.nextDouble();
+         count++;
+      }
+
+      try
+      {
+         return forName(name, parameters, count);
+      }
+      catch (IOException e)
+      {
+         throw new IOException(sc.fileName + " line " + line + ": " + e.getMessage());
+      }
+   } // public static Optimizer read(NumberParser sc) throws IOException
+
+} // public abstract class Optimizer
@@ -0,0 +1,663 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Packed Dataset
+ *
+ * This class stores training cases that have already been turned into network inputs in one binary file, so that a set of images
+ * is decoded and normalized once instead of on every run. Every value is little-endian:
+ *
+ *    int      MAGIC, the bytes "NNDS"
+ *    int      VERSION
+ *    int      the size of one value in bytes, 4 for float or 8 for double
+ *    int      the number of cases
+ *    int      the number of inputs in every case
+ *    int      the number of expected outputs in every case
+ *    (zero padding up to HEADER_BYTES)
+ *    records  the inputs then the expected outputs of case 0, then of case 1, and so on
+ *
+ * An open dataset maps the file into memory, so reading a case copies nothing until the caller asks for it: inputView and
+ * expectedView return buffers that look straight at the mapped bytes, and read copies one case into caller-owned arrays with a
+ * single bulk get. The dataset is also a SampleSource, so FirstTry can train on it directly with the page cache as the only copy
+ * of the data. Files larger than 2 GB are mapped in several segments, each holding a whole number of records.
+ *
+ * Datasets are written from any SampleSource, such as a TestCaseSource, or from a folder of bitmaps normalized the way FingerMain
+ * does it, where every pixel becomes (pel & 0x00ffffff) / 2^24. A folder of bitmaps whose subfolders are named by number becomes a
+ * labeled set with one expected output, the number of the subfolder an image is in (for example fingers/0.2/two.bmp). A folder
+ * with the bitmaps directly inside becomes an autoencoder set whose expected outputs are its inputs, as in DianeMain.
+ *
+ *    java PackedDataset testcases testCases.txt 2 3 xor.nnds
+ *    java PackedDataset bitmaps fingers fingers.nnds float
+ *
+ * Methods in this class
+ * PackedDataset open
+ * void     write
+ * void     fromTestCases
+ * void     fromBitmaps
+ * double[] normalizeBitmap
+ * int      size
+ * int      getInputCount
+ * int      getOutputCount
+ * boolean  isFloat
+ * void     read
+ * DoubleBuffer inputView
+ * DoubleBuffer expectedView
+ * FloatBuffer  inputFloatView
+ * FloatBuffer  expectedFloatView
+ * boolean  next
+ * void     rewind
+ * void     close
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class PackedDataset implements SampleSource
+{
+
+   static final int MAGIC = 0x53444E4E;
+   static final int VERSION = 1;
+   static final int HEADER_BYTES = 32;
+   static final int CHUNK_BYTES = 1 << 16;
+
+   String fileName;
+   FileChannel channel;
+   int numCases;
+   int inputCount;
+   int outputCount;
+   int valueBytes;
+   int recordBytes;
+   int recordsPerSegment;
+   MappedByteBuffer[] segments;
+   DoubleBuffer[] doubleSegments;
+   FloatBuffer[] floatSegments;
+   int caseNumber;
+
+   /**
+    * Constructs a PackedDataset from a file that has already been opened and checked by open
+    *
+    * @param fileName    the name of the dataset file
+    * @param channel     the open channel on the file
+    * @param numCases    the number of cases
+    * @param inputCount  the number of inputs in every case
+    * @param outputCount the number of expected outputs in every case
+    * @param valueBytes  the size of one value, 4 or 8
+    */
+   private PackedDataset(String fileName, FileChannel channel, int numCases, int inputCount, int outputCount, int valueBytes)
+           throws IOException
+   {
+      this.fileName = fileName;
+      this.channel = channel;
+      this.numCases = numCases;
+      this.inputCount = inputCount;
+      this.outputCount = outputCount;
+      this.valueBytes = valueBytes;
+      recordBytes = (inputCount + outputCount) * valueBytes;
+      recordsPerSegment = Math.max(1, Integer.MAX_VALUE / recordBytes);
+
+      int numSegments = (numCases + recordsPerSegment - 1) / recordsPerSegment;
+      segments = new MappedByteBuffer[numSegments];
+      doubleSegments = new DoubleBuffer[numSegments];
+      floatSegments = new FloatBuffer[numSegments];
+      for (int segment = 0; segment < numSegments; segment++)
+      {
+         int records = Math.min(recordsPerSegment, numCases - segment * recordsPerSegment);
+         long start = HEADER_BYTES + (long) segment * recordsPerSegment * recordBytes;
+         segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, start, (long) records * recordBytes);
+         segments[segment].order(ByteOrder.LITTLE_ENDIAN);
+         if (valueBytes == Double.BYTES)
+         {
+            doubleSegments[segment] = segments[segment].asDoubleBuffer();
+         }
+         else
+         {
+            floatSegments[segment] = segments[segment].asFloatBuffer();
+         }
+      } // for (int segment = 0; segment < numSegments; segment++)
+   } // private PackedDataset(String fileName, FileChannel channel, int numCases, int inputCount, int outputCount, int valueBytes)
+
+   /**
+    * Opens a dataset file, checks its header and size, and maps its records into memory
+    *
+    * @param fileName the name of the dataset file
+    * @return the open dataset
+    */
+   public static PackedDataset open(String fileName) throws IOException
+   {
+      FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+      try
+      {
+         if (channel.size() < HEADER_BYTES)
+         {
+            throw new IOException(fileName + " is too short to be a dataset");
+         }
+         ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+         while (header.hasRemaining())
+         {
+            channel.read(header, header.position());
+         }
+         header.flip();
+
+         if (header.getInt() != MAGIC)
+         {
+            throw new IOException(fileName + " is not a dataset file");
+         }
+         int version = header.getInt();
+         if (version != VERSION)
+         {
+            throw new IOException(fileName + " is dataset version " + version + ", expected " + VERSION);
+         }
+         int valueBytes = header.getInt();
+         int numCases = header.getInt();
+         int inputCount = header.getInt();
+         int outputCount = header.getInt();
+         if ((valueBytes != Float.BYTES && valueBytes != Double.BYTES) || numCases < 0 || inputCount < 1 || outputCount < 1)
+         {
+            throw new IOException(fileName + " has an invalid header");
+         }
+
+         long expectedSize = HEADER_BYTES + (long) numCases * (inputCount + outputCount) * valueBytes;
+         if (channel.size() != expectedSize)
+         {
+            throw new IOException(fileName + " is " + channel.size() + " bytes long, expected " + expectedSize);
+         }
+
+         return new PackedDataset(fileName, channel, numCases, inputCount, outputCount, valueBytes);
+      } // try
+      catch (IOException e)
+      {
+         channel.close();
+         throw e;
+      }
+   } // public static PackedDataset open(String fileName) throws IOException
+
+   /**
+    * Writes every case of a SampleSource into a dataset file, replacing any file with the same name
+    *
+    * @param source    the cases to write, read in one pass from the start
+    * @param fileName  the name of the dataset file
+    * @param useFloats true to store floats, false to store doubles
+    */
+   public static void write(SampleSource source, String fileName, boolean useFloats) throws IOException
+   {
+      int inputCount = source.getInputCount();
+      int outputCount = source.getOutputCount();
+      int valueBytes = useFloats ? Float.BYTES : Double.BYTES;
+      double[] inputs = new double[inputCount];
+      double[] expected = new double[outputCount];
+
+      FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING);
+      ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      try
+      {
+         buffer.putInt(MAGIC);
+         buffer.putInt(VERSION);
+         buffer.putInt(valueBytes);
+         buffer.putInt(source.size());
+         buffer.putInt(inputCount);
+         buffer.putInt(outputCount);
+         while (buffer.position() < HEADER_BYTES)
+         {
+            buffer.put((byte) 0);
+         }
+
+         source.rewind();
+         int written = 0;
+         while (source.next(inputs, expected))
+         {
+            put(channel, buffer, inputs, useFloats);
+            put(channel, buffer, expected, useFloats);
+            written++;
+         }
+         if (written != source.size())
+         {
+            throw new IOException("the source promised " + source.size() + " cases but held " + written);
+         }
+
+         buffer.flip();
+         while (buffer.hasRemaining())
+         {
+            channel.write(buffer);
+         }
+      } // try
+      finally
+      {
+         channel.close();
+      }
+   } // public static void write(SampleSource source, String fileName, boolean useFloats) throws IOException
+
+   /**
+    * Converts a testCases.txt style file into a dataset file
+    *
+    * @param testCasesFile the name of the test case file
+    * @param inputCount    the number of inputs on every input line
+    * @param outputCount   the number of expected outputs on every expected line
+    * @param fileName      the name of the dataset file
+    * @param useFloats     true to store floats, false to store doubles
+    */
+   public static void fromTestCases(String testCasesFile, int inputCount, int outputCount, String fileName, boolean useFloats)
+           throws IOException
+   {
+      TestCaseSource source = new TestCaseSource(testCasesFile, inputCount, outputCount);
+      try
+      {
+         write(source, fileName, useFloats);
+      }
+      finally
+      {
+         source.close();
+      }
+   } // public static void fromTestCases(String testCasesFile, int inputCount, int outputCount, String fileName, ...
+
+   /**
+    * Converts a folder of bitmaps into a dataset file. Subfolders named by number give labeled cases, and bitmaps directly in the
+    * folder give autoencoder cases (see the class comment). Every bitmap must have the same number of pixels.
+    *
+    * @param directory the folder of bitmaps
+    * @param fileName  the name of the dataset file
+    * @param useFloats true to store floats, false to store doubles
+    */
+   public static void fromBitmaps(String directory, String fileName, boolean useFloats) throws IOException
+   {
+      ArrayList<File> images = new ArrayList<File>();
+      ArrayList<Double> labels = new ArrayList<Double>();
+
+      File[] entries = new File(directory).listFiles();
+      if (entries == null)
+      {
+         throw new IOException(directory + " is not a folder");
+      }
+      Arrays.sort(entries);
+      for (File entry : entries)
+      {
+         if (entry.isDirectory())
+         {
+            double label;
+            try
+            {
+               label = Double.parseDouble(entry.getName());
+            }
+            catch (NumberFormatException e)
+            {
+               throw new IOException("the subfolder " + entry + " is not named by a number");
+            }
+            File[] labeled = entry.listFiles();
+            Arrays.sort(labeled);
+            for (File image : labeled)
+            {
+               if (isBitmap(image))
+               {
+                  images.add(image);
+                  labels.add(label);
+               }
+            }
+         } // if (entry.isDirectory())
+         else if (isBitmap(entry))
+         {
+            images.add(entry);
+            labels.add(null);
+         }
+      } // for (File entry : entries)
+
+      if (images.isEmpty())
+      {
+         throw new IOException(directory + " holds no bitmaps");
+      }
+      boolean autoencoder = labels.get(0) == null;
+      for (Double label : labels)
+      {
+         if ((label == null) != autoencoder)
+         {
+            throw new IOException(directory + " mixes bitmaps with labeled subfolders");
+         }
+      }
+
+      write(new BitmapSource(images, labels, autoencoder), fileName, useFloats);
+   } // public static void fromBitmaps(String directory, String fileName, boolean useFloats) throws IOException
+
+   /**
+    * Turns the pixels of a bitmap into network inputs the way FingerMain does, dividing the 24 color bits of every pixel by 2^24
+    *
+    * @param pels   the pixels in the layout returned by DibDump.BMPtoArray
+    * @param inputs the buffer that receives the inputs, row by row
+    * @return the inputs buffer
+    */
+   public static double[] normalizeBitmap(int[][] pels, double[] inputs)
+   {
+      double scalingfactor = 1 << 24;
+      int count = 0;
+      for (int i = 0; i < pels.length; i++)
+      {
+         for (int j = 0; j < pels[i].length; j++)
+         {
+            inputs[count] = (pels[i][j] & 0x00ffffff) / scalingfactor;
+            count++;
+         }
+      }
+      return inputs;
+   } // public static double[] normalizeBitmap(int[][] pels, double[] inputs)
+
+   /**
+    * @return the number of cases in the dataset
+    */
+   public int size()
+   {
+      return numCases;
+   }
+
+   /**
+    * @return the number of inputs in every case
+    */
+   public int getInputCount()
+   {
+      return inputCount;
+   }
+
+   /**
+    * @return the number of expected outputs in every case
+    */
+   public int getOutputCount()
+   {
+      return outputCount;
+   }
+
+   /**
+    * @return true if the values are stored as floats, false if they are stored as doubles
+    */
+   public boolean isFloat()
+   {
+      return valueBytes == Float.BYTES;
+   }
+
+   /**
+    * Copies one case into caller-owned arrays, widening floats to doubles if needed
+    *
+    * @param sample   the number of the case
+    * @param inputs   the buffer that receives the inputs
+    * @param expected the buffer that receives the expected outputs
+    */
+   public void read(int sample, double[] inputs, double[] expected)
+   {
+      int segment = sample / recordsPerSegment;
+      int first = (sample % recordsPerSegment) * (inputCount + outputCount);
+
+      if (valueBytes == Double.BYTES)
+      {
+         doubleSegments[segment].get(first, inputs, 0, inputCount);
+         doubleSegments[segment].get(first + inputCount, expected, 0, outputCount);
+      }
+      else
+      {
+         FloatBuffer values = floatSegments[segment];
+         for (int node = 0; node < inputCount; node++)
+         {
+            inputs[node] = values.get(first + node);
+         }
+         for (int node = 0; node < outputCount; node++)
+         {
+            expected[node] = values.get(first + inputCount + node);
+         }
+      }
+   } // public void read(int sample, double[] inputs, double[] expected)
+
+   /**
+    * @param sample the number of the case
+    * @return a read-only view of the inputs of a case in a double dataset, straight onto the mapped file; a dataset of the
+    *         other width throws an IOException
+    */
+   public DoubleBuffer inputView(int sample) throws IOException
+   {
+      checkValueBytes(Double.BYTES);
+      return view(sample, 0, inputCount).asDoubleBuffer();
+   }
+
+   /**
+    * @param sample the number of the case
+    * @return a read-only view of the expected outputs of a case in a double dataset, straight onto the mapped file; a dataset of the
+    *         other width throws an IOException
+    */
+   public DoubleBuffer expectedView(int sample) throws IOException
+   {
+      checkValueBytes(Double.BYTES);
+      return view(sample, inputCount, outputCount).asDoubleBuffer();
+   }
+
+   /**
+    * @param sample the number of the case
+    * @return a read-only view of the inputs of a case in a float dataset, straight onto the mapped file; a dataset of the
+    *         other width throws an IOException
+    */
+   public FloatBuffer inputFloatView(int sample) throws IOException
+   {
+      checkValueBytes(Float.BYTES);
+      return view(sample, 0, inputCount).asFloatBuffer();
+   }
+
+   /**
+    * @param sample the number of the case
+    * @return a read-only view of the expected outputs of a case in a float dataset, straight onto the mapped file; a dataset of the
+    *         other width throws an IOException
+    */
+   public FloatBuffer expectedFloatView(int sample) throws IOException
+   {
+      checkValueBytes(Float.BYTES);
+      return view(sample, inputCount, outputCount).asFloatBuffer();
+   }
+
+   /**
+    * Reads the next case of the current pass
+    *
+    * @param inputs   the buffer that receives the inputs
+    * @param expected the buffer that receives the expected outputs
+    * @return true if a case was read, false if every case of this pass has been read
+    */
+   public boolean next(double[] inputs, double[] expected)
+   {
+      if (caseNumber == numCases)
+      {
+         return false;
+      }
+      read(caseNumber, inputs, expected);
+      caseNumber++;
+      return true;
+   } // public boolean next(double[] inputs, double[] expected)
+
+   /**
+    * Starts a new pass at the first case
+    */
+   public void rewind()
+   {
+      caseNumber = 0;
+   }
+
+   /**
+    * Closes the file. The mapped views stay readable until they are garbage collected.
+    */
+   public void close() throws IOException
+   {
+      channel.close();
+   }
+
+   /**
+    * Converts bitmaps or test cases into a dataset file from the command line
+    *
+    * @param args bitmaps folder output [float], or testcases file inputs outputs output [float]
+    */
+   public static void main(String[] args) throws IOException
+   {
+      if (args.length >= 3 && args[0].equals("bitmaps"))
+      {
+         fromBitmaps(args[1], args[2], args.length > 3 && args[3].equals("float"));
+      }
+      else if (args.length >= 5 && args[0].equals("testcases"))
+      {
+         fromTestCases(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]), args[4], args.length > 5 &&
+                 args[5].equals("float"));
+      }
+      else
+      {
+         System.out.println("usage: PackedDataset bitmaps <folder> <output> [float]");
+         System.out.println("       PackedDataset testcases <file> <inputs> <outputs> <output> [float]");
+      }
+   } // public static void main(String[] args) throws IOException
+
+   /**
+    * Stops a view of one width from reading a dataset stored with the other, which would show the bytes as nonsense values
+    *
+    * @param bytes the size of one value of the view, 4 or 8
+    */
+   private void checkValueBytes(int bytes) throws IOException
+   {
+      if (valueBytes != bytes)
+      {
+         throw new IOException(fileName + " stores " + (valueBytes == Float.BYTES ? "float" : "double") + " values, not " +
+                 (bytes == Float.BYTES ? "float" : "double") + " values");
+      }
+   }
+
+   /**
+    * Finds the bytes of part of one case
+    *
+    * @param sample the number of the case
+    * @param first  the index of the first value within the record
+    * @param count  the number of values
+    * @return a little-endian view of the bytes
+    */
+   private ByteBuffer view(int sample, int first, int count)
+   {
+      int offset = (sample % recordsPerSegment) * recordBytes + first * valueBytes;
+      return segments[sample / recordsPerSegment].slice(offset, count * valueBytes).order(ByteOrder.LITTLE_ENDIAN);
+   }
+
+   /**
+    * Adds values to the write buffer as floats or doubles, writing the buffer out whenever it fills
+    *
+    * @param channel   the channel being written
+    * @param buffer    the write buffer
+    * @param values    the values to add
+    * @param useFloats true to store floats, false to store doubles
+    */
+   private static void put(FileChannel channel, ByteBuffer buffer, double[] values, boolean useFloats) throws IOException
+   {
+      for (int index = 0; index < values.length; index++)
+      {
+         if (buffer.remaining() < Double.BYTES)
+         {
+            buffer.flip();
+            while (buffer.hasRemaining())
+            {
+               channel.write(buffer);
+            }
+            buffer.clear();
+         }
+         if (useFloats)
+         {
+            buffer.putFloat((float) values[index]);
+         }
+         else
+         {
+            buffer.putDouble(values[index]);
+         }
+      } // for (int index = 0; index < values.length; index++)
+   } // private static void put(FileChannel channel, ByteBuffer buffer, double[] values, boolean useFloats) throws IOException
+
+   /**
+    * @param file a file
+    * @return true if the file name ends in .bmp
+    */
+   private static boolean isBitmap(File file)
+   {
+      return file.isFile() && file.getName().toLowerCase().endsWith(".bmp");
+   }
+
+   /**
+    * A SampleSource over a list of bitmaps, which decodes one image at a time while a dataset is written
+    */
+   private static class BitmapSource implements SampleSource
+   {
+
+      ArrayList<File> images;
+      ArrayList<Double> labels;
+      boolean autoencoder;
+      int pixelCount;
+      int caseNumber;
+      BmpDecoder decoder;
+
+      /**
+       * Constructs a BitmapSource and decodes the first image to find the number of pixels
+       *
+       * @param images      the bitmaps
+       * @param labels      the expected output of every bitmap, unused for an autoencoder
+       * @param autoencoder true if the expected outputs are the inputs
+       */
+      BitmapSource(ArrayList<File> images, ArrayList<Double> labels, boolean autoencoder) throws IOException
+      {
+         this.images = images;
+         this.labels = labels;
+         this.autoencoder = autoencoder;
+         decoder = new BmpDecoder();
+         pixelCount = decoder.decodeInputs(images.get(0).getPath(), BmpInputMode.PACKED_RGB).length;
+      }
+
+      public int size()
+      {
+         return images.size();
+      }
+
+      public int getInputCount()
+      {
+         return pixelCount;
+      }
+
+      public int getOutputCount()
+      {
+         return autoencoder ? pixelCount : 1;
+      }
+
+      public boolean next(double[] inputs, double[] expected) throws IOException
+      {
+         if (caseNumber == images.size())
+         {
+            return false;
+         }
+
+         File image = images.get(caseNumber);
+         int count = decoder.decodeInputs(image.getPath(), BmpInputMode.PACKED_RGB, inputs);
+         if (count != pixelCount)
+         {
+            throw new IOException(image + " has " + count + " pixels, expected " + pixelCount);
+         }
+         if (autoencoder)
+         {
+            System.arraycopy(inputs, 0, expected, 0, pixelCount);
+         }
+         else
+         {
+            expected[0] = labels.get(caseNumber);
+         }
+         caseNumber++;
+         return true;
+      } // public boolean next(double[] inputs, double[] expected) throws IOException
+
+      public void rewind()
+      {
+         caseNumber = 0;
+      }
+
+      public void close()
+      {
+      }
+
+   } // private static class BitmapSource implements SampleSource
+
+} // public class PackedDataset
@@ -0,0 +1,214 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallel Trainer
+ *
+ * This class trains a FirstTry network in mini-batches across a pool of worker threads. Every batch of training cases is split into
+ * one contiguous slice per worker. Each worker propagates and backpropagates its slice through its own NetworkContext, so the
+ * activations, theta, psi and gradient buffers are private to the worker while the weights are only read. The worker gradients are
+ * then summed pairwise in a tree and the network applies the total once per batch, exactly as the mini-batch train does.
+ *
+ * Because the slices and the order of the reduction are fixed, a run gives the same weights for the same number of workers.
+ *
+ * The network must be writable and train with a first order optimizer such as sgd or adam. A mapped network, or an lbfgs one,
+ * whose line search needs the whole training set at every step, is rejected when the trainer is built and again when train is
+ * called, in case the optimizer was changed in between.
+ *
+ * Methods in this class
+ * void   train
+ * void   shutdown
+ * void   checkTrainable
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class ParallelTrainer
+{
+
+   FirstTry network;
+   int workers;
+   ForkJoinPool pool;
+   NetworkContext[] contexts;
+
+   /**
+    * Constructs a ParallelTrainer for a network with a given number of workers, each of which gets its own NetworkContext
+    *
+    * @param network the network whose weights are trained
+    * @param workers the number of worker threads, or 0 to use one per available processor
+    */
+   public ParallelTrainer(FirstTry network, int workers)
+   {
+      checkTrainable(network);
+      if (workers < 1)
+      {
+         workers = Runtime.getRuntime().availableProcessors();
+      }
+
+      this.network = network;
+      this.workers = workers;
+      pool = new ForkJoinPool(workers);
+
+      contexts = new NetworkContext[workers];
+      for (int worker = 0; worker < workers; worker++)
+      {
+         contexts[worker] = new NetworkContext(network);
+      }
+   } // public ParallelTrainer(FirstTry network, int workers)
+
+   /**
+    * Trains the network in mini-batches with the gradient of every batch computed by the worker pool. The stop conditions are the
+    * ones used by FirstTry.checkTrain.
+    *
+    * @param numTrainCases  the number of training cases being used in the method
+    * @param inputs         the training cases used in optimizing the weights
+    * @param expected       the expected results for the the training cases
+    * @param learningRate   an predetermined rate at which the network learns
+    * @param epochs         the number of iterations that the training function uses
+    * @param errorThreshold the average error under which training stops
+    * @param batchSize      the number of training cases whose gradients are combined into one weight update
+    */
+   public void train(int numTrainCases, double[][] inputs, double[][] expected, double learningRate, int epochs, double errorThreshold,
+                     int batchSize)
+   {
+      checkTrainable(network);
+      if (batchSize < 1 || batchSize > numTrainCases)
+      {
+         batchSize = numTrainCases;
+      }
+      network.startMonitor(numTrainCases);
+
+      int numLoops = 0;
+      double error;
+
+      do
+      {
+         error = 0.0;
+
+         for (int start = 0; start < numTrainCases; start += batchSize)
+         {
+            int end = Math.min(start + batchSize, numTrainCases);
+
+            error += pool.invoke(new BatchTask(inputs, expected, start, end, 0, workers));
+            network.applyGradients(contexts[0].gradients, learningRate, end - start);
+         }
+
+         error = error / (numTrainCases * network.output);
+         numLoops++;
+      } while (network.checkTrain(numLoops, epochs, error, errorThreshold) == -2);
+   } // public void train(int numTrainCases, double[][] inputs, double[][] expected, double learningRate, int epochs, ...
+
+   /**
+    * Stops the worker threads of this trainer
+    */
+   public void shutdown()
+   {
+      pool.shutdown();
+   }
+
+   /**
+    * Stops a network that the workers cannot train, before any of its weights change
+    *
+    * @param network the network to be trained
+    */
+   private static void checkTrainable(FirstTry network)
+   {
+      network.checkWritable();
+      if (network.optimizer instanceof LbfgsOptimizer)
+      {
+         throw new IllegalArgumentException("a parallel trainer only trains with first order optimizers, not " + network.optimizer.name());
+      }
+   }
+
+   /**
+    * Computes the gradient of one batch over a range of workers. A range of one worker runs that worker's slice of the batch; a
+    * larger range is split in half, both halves run in parallel, and the gradients of the upper half are added into the lower half,
+    * so the whole batch ends up in the context of the first worker of the range.
+    */
+   private class BatchTask extends RecursiveTask<Double>
+   {
+      private static final long serialVersionUID = 1L;
+
+      double[][] inputs;
+      double[][] expected;
+      int start;
+      int end;
+      int firstWorker;
+      int lastWorker;
+
+      /**
+       * Constructs a BatchTask over a batch of training cases and a range of workers
+       *
+       * @param inputs      the training cases
+       * @param expected    the expected results for the training cases
+       * @param start       the first training case of the batch
+       * @param end         one past the last training case of the batch
+       * @param firstWorker the first worker of the range
+       * @param lastWorker  one past the last worker of the range
+       */
+      BatchTask(double[][] inputs, double[][] expected, int start, int end, int firstWorker, int lastWorker)
+      {
+         this.inputs = inputs;
+         this.expected = expected;
+         this.start = start;
+         this.end = end;
+         this.firstWorker = firstWorker;
+         this.lastWorker = lastWorker;
+      }
+
+      /**
+       * Runs or splits the range of workers
+       *
+       * @return the summed error of the training cases handled by the range, measured before the weights are updated
+       */
+      @Override
+      protected Double compute()
+      {
+         if (lastWorker - firstWorker == 1)
+         {
+            return computeSlice();
+         }
+
+         int middle = (firstWorker + lastWorker) / 2;
+         BatchTask lower = new BatchTask(inputs, expected, start, end, firstWorker, middle);
+         BatchTask upper = new BatchTask(inputs, expected, start, end, middle, lastWorker);
+         upper.fork();
+         double error = lower.compute();
+         error += upper.join();
+
+         contexts[firstWorker].addGradients(contexts[middle]);
+         return error;
+      } // protected Double compute()
+
+      /**
+       * Propagates and backpropagates the slice of the batch that belongs to the first worker of the range
+       *
+       * @return the summed error of the slice
+       */
+      private double computeSlice()
+      {
+         NetworkContext workerContext = contexts[firstWorker];
+         int batchLength = end - start;
+         int sliceStart = start + (int) ((long) batchLength * firstWorker / workers);
+         int sliceEnd = start + (int) ((long) batchLength * (firstWorker + 1) / workers);
+         double[] outputs = workerContext.activations[network.numLayers - 1];
+         double error = 0.0;
+
+         workerContext.clearGradients();
+         for (int testCase = sliceStart; testCase < sliceEnd; testCase++)
+         {
+            network.propagate(inputs[testCase], workerContext);
+
+            for (int node = 0; node < network.output; node++)
+            {
+               double difference = expected[testCase][node] - outputs[node];
+               error += 0.5 * difference * difference;
+            }
+
+            network.accumulateGradients(expected[testCase], workerContext, batchLength);
+         }
+         return error;
+      } // private double computeSlice()
+   } // private class BatchTask extends RecursiveTask<Double>
+
+} // public class ParallelTrainer
@@ -0,0 +1,233 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Prefetching Sample Source
+ *
+ * A SampleSource whose cases are produced ahead of time by background threads while the network trains on the current ones, so
+ * the time spent reading and decoding cases overlaps with backpropagation instead of adding to it. The cases are produced into a
+ * fixed ring of buffers that are allocated once and reused: a thread takes a free buffer, claims the next case in order, fills it
+ * through its own SampleProducer and marks it ready, and next copies the oldest ready case into the caller's buffers and hands the
+ * buffer back. The ring bounds how far the threads run ahead, and so how much memory prefetching costs.
+ *
+ * The cases come out in order, 0 to size() - 1 in every pass, no matter which thread produced them. The threads do not stop at the
+ * end of a pass; they go straight on to the first cases of the next one, so a new epoch starts without waiting. A rewind before the
+ * end of a pass skips the rest of that pass.
+ *
+ * An exception thrown by a producer is rethrown by the next call to next. close stops the threads.
+ *
+ * Methods in this class
+ * int     size
+ * int     getInputCount
+ * int     getOutputCount
+ * boolean next
+ * void    rewind
+ * void    close
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class PrefetchingSampleSource implements SampleSource
+{
+
+   int size;
+   int inputCount;
+   int outputCount;
+   Slot[] ready;                          // ready[sequence % ring size] holds the case of that sequence number once it is filled
+   ArrayBlockingQueue<Slot> free;
+   Thread[] threads;
+   long nextSequence;                     // the next sequence number to be claimed by a thread, guarded by this
+   long consumed;                         // the sequence number of the next case returned by next
+   int passCase;                          // the number of cases returned in the current pass
+   volatile IOException failure;
+   volatile boolean closed;
+
+   /**
+    * Constructs a PrefetchingSampleSource and starts one thread for every producer
+    *
+    * @param producers the producers, which must all produce the same cases; each one is only used by its own thread
+    * @param ringSize  the number of buffers, which is how many cases can be produced ahead of the one being trained on
+    */
+   public PrefetchingSampleSource(SampleProducer[] producers, int ringSize)
+   {
+      size = producers[0].size();
+      inputCount = producers[0].getInputCount();
+      outputCount = producers[0].getOutputCount();
+      ringSize = Math.max(ringSize, producers.length);
+
+      ready = new Slot[ringSize];
+      free = new ArrayBlockingQueue<Slot>(ringSize);
+      for (int slot = 0; slot < ringSize; slot++)
+      {
+         free.add(new Slot(inputCount, outputCount));
+      }
+
+      threads = new Thread[producers.length];
+      for (int thread = 0; thread < producers.length; thread++)
+      {
+         SampleProducer producer = producers[thread];
+         threads[thread] = new Thread(() -> produce(producer), "prefetch-" + thread);
+         threads[thread].setDaemon(true);
+         threads[thread].start();
+      }
+   } // public PrefetchingSampleSource(SampleProducer[] producers, int ringSize)
+
+   public int size()
+   {
+      return size;
+   }
+
+   public int getInputCount()
+   {
+      return inputCount;
+   }
+
+   public int getOutputCount()
+   {
+      return outputCount;
+   }
+
+   public boolean next(double[] inputs, double[] expected) throws IOException
+   {
+      if (passCase == size)
+      {
+         return false;
+      }
+
+      Slot slot = take();
+      System.arraycopy(slot.inputs, 0, inputs, 0, inputCount);
+      System.arraycopy(slot.expected, 0, expected, 0, outputCount);
+      free.add(slot);
+      passCase++;
+      return true;
+   } // public boolean next(double[] inputs, double[] expected) throws IOException
+
+   public void rewind() throws IOException
+   {
+      if (passCase > 0)
+      {
+         for (; passCase < size; passCase++)
+         {
+            free.add(take());
+         }
+      }
+      passCase = 0;
+   }
+
+   public void close() throws IOException
+   {
+      closed = true;
+      for (Thread thread : threads)
+      {
+         thread.interrupt();
+      }
+      try
+      {
+         for (Thread thread : threads)
+         {
+            thread.join();
+         }
+      }
+      catch (InterruptedException e)
+      {
+         throw new InterruptedIOException("interrupted while stopping the prefetch threads");
+      }
+   } // public void close() throws IOException
+
+   /**
+    * Waits for the case with the next sequence number and removes it from the ring
+    *
+    * @return the buffer holding the case, which must be put back on the free queue once it has been read
+    */
+   private Slot take() throws IOException
+   {
+      int index = (int) (consumed % ready.length);
+      synchronized (ready)
+      {
+         while (ready[index] == null)
+         {
+            if (failure != null)
+            {
+               throw new IOException("a prefetch thread failed: " + failure.getMessage(), failure);
+            }
+            if (closed)
+            {
+               throw new IOException("the source has been closed");
+            }
+            try
+            {
+               ready.wait();
+            }
+            catch (InterruptedException e)
+            {
+               throw new InterruptedIOException("interrupted while waiting for a prefetched case");
+            }
+         } // while (ready[index] == null)
+
+         Slot slot = ready[index];
+         ready[index] = null;
+         consumed++;
+         return slot;
+      } // synchronized (ready)
+   } // private Slot take() throws IOException
+
+   /**
+    * Runs one prefetch thread until the source is closed. A thread only claims a sequence number once it holds a free buffer, so
+    * the claimed cases that have not been read never outnumber the buffers and no two of them share a place in the ring.
+    *
+    * @param producer the producer of this thread
+    */
+   private void produce(SampleProducer producer)
+   {
+      try
+      {
+         while (!closed)
+         {
+            Slot slot = free.take();
+            long sequence;
+            synchronized (this)
+            {
+               sequence = nextSequence;
+               nextSequence++;
+            }
+
+            producer.produce((int) (sequence % size), slot.inputs, slot.expected);
+
+            synchronized (ready)
+            {
+               ready[(int) (sequence % ready.length)] = slot;
+               ready.notifyAll();
+            }
+         } // while (!closed)
+      } // try
+      catch (InterruptedException e)
+      {
+         // closed
+      }
+      catch (IOException | RuntimeException e)
+      {
+         synchronized (ready)
+         {
+            failure = e instanceof IOException ? (IOException) e : new IOException(e.toString(), e);
+            ready.notifyAll();
+         }
+      }
+   } // private void produce(SampleProducer producer)
+
+   /**
+    * One buffer of the ring, large enough for one case
+    */
+   private static class Slot
+   {
+      double[] inputs;
+      double[] expected;
+
+      Slot(int inputCount, int outputCount)
+      {
+         inputs = new double[inputCount];
+         expected = new double[outputCount];
+      }
+   }
+
+} // public class PrefetchingSampleSource
@@ -0,0 +1,85 @@
+/**
+ * RmsProp Optimizer
+ *
+ * Gradient descent in which every weight's step is scaled by a running root mean square of its own gradients,
+ *
+ *    s = decay * s + (1 - decay) * g^2
+ *    w += learningRate * g / (sqrt(s) + EPSILON)
+ *
+ * where g is the average gradient of the batch. Weights with large gradients take smaller steps and weights with small gradients
+ * take larger ones, so the flat plateaus of the sigmoid are crossed much faster. The mean squares are kept in buffers shaped like
+ * the weights.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class RmsPropOptimizer extends Optimizer
+{
+
+   static final double EPSILON = 1e-8;
+
+   double decay;
+   double[][] meanSquare;
+
+   /**
+    * Constructs a RmsPropOptimizer
+    *
+    * @param decay the fraction of the running mean square kept at every step, such as 0.9
+    */
+   public RmsPropOptimizer(double decay)
+   {
+      this.decay = decay;
+   }
+
+   /**
+    * Allocates a running mean square of zero for every weight of a network with the given weights
+    *
+    * @param weights the weights of the network, one flat array per layer
+    */
+   public void reset(double[][] weights)
+   {
+      meanSquare = new double[weights.length][];
+      for (int n = 0; n < weights.length; n++)
+      {
+         meanSquare[n] = new double[weights[n].length];
+      }
+   }
+
+   /**
+    * Moves every weight by its gradient divided by the root mean square of its gradients
+    *
+    * @param weights      the weights of the network, one flat array per layer
+    * @param gradients    the summed gradients of the batch, shaped like the weights
+    * @param learningRate the learning rate for the network
+    * @param numCases     the number of training cases whose gradients were summed
+    */
+   public void update(double[][] weights, double[][] gradients, double learningRate, int numCases)
+   {
+      if (meanSquare == null)
+      {
+         reset(weights);
+      }
+
+      for (int n = 0; n < weights.length; n++)
+      {
+         double[] layerWeights = weights[n];
+         double[] layerGradients = gradients[n];
+         double[] layerMeanSquare = meanSquare[n];
+         for (int index = 0; index < layerWeights.length; index++)
+         {
+            double gradient = layerGradients[index] / numCases;
+            layerMeanSquare[index] = decay * layerMeanSquare[index] + (1.0 - decay) * gradient * gradient;
+            layerWeights[index] += learningRate * gradient / (Math.sqrt(layerMeanSquare[index]) + EPSILON);
+         }
+      }
+   } // public void update(double[][] weights, double[][] gradients, double learningRate, int numCases)
+
+   /**
+    * @return rmsprop followed by the decay of the running mean square
+    */
+   public String name()
+   {
+      return "rmsprop " + decay;
+   }
+
+} // public class RmsPropOptimizer
@@ -0,0 +1,41 @@
+import java.io.IOException;
+
+/**
+ * Sample Producer
+ *
+ * A set of training cases that can be produced in any order, such as a list of images that are decoded on demand. Unlike a
+ * SampleSource, a producer is not read front to back, so several producers over the same cases can each fill a different case at the
+ * same time. PrefetchingSampleSource gives every one of its threads its own producer, so a producer is only ever called by one
+ * thread and may keep buffers of its own between calls.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public interface SampleProducer
+{
+
+   /**
+    * @return the number of cases
+    */
+   int size();
+
+   /**
+    * @return the number of inputs in every case
+    */
+   int getInputCount();
+
+   /**
+    * @return the number of expected outputs in every case
+    */
+   int getOutputCount();
+
+   /**
+    * Fills in one case
+    *
+    * @param index    the case, from 0 to size() - 1
+    * @param inputs   the buffer that receives the inputs of the case, at least getInputCount() long
+    * @param expected the buffer that receives the expected outputs of the case, at least getOutputCount() long
+    */
+   void produce(int index, double[] inputs, double[] expected) throws IOException;
+
+} // public interface SampleProducer
@@ -0,0 +1,50 @@
+import java.io.IOException;
+
+/**
+ * Sample Source
+ *
+ * A stream of training cases that is read one case at a time and can be started over for every epoch. Only the case being read has
+ * to be in memory, so a network can be trained on more cases than fit in the heap. The caller owns the buffers that cases are read
+ * into and reuses them from case to case.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public interface SampleSource
+{
+
+   /**
+    * @return the number of cases in one pass over the source
+    */
+   int size();
+
+   /**
+    * @return the number of inputs in every case
+    */
+   int getInputCount();
+
+   /**
+    * @return the number of expected outputs in every case
+    */
+   int getOutputCount();
+
+   /**
+    * Reads the next case of the current pass
+    *
+    * @param inputs   the buffer that receives the inputs of the case, at least getInputCount() long
+    * @param expected the buffer that receives the expected outputs of the case, at least getOutputCount() long
+    * @return true if a case was read, false if the pass is over
+    */
+   boolean next(double[] inputs, double[] expected) throws IOException;
+
+   /**
+    * Starts a new pass, so that the next call to next returns the first case again
+    */
+   void rewind() throws IOException;
+
+   /**
+    * Releases the files or threads held by the source
+    */
+   void close() throws IOException;
+
+} // public interface SampleSource
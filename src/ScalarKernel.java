@@ -0,0 +1,97 @@
+/**
+ * Scalar Kernel
+ *
+ * The plain Java loops for the operations of ComputeKernel. They add the products in index order, which is the order the network
+ * has always used, so results computed with this kernel do not depend on the hardware.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class ScalarKernel extends ComputeKernel
+{
+
+   /**
+    * Adds the dot product of two runs of values onto a running sum, one product at a time in index order
+    *
+    * @param a       the first array
+    * @param aOffset the index of the first value of the run in a
+    * @param b       the second array
+    * @param bOffset the index of the first value of the run in b
+    * @param length  the number of values in each run
+    * @param sum     the running sum
+    * @return the running sum plus the dot product
+    */
+   public double dot(double[] a, int aOffset, double[] b, int bOffset, int length, double sum)
+   {
+      for (int index = 0; index < length; index++)
+      {
+         sum += a[aOffset + index] * b[bOffset + index];
+      }
+      return sum;
+   }
+
+   /**
+    * Adds a multiple of one run of values onto another run, in place
+    *
+    * @param alpha   the multiple of x that is added
+    * @param x       the array being added
+    * @param xOffset the index of the first value of the run in x
+    * @param y       the array being changed
+    * @param yOffset the index of the first value of the run in y
+    * @param length  the number of values in each run
+    */
+   public void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length)
+   {
+      for (int index = 0; index < length; index++)
+      {
+         y[yOffset + index] += alpha * x[xOffset + index];
+      }
+   }
+
+   /**
+    * Adds the dot product of two runs of float values onto a running sum, one product at a time in index order, in double
+    *
+    * @param a       the first array
+    * @param aOffset the index of the first value of the run in a
+    * @param b       the second array
+    * @param bOffset the index of the first value of the run in b
+    * @param length  the number of values in each run
+    * @param sum     the running sum
+    * @return the running sum plus the dot product
+    */
+   public double dot(float[] a, int aOffset, float[] b, int bOffset, int length, double sum)
+   {
+      for (int index = 0; index < length; index++)
+      {
+         sum += (double) a[aOffset + index] * b[bOffset + index];
+      }
+      return sum;
+   }
+
+   /**
+    * Adds a multiple of one run of float values onto another run, in place
+    *
+    * @param alpha   the multiple of x that is added
+    * @param x       the array being added
+    * @param xOffset the index of the first value of the run in x
+    * @param y       the array being changed
+    * @param yOffset the index of the first value of the run in y
+    * @param length  the number of values in each run
+    */
+   public void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length)
+   {
+      for (int index = 0; index < length; index++)
+      {
+         y[yOffset + index] += alpha * x[xOffset + index];
+      }
+   }
+
+   /**
+    * @return scalar
+    */
+   public String name()
+   {
+      return "scalar";
+   }
+
+} // public class ScalarKernel
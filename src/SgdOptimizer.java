@@ -0,0 +1,40 @@
+/**
+ * Sgd Optimizer
+ *
+ * Plain gradient descent, w += learningRate * g / numCases, run by the compute kernel of the network exactly as applyGradients has
+ * always done. It keeps no state. It is the optimizer every network starts with, and the only one online training can apply
+ * during backpropagation itself (see FirstTry.calculateBackprop).
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class SgdOptimizer extends Optimizer
+{
+
+   /**
+    * Moves every weight by the average gradient times the learning rate
+    *
+    * @param weights      the weights of the network, one flat array per layer
+    * @param gradients    the summed gradients of the batch, shaped like the weights
+    * @param learningRate the learning rate for the network
+    * @param numCases     the number of training cases whose gradients were summed
+    */
+   public void update(double[][] weights, double[][] gradients, double learningRate, int numCases)
+   {
+      double step = learningRate / numCases;
+
+      for (int n = 0; n < weights.length; n++)
+      {
+         FirstTry.KERNEL.axpy(step, gradients[n], 0, weights[n], 0, weights[n].length);
+      }
+   }
+
+   /**
+    * @return sgd, which has no parameters
+    */
+   public String name()
+   {
+      return "sgd";
+   }
+
+} // public class SgdOptimizer
@@ -0,0 +1,165 @@
+import java.io.IOException;
+
+/**
+ * Test Case Source
+ *
+ * This class streams the training cases of a testCases.txt style file instead of loading them into arrays. The file holds the
+ * number of cases on its first line, then one comma-separated line of inputs per case, then one comma-separated line of expected
+ * outputs per case:
+ *
+ *    4
+ *    0,0
+ *    0,1
+ *    ...
+ *    0,0,0
+ *    1,1,0
+ *    ...
+ *
+ * Two NumberParsers walk the file at the same time, one through the inputs and one through the expected outputs, so case k is
+ * read from line 2 + k and line 2 + count + k without holding anything but the two buffers in memory. The byte offset of the
+ * expected section is found once when the source is opened, and every rewind moves both parsers back to their starting offsets, so
+ * each pass reads the file exactly once and parses it without allocating.
+ *
+ * Methods in this class
+ * int     size
+ * int     getInputCount
+ * int     getOutputCount
+ * boolean next
+ * void    rewind
+ * void    close
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class TestCaseSource implements SampleSource
+{
+
+   String fileName;
+   int inputCount;
+   int outputCount;
+   int numCases;
+   long inputsOffset;
+   long expectedOffset;
+   NumberParser inputParser;
+   NumberParser expectedParser;
+   int caseNumber;
+
+   /**
+    * Opens a test case file and finds where its sections start
+    *
+    * @param fileName    the name of the test case file
+    * @param inputCount  the number of inputs on every input line
+    * @param outputCount the number of expected outputs on every expected line
+    */
+   public TestCaseSource(String fileName, int inputCount, int outputCount) throws IOException
+   {
+      this.fileName = fileName;
+      this.inputCount = inputCount;
+      this.outputCount = outputCount;
+
+      // a single scan of the file finds the end of the count line and the end of the last input line
+      NumberParser scan = new NumberParser(fileName);
+      try
+      {
+         numCases = scan.nextInt();
+         scan.skipLine();
+         inputsOffset = scan.position();
+
+         for (int lines = 0; lines < numCases; lines++)
+         {
+            if (scan.position() == scan.channel.size())
+            {
+               throw new IOException(fileName + " ends after " + lines + " of its " + numCases + " input lines");
+            }
+            scan.skipLine();
+         }
+         expectedOffset = scan.position();
+      } // try
+      finally
+      {
+         scan.close();
+      }
+
+      rewind();
+   } // public TestCaseSource(String fileName, int inputCount, int outputCount) throws IOException
+
+   /**
+    * @return the number of cases in the file
+    */
+   public int size()
+   {
+      return numCases;
+   }
+
+   /**
+    * @return the number of inputs on every input line
+    */
+   public int getInputCount()
+   {
+      return inputCount;
+   }
+
+   /**
+    * @return the number of expected outputs on every expected line
+    */
+   public int getOutputCount()
+   {
+      return outputCount;
+   }
+
+   /**
+    * Reads the inputs and expected outputs of the next case
+    *
+    * @param inputs   the buffer that receives the inputs
+    * @param expected the buffer that receives the expected outputs
+    * @return true if a case was read, false if every case of this pass has been read
+    */
+   public boolean next(double[] inputs, double[] expected) throws IOException
+   {
+      if (caseNumber == numCases)
+      {
+         return false;
+      }
+
+      inputParser.readDoubles(inputs, inputCount);
+      expectedParser.readDoubles(expected, outputCount);
+      caseNumber++;
+      return true;
+   } // public boolean next(double[] inputs, double[] expected) throws IOException
+
+   /**
+    * Moves both parsers back to the start of the input and expected sections, opening them on the first pass
+    */
+   public void rewind() throws IOException
+   {
+      if (inputParser == null)
+      {
+         inputParser = new NumberParser(fileName, inputsOffset, 2);
+         expectedParser = new NumberParser(fileName, expectedOffset, 2 + numCases);
+      }
+      else
+      {
+         inputParser.seek(inputsOffset, 2);
+         expectedParser.seek(expectedOffset, 2 + numCases);
+      }
+      caseNumber = 0;
+   } // public void rewind() throws IOException
+
+   /**
+    * Closes both parsers
+    */
+   public void close() throws IOException
+   {
+      if (inputParser != null)
+      {
+         inputParser.close();
+         inputParser = null;
+      }
+      if (expectedParser != null)
+      {
+         expectedParser.close();
+         expectedParser = null;
+      }
+   } // public void close() throws IOException
+
+} // public class TestCaseSource
@@ -0,0 +1,311 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Training Monitor
+ *
+ * Records how training is going, one epoch at a time, so a run of several hours can be watched while it converges. Once a monitor
+ * is set on a network with NeuralNetwork.setMonitor, every train method of FirstTry, FirstTryFloat, ParallelTrainer and
+ * LbfgsOptimizer reports the end of each epoch through checkTrain, and the monitor keeps the epoch number, the average error, the
+ * time the epoch took, the training cases run per second and the norm, average and largest magnitude of the weights.
+ *
+ * Nothing is recorded inside the loop over the cases; an epoch costs the monitor one clock read and one pass over the weights. The
+ * totals are LongAdder and DoubleAdder counters and the values of the last epoch are volatile fields, so they can be read from
+ * other threads, such as JMX, without locking the training thread. register shows them as a TrainingMonitorMBean, and startLog
+ * writes them to a CSV file every few epochs. A reset asked for through JMX only sets a volatile flag; the training thread clears
+ * the counters itself at the end of the next epoch, before recording it, so a reset never lands halfway through endEpoch.
+ *
+ * An LbfgsOptimizer counts one iteration as an epoch, although its line search may pass over the cases more than once in it.
+ *
+ * Methods in this class
+ * void   start
+ * void   endEpoch
+ * void   reset
+ * void   register
+ * void   unregister
+ * void   startLog
+ * void   close
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class TrainingMonitor implements TrainingMonitorMBean
+{
+
+   static final String DOMAIN = "neuralnetwork";
+   static final String CSV_HEADER = "epoch,error,epochMillis,samplesPerSecond,weightNorm,meanAbsWeight,maxAbsWeight";
+
+   LongAdder epochsRecorded = new LongAdder();
+   LongAdder samples = new LongAdder();
+   LongAdder trainingNanos = new LongAdder();
+   DoubleAdder errorSum = new DoubleAdder();
+
+   volatile int epoch;
+   volatile double error;
+   volatile long epochNanos;
+   volatile double weightNorm;
+   volatile double meanAbsWeight;
+   volatile double maxAbsWeight;
+   volatile boolean resetRequested;
+
+   int casesPerEpoch;
+   long epochStart;
+   ObjectName objectName;
+   PrintWriter log;
+   String logFileName;
+   int logInterval;
+
+   /**
+    * Tells the monitor that a train method is about to run its first epoch
+    *
+    * @param casesPerEpoch the number of training cases run in every epoch
+    */
+   public void start(int casesPerEpoch)
+   {
+      this.casesPerEpoch = casesPerEpoch;
+      epochStart = System.nanoTime();
+   }
+
+   /**
+    * Records the end of an epoch. The time is measured from the end of the previous epoch, or from start for the first.
+    *
+    * @param epochs  the number of epochs run so far, as train counts them
+    * @param error   the average error of the epoch
+    * @param network the network being trained, whose weights are measured
+    */
+   public void endEpoch(int epochs, double error, NeuralNetwork network)
+   {
+      if (resetRequested)
+      {
+         resetRequested = false;
+         clear();
+      }
+
+      long now = System.nanoTime();
+      long nanos = now - epochStart;
+      epochStart = now;
+
+      double sumSquares = 0.0;
+      double sumAbs = 0.0;
+      double max = 0.0;
+      long count = 0;
+      for (int n = 0; n < network.numLayers - 1; n++)
+      {
+         int layerCount = network.layerInfo[n] * network.layerInfo[n + 1];
+         for (int index = 0; index < layerCount; index++)
+         {
+            double weight = network.weightAt(n, index);
+            double magnitude = Math.abs(weight);
+            sumSquares += weight * weight;
+            sumAbs += magnitude;
+            max = Math.max(max, magnitude);
+         }
+         count += layerCount;
+      } // for (int n = 0; n < network.numLayers - 1; n++)
+
+      epoch = epochs;
+      this.error = error;
+      epochNanos = nanos;
+      weightNorm = Math.sqrt(sumSquares);
+      meanAbsWeight = count == 0 ? 0.0 : sumAbs / count;
+      maxAbsWeight = max;
+
+      epochsRecorded.increment();
+      samples.add(casesPerEpoch);
+      trainingNanos.add(nanos);
+      errorSum.add(error);
+
+      if (log != null && epochs % logInterval == 0)
+      {
+         writeRow();
+      }
+   } // public void endEpoch(int epochs, double error, NeuralNetwork network)
+
+   /**
+    * Shows the monitor to JMX clients under neuralnetwork:type=TrainingMonitor,name=the given name
+    *
+    * @param name the name that tells this run apart from others in the same JVM
+    */
+   public void register(String name) throws JMException
+   {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName registered = new ObjectName(DOMAIN + ":type=TrainingMonitor,name=" + ObjectName.quote(name));
+      server.registerMBean(this, registered);
+      objectName = registered;
+   }
+
+   /**
+    * Removes the monitor from JMX if it was registered
+    */
+   public void unregister() throws JMException
+   {
+      if (objectName != null)
+      {
+         ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+         objectName = null;
+      }
+   }
+
+   /**
+    * Starts writing the values of every few epochs to a CSV file, which is flushed after every row so it can be followed while
+    * training runs
+    *
+    * @param fileName the name of the CSV file, which is replaced
+    * @param interval the number of epochs between rows, at least 1
+    */
+   public void startLog(String fileName, int interval) throws IOException
+   {
+      closeLog();
+      log = new PrintWriter(new BufferedWriter(new FileWriter(fileName)));
+      logFileName = fileName;
+      logInterval = Math.max(interval, 1);
+      log.println(CSV_HEADER);
+      checkLog();
+   }
+
+   /**
+    * Closes the CSV log, if there is one, and removes the monitor from JMX
+    */
+   public void close() throws IOException, JMException
+   {
+      closeLog();
+      unregister();
+   }
+
+   /**
+    * Writes the values of the last epoch as a row of the CSV log
+    */
+   private void writeRow()
+   {
+      log.println(epoch + "," + error + "," + getEpochMillis() + "," + getSamplesPerSecond() + "," + weightNorm + "," +
+              meanAbsWeight + "," + maxAbsWeight);
+      log.flush();
+   }
+
+   /**
+    * Closes the CSV log if there is one
+    */
+   private void closeLog() throws IOException
+   {
+      if (log != null)
+      {
+         log.close();
+         PrintWriter closed = log;
+         log = null;
+         if (closed.checkError())
+         {
+            throw new IOException(logFileName + " could not be written");
+         }
+      }
+   } // private void closeLog() throws IOException
+
+   /**
+    * Throws if the CSV log has failed to write, since PrintWriter only records its errors
+    */
+   private void checkLog() throws IOException
+   {
+      if (log.checkError())
+      {
+         throw new IOException(logFileName + " could not be written");
+      }
+   }
+
+   public int getEpoch()
+   {
+      return epoch;
+   }
+
+   public long getEpochsRecorded()
+   {
+      return epochsRecorded.sum();
+   }
+
+   public long getSamples()
+   {
+      return samples.sum();
+   }
+
+   public double getError()
+   {
+      return error;
+   }
+
+   public double getMeanError()
+   {
+      long count = epochsRecorded.sum();
+      return count == 0 ? 0.0 : errorSum.sum() / count;
+   }
+
+   public double getEpochMillis()
+   {
+      return epochNanos / 1e6;
+   }
+
+   public double getMeanEpochMillis()
+   {
+      long count = epochsRecorded.sum();
+      return count == 0 ? 0.0 : trainingNanos.sum() / 1e6 / count;
+   }
+
+   public double getSamplesPerSecond()
+   {
+      long nanos = epochNanos;
+      return nanos == 0 ? 0.0 : casesPerEpoch * 1e9 / nanos;
+   }
+
+   public double getMeanSamplesPerSecond()
+   {
+      long nanos = trainingNanos.sum();
+      return nanos == 0 ? 0.0 : samples.sum() * 1e9 / nanos;
+   }
+
+   public double getWeightNorm()
+   {
+      return weightNorm;
+   }
+
+   public double getMeanAbsWeight()
+   {
+      return meanAbsWeight;
+   }
+
+   public double getMaxAbsWeight()
+   {
+      return maxAbsWeight;
+   }
+
+   /**
+    * Asks for every counter to be set back to zero. The training thread clears them at the end of the next epoch, which is then the
+    * first one recorded, so until then the values of the epochs before the reset can still be read.
+    */
+   public void reset()
+   {
+      resetRequested = true;
+   }
+
+   /**
+    * Sets every counter back to zero; only called by endEpoch, on the training thread
+    */
+   private void clear()
+   {
+      epochsRecorded.reset();
+      samples.reset();
+      trainingNanos.reset();
+      errorSum.reset();
+      epoch = 0;
+      error = 0.0;
+      epochNanos = 0;
+      weightNorm = 0.0;
+      meanAbsWeight = 0.0;
+      maxAbsWeight = 0.0;
+   } // private void clear()
+
+} // public class TrainingMonitor implements TrainingMonitorMBean
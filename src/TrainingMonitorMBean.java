@@ -0,0 +1,77 @@
+/**
+ * Training Monitor MBean
+ *
+ * The attributes a TrainingMonitor shows through JMX, such as in JConsole under neuralnetwork:type=TrainingMonitor.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public interface TrainingMonitorMBean
+{
+
+   /**
+    * @return the number of the epoch that ended last, as train counts them
+    */
+   int getEpoch();
+
+   /**
+    * @return the number of epochs recorded since the monitor was created or reset
+    */
+   long getEpochsRecorded();
+
+   /**
+    * @return the number of training cases run since the monitor was created or reset
+    */
+   long getSamples();
+
+   /**
+    * @return the average error of the epoch that ended last
+    */
+   double getError();
+
+   /**
+    * @return the average error over every epoch recorded
+    */
+   double getMeanError();
+
+   /**
+    * @return the time the epoch that ended last took, in milliseconds
+    */
+   double getEpochMillis();
+
+   /**
+    * @return the average time an epoch has taken, in milliseconds
+    */
+   double getMeanEpochMillis();
+
+   /**
+    * @return the training cases run per second in the epoch that ended last
+    */
+   double getSamplesPerSecond();
+
+   /**
+    * @return the training cases run per second over every epoch recorded
+    */
+   double getMeanSamplesPerSecond();
+
+   /**
+    * @return the square root of the sum of the squares of every weight at the end of the last epoch
+    */
+   double getWeightNorm();
+
+   /**
+    * @return the average magnitude of a weight at the end of the last epoch
+    */
+   double getMeanAbsWeight();
+
+   /**
+    * @return the largest magnitude of a weight at the end of the last epoch
+    */
+   double getMaxAbsWeight();
+
+   /**
+    * Asks for every counter to be set back to zero at the end of the next epoch, on the training thread
+    */
+   void reset();
+
+} // public interface TrainingMonitorMBean
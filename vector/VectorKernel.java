@@ -0,0 +1,172 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector Kernel
+ *
+ * The operations of ComputeKernel written with the Java Vector API, so that the JIT compiles them to SIMD instructions (four doubles
+ * per instruction with AVX2, eight with AVX-512). The module is still incubating, so this class lives outside src and is compiled
+ * and run with the module added:
+ *
+ *    javac --add-modules jdk.incubator.vector -cp out -d out vector/VectorKernel.java
+ *    java --add-modules jdk.incubator.vector -cp out FingerMain
+ *
+ * ComputeKernel loads this class by name and falls back to ScalarKernel when it or the module is missing.
+ *
+ * axpy gives exactly the same results as the scalar kernel. dot keeps one partial sum per lane and adds the lanes together at the
+ * end, so its results can differ from the scalar kernel in the last few bits. The float dot product loads a full vector of floats
+ * at a time and widens each half of it to doubles before multiplying, so it reads half the bytes of the double one for the same
+ * number of double operations.
+ *
+ * @author David Feng
+ * @version March 02, 2020
+ */
+public class VectorKernel extends ComputeKernel
+{
+
+   static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+   static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+
+   /**
+    * Adds the dot product of two runs of values onto a running sum, a full vector of products at a time
+    *
+    * @param a       the first array
+    * @param aOffset the index of the first value of the run in a
+    * @param b       the second array
+    * @param bOffset the index of the first value of the run in b
+    * @param length  the number of values in each run
+    * @param sum     the running sum
+    * @return the running sum plus the dot product
+    */
+   public double dot(double[] a, int aOffset, double[] b, int bOffset, int length, double sum)
+   {
+      int index = 0;
+      int bound = SPECIES.loopBound(length);
+
+      if (bound > 0)
+      {
+         DoubleVector partialSums = DoubleVector.zero(SPECIES);
+         for (; index < bound; index += SPECIES.length())
+         {
+            DoubleVector aValues = DoubleVector.fromArray(SPECIES, a, aOffset + index);
+            DoubleVector bValues = DoubleVector.fromArray(SPECIES, b, bOffset + index);
+            partialSums = partialSums.add(aValues.mul(bValues));
+         }
+         sum += partialSums.reduceLanes(VectorOperators.ADD);
+      }
+
+      for (; index < length; index++)
+      {
+         sum += a[aOffset + index] * b[bOffset + index];
+      }
+      return sum;
+   } // public double dot(double[] a, int aOffset, double[] b, int bOffset, int length, double sum)
+
+   /**
+    * Adds a multiple of one run of values onto another run, in place, a full vector at a time
+    *
+    * @param alpha   the multiple of x that is added
+    * @param x       the array being added
+    * @param xOffset the index of the first value of the run in x
+    * @param y       the array being changed
+    * @param yOffset the index of the first value of the run in y
+    * @param length  the number of values in each run
+    */
+   public void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length)
+   {
+      int index = 0;
+      int bound = SPECIES.loopBound(length);
+
+      for (; index < bound; index += SPECIES.length())
+      {
+         DoubleVector xValues = DoubleVector.fromArray(SPECIES, x, xOffset + index);
+         DoubleVector yValues = DoubleVector.fromArray(SPECIES, y, yOffset + index);
+         yValues.add(xValues.mul(alpha)).intoArray(y, yOffset + index);
+      }
+
+      for (; index < length; index++)
+      {
+         y[yOffset + index] += alpha * x[xOffset + index];
+      }
+   } // public void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length)
+
+   /**
+    * Adds the dot product of two runs of float values onto a running sum, a full vector of floats at a time, widening both halves
+    * of every vector to doubles so that the products and sums are taken in double
+    *
+    * @param a       the first array
+    * @param aOffset the index of the first value of the run in a
+    * @param b       the second array
+    * @param bOffset the index of the first value of the run in b
+    * @param length  the number of values in each run
+    * @param sum     the running sum
+    * @return the running sum plus the dot product
+    */
+   public double dot(float[] a, int aOffset, float[] b, int bOffset, int length, double sum)
+   {
+      int index = 0;
+      int bound = FLOAT_SPECIES.loopBound(length);
+
+      if (bound > 0)
+      {
+         DoubleVector partialSums = DoubleVector.zero(SPECIES);
+         for (; index < bound; index += FLOAT_SPECIES.length())
+         {
+            FloatVector aValues = FloatVector.fromArray(FLOAT_SPECIES, a, aOffset + index);
+            FloatVector bValues = FloatVector.fromArray(FLOAT_SPECIES, b, bOffset + index);
+            for (int part = 0; part < 2; part++)
+            {
+               DoubleVector aWide = (DoubleVector) aValues.convertShape(VectorOperators.F2D, SPECIES, part);
+               DoubleVector bWide = (DoubleVector) bValues.convertShape(VectorOperators.F2D, SPECIES, part);
+               partialSums = partialSums.add(aWide.mul(bWide));
+            }
+         }
+         sum += partialSums.reduceLanes(VectorOperators.ADD);
+      } // if (bound > 0)
+
+      for (; index < length; index++)
+      {
+         sum += (double) a[aOffset + index] * b[bOffset + index];
+      }
+      return sum;
+   } // public double dot(float[] a, int aOffset, float[] b, int bOffset, int length, double sum)
+
+   /**
+    * Adds a multiple of one run of float values onto another run, in place, a full vector at a time
+    *
+    * @param alpha   the multiple of x that is added
+    * @param x       the array being added
+    * @param xOffset the index of the first value of the run in x
+    * @param y       the array being changed
+    * @param yOffset the index of the first value of the run in y
+    * @param length  the number of values in each run
+    */
+   public void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length)
+   {
+      int index = 0;
+      int bound = FLOAT_SPECIES.loopBound(length);
+
+      for (; index < bound; index += FLOAT_SPECIES.length())
+      {
+         FloatVector xValues = FloatVector.fromArray(FLOAT_SPECIES, x, xOffset + index);
+         FloatVector yValues = FloatVector.fromArray(FLOAT_SPECIES, y, yOffset + index);
+         yValues.add(xValues.mul(alpha)).intoArray(y, yOffset + index);
+      }
+
+      for (; index < length; index++)
+      {
+         y[yOffset + index] += alpha * x[xOffset + index];
+      }
+   } // public void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length)
+
+   /**
+    * @return the name of the vector shape, for example vector-256 for four doubles per instruction
+    */
+   public String name()
+   {
+      return "vector-" + SPECIES.vectorBitSize();
+   }
+
+} // public class VectorKernel